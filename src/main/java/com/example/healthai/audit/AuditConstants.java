@@ -9,6 +9,8 @@ public final class AuditConstants {
     public static final String RESOURCE_HEALTH_PROFILE = "HEALTH_PROFILE";
     public static final String RESOURCE_CONSULTATION = "CONSULTATION";
 
+    public static final String ACTOR_SYSTEM = "SYSTEM";
+
     public static final String ACTION_AUTH_REGISTER = "AUTH_REGISTER_SUCCESS";
     public static final String ACTION_AUTH_LOGIN_SUCCESS = "AUTH_LOGIN_SUCCESS";
     public static final String ACTION_AUTH_LOGIN_FAILED = "AUTH_LOGIN_FAILED";
@@ -21,6 +23,7 @@ public final class AuditConstants {
 
     public static final String ACTION_CONSULT_CREATED = "CONSULT_CREATED";
     public static final String ACTION_CONSULT_AI_COMPLETED = "CONSULT_AI_COMPLETED";
+    public static final String ACTION_CONSULT_FOLLOW_UP = "CONSULT_FOLLOW_UP";
     public static final String ACTION_CONSULT_REVIEWED = "CONSULT_REVIEWED";
     public static final String ACTION_CONSULT_CLOSED = "CONSULT_CLOSED";
 }
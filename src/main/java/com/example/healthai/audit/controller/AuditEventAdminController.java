@@ -31,8 +31,10 @@ public class AuditEventAdminController {
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
         @RequestParam(defaultValue = "0") int page,
-        @RequestParam(defaultValue = "20") int size) {
+        @RequestParam(defaultValue = "20") int size,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "true") boolean includeTotal) {
         return ApiResponse.success(
-            auditEventAdminService.search(resourceType, action, actorId, from, to, page, size));
+            auditEventAdminService.search(resourceType, action, actorId, from, to, page, size, cursor, includeTotal));
     }
 }
@@ -21,6 +21,18 @@ public interface AuditEventMapper {
                              @Param("limit") int limit,
                              @Param("offset") int offset);
 
+    /**
+     * 键集分页：返回 (occurred_at, id) 严格小于游标的记录。
+     */
+    List<AuditEvent> searchAfter(@Param("resourceType") String resourceType,
+                                 @Param("action") String action,
+                                 @Param("actorId") Long actorId,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to,
+                                 @Param("cursorOccurredAt") LocalDateTime cursorOccurredAt,
+                                 @Param("cursorId") long cursorId,
+                                 @Param("limit") int limit);
+
     long count(@Param("resourceType") String resourceType,
                @Param("action") String action,
                @Param("actorId") Long actorId,
@@ -9,6 +9,7 @@ import org.springframework.transaction.annotation.Transactional;
 import com.example.healthai.audit.domain.AuditEvent;
 import com.example.healthai.audit.dto.AuditEventResponse;
 import com.example.healthai.audit.mapper.AuditEventMapper;
+import com.example.healthai.common.api.PageCursor;
 import com.example.healthai.common.api.PageResponse;
 
 @Service
@@ -29,18 +30,30 @@ public class AuditEventAdminService {
                                                    LocalDateTime from,
                                                    LocalDateTime to,
                                                    int page,
-                                                   int size) {
+                                                   int size,
+                                                   String cursor,
+                                                   boolean includeTotal) {
         int safePage = Math.max(page, 0);
         int safeSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
-        int offset = safePage * safeSize;
+        PageCursor after = PageCursor.decode(cursor);
 
-        List<AuditEvent> events = auditEventMapper.search(resourceType, action, actorId, from, to, safeSize, offset);
-        long total = auditEventMapper.count(resourceType, action, actorId, from, to);
+        // 传入游标时按 (occurred_at, id) 键集翻页，忽略 page；多取一条用于判断是否还有下一页
+        List<AuditEvent> fetched = after != null
+            ? auditEventMapper.searchAfter(resourceType, action, actorId, from, to, after.timestamp(), after.id(), safeSize + 1)
+            : auditEventMapper.search(resourceType, action, actorId, from, to, safeSize + 1, safePage * safeSize);
+        boolean hasMore = fetched.size() > safeSize;
+        List<AuditEvent> events = hasMore ? fetched.subList(0, safeSize) : fetched;
+        Long total = includeTotal ? auditEventMapper.count(resourceType, action, actorId, from, to) : null;
 
         List<AuditEventResponse> responses = events.stream()
             .map(this::toResponse)
             .toList();
-        return new PageResponse<>(responses, total, safePage, safeSize);
+        return new PageResponse<>(responses, total, safePage, safeSize, hasMore ? nextCursor(events) : null);
+    }
+
+    private String nextCursor(List<AuditEvent> events) {
+        AuditEvent last = events.get(events.size() - 1);
+        return new PageCursor(last.getOccurredAt(), last.getId()).encode();
     }
 
     private AuditEventResponse toResponse(AuditEvent event) {
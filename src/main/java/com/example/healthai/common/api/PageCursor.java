@@ -0,0 +1,43 @@
+package com.example.healthai.common.api;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.springframework.util.StringUtils;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+
+/**
+ * 键集分页游标：按 (时间, id) 倒序排列时上一页最后一条记录的位置，对外编码为不透明的 base64url 字符串。
+ */
+public record PageCursor(LocalDateTime timestamp, long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        String raw = timestamp + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return token 为空时返回 null
+     */
+    public static PageCursor decode(String token) {
+        if (!StringUtils.hasText(token)) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw new IllegalArgumentException(raw);
+            }
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new BusinessException(ErrorCode.VALIDATION_FAILED, "分页游标无效", ex);
+        }
+    }
+}
@@ -3,7 +3,11 @@ package com.example.healthai.common.api;
 import java.util.Collections;
 import java.util.List;
 
-public record PageResponse<T>(List<T> content, long totalElements, int page, int size) {
+/**
+ * @param totalElements 调用方未要求统计总数时为 null
+ * @param nextCursor    下一页的键集分页游标，没有更多数据时为 null
+ */
+public record PageResponse<T>(List<T> content, Long totalElements, int page, int size, String nextCursor) {
 
     public PageResponse {
         if (content == null) {
@@ -14,9 +18,13 @@ public record PageResponse<T>(List<T> content, long totalElements, int page, int
         }
     }
 
-    public long totalPages() {
-        if (size <= 0) {
-            return 0;
+    public PageResponse(List<T> content, long totalElements, int page, int size) {
+        this(content, Long.valueOf(totalElements), page, size, null);
+    }
+
+    public Long totalPages() {
+        if (totalElements == null) {
+            return null;
         }
         return (totalElements + size - 1) / size;
     }
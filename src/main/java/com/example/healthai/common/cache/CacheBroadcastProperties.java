@@ -0,0 +1,18 @@
+package com.example.healthai.common.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "healthai.cache.broadcast")
+public class CacheBroadcastProperties {
+
+    /**
+     * 是否通过 Redis Pub/Sub 将本地缓存失效广播到其他节点。
+     */
+    private boolean enabled = false;
+    private String channel = "healthai:cache:evict";
+}
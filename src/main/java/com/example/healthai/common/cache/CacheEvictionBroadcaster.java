@@ -0,0 +1,85 @@
+package com.example.healthai.common.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 进程内缓存的跨节点失效广播。各缓存以 cacheName 注册本地失效回调，
+ * {@link #evict} 在事务提交后执行本地失效并通过 Redis 频道通知其他节点。
+ */
+@Component
+public class CacheEvictionBroadcaster implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheEvictionBroadcaster.class);
+    private static final String SEPARATOR = "|";
+
+    private final StringRedisTemplate redisTemplate;
+    private final CacheBroadcastProperties properties;
+    private final Map<String, Consumer<String>> evictors = new ConcurrentHashMap<>();
+
+    public CacheEvictionBroadcaster(StringRedisTemplate redisTemplate, CacheBroadcastProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    public void register(String cacheName, Consumer<String> localEvictor) {
+        evictors.put(cacheName, localEvictor);
+    }
+
+    public void evict(String cacheName, String key) {
+        Runnable eviction = () -> {
+            evictLocally(cacheName, key);
+            publish(cacheName, key);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictLocally(cacheName, key);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int index = body.indexOf(SEPARATOR);
+        if (index <= 0) {
+            return;
+        }
+        evictLocally(body.substring(0, index), body.substring(index + 1));
+    }
+
+    private void evictLocally(String cacheName, String key) {
+        Consumer<String> evictor = evictors.get(cacheName);
+        if (evictor != null) {
+            evictor.accept(key);
+        }
+    }
+
+    private void publish(String cacheName, String key) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(properties.getChannel(), cacheName + SEPARATOR + key);
+        } catch (Exception ex) {
+            log.warn("Failed to broadcast cache eviction cache={} key={}", cacheName, key, ex);
+        }
+    }
+}
@@ -16,11 +16,16 @@ public enum ErrorCode {
     REFRESH_TOKEN_EXPIRED("AUTH-411", HttpStatus.UNAUTHORIZED, "刷新令牌已过期"),
     PROMPT_TEMPLATE_NOT_FOUND("PROMPT-404", HttpStatus.NOT_FOUND, "提示词模板不存在"),
     LLM_CALL_FAILED("LLM-500", HttpStatus.BAD_GATEWAY, "大模型调用失败"),
+    LLM_CALL_INVALID("LLM-400", HttpStatus.BAD_GATEWAY, "大模型请求被拒绝或返回无效"),
     LLM_TIMEOUT("LLM-504", HttpStatus.GATEWAY_TIMEOUT, "大模型响应超时"),
+    LLM_OVERLOADED("LLM-503", HttpStatus.SERVICE_UNAVAILABLE, "大模型服务繁忙，请稍后重试"),
+    LLM_CIRCUIT_OPEN("LLM-506", HttpStatus.SERVICE_UNAVAILABLE, "大模型渠道暂不可用"),
+    LLM_CALL_CANCELLED("LLM-499", HttpStatus.SERVICE_UNAVAILABLE, "大模型调用已取消"),
     PROMPT_RENDER_FAILED("PROMPT-500", HttpStatus.INTERNAL_SERVER_ERROR, "提示词渲染失败"),
     CONSULTATION_NOT_FOUND("CONSULT-404", HttpStatus.NOT_FOUND, "问诊记录不存在"),
     CONSULTATION_FORBIDDEN("CONSULT-403", HttpStatus.FORBIDDEN, "无权访问问诊记录"),
     CONSULTATION_STATUS_CONFLICT("CONSULT-409", HttpStatus.CONFLICT, "问诊状态不允许当前操作"),
+    CONSULTATION_TRIAGE_ABANDONED("CONSULT-504", HttpStatus.GATEWAY_TIMEOUT, "AI 分诊未在规定时间内完成"),
     DRUG_NOT_FOUND("DRUG-404", HttpStatus.NOT_FOUND, "药品不存在"),
     DRUG_GENERIC_NAME_CONFLICT("DRUG-409", HttpStatus.CONFLICT, "药品通用名已存在"),
     DRUG_CONTRAINDICATED("DRUG-412", HttpStatus.PRECONDITION_FAILED, "药品存在禁忌，无法继续"),
@@ -0,0 +1,28 @@
+package com.example.healthai.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.example.healthai.common.cache.CacheBroadcastProperties;
+import com.example.healthai.common.cache.CacheEvictionBroadcaster;
+
+@Configuration
+@EnableConfigurationProperties(CacheBroadcastProperties.class)
+public class CacheBroadcastConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "healthai.cache.broadcast", name = "enabled", havingValue = "true")
+    public RedisMessageListenerContainer cacheEvictionListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                        CacheEvictionBroadcaster broadcaster,
+                                                                        CacheBroadcastProperties properties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(broadcaster, new ChannelTopic(properties.getChannel()));
+        return container;
+    }
+}
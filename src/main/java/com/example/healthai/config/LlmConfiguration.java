@@ -1,65 +1,245 @@
 package com.example.healthai.config;
 
+import java.time.Duration;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestClient;
 
+import com.example.healthai.llm.circuit.CircuitBreakingLlmClient;
+import com.example.healthai.llm.circuit.SlidingWindowCircuitBreaker;
+import com.example.healthai.llm.client.CoalescingLlmClient;
+import com.example.healthai.llm.client.LlmCallCancellation;
 import com.example.healthai.llm.client.LlmClient;
 import com.example.healthai.llm.client.http.HttpApiLlmClient;
 import com.example.healthai.llm.client.ollama.OllamaLlmClient;
 import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.llm.limit.AimdConcurrencyLimiter;
+import com.example.healthai.llm.limit.ConcurrencyLimitedLlmClient;
+import com.example.healthai.llm.retry.LlmRetryPolicy;
 import com.example.healthai.llm.service.LlmClientRegistry;
+import com.example.healthai.llm.stats.RatioBudget;
+import com.example.healthai.llm.token.BpeApproximateTokenEstimator;
+import com.example.healthai.llm.token.TokenEstimator;
+import com.example.healthai.llm.warmup.ModelWarmthTracker;
+import com.example.healthai.llm.warmup.OllamaModelWarmer;
+import com.example.healthai.prompt.mapper.PromptTemplateMapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
 
 @Configuration
 @EnableConfigurationProperties(LlmProperties.class)
 public class LlmConfiguration {
 
     @Bean
-    public LlmClientRegistry llmClientRegistry(LlmProperties properties) {
+    public LlmClientRegistry llmClientRegistry(LlmProperties properties,
+                                               ObjectMapper objectMapper,
+                                               CloseableHttpClient llmHttpClient,
+                                               LlmRetryPolicy llmRetryPolicy,
+                                               ModelWarmthTracker modelWarmthTracker,
+                                               MeterRegistry meterRegistry) {
         LlmClientRegistry registry = new LlmClientRegistry();
         if (properties.getOllama().isEnabled()) {
-            registry.register(ollamaClient(properties));
+            registry.register(decorate(ollamaClient(properties, objectMapper, llmHttpClient, llmRetryPolicy, modelWarmthTracker),
+                properties, meterRegistry));
         }
         if (properties.getHttp().isEnabled()) {
-            registry.register(httpApiClient(properties));
+            registry.register(decorate(httpApiClient(properties, objectMapper, llmHttpClient, llmRetryPolicy, meterRegistry),
+                properties, meterRegistry));
         }
         return registry;
     }
 
+    /**
+     * 装饰顺序（由外到内）：合并 -> 熔断 -> 限流 -> 真实客户端。
+     * 被合并的跟随者不占用并发额度；限流的快速拒绝不计入熔断统计。
+     */
+    private LlmClient decorate(LlmClient client, LlmProperties properties, MeterRegistry meterRegistry) {
+        LlmProperties.LimiterProperties limiter = properties.getLimiter();
+        if (limiter.isEnabled()) {
+            client = new ConcurrencyLimitedLlmClient(client, new AimdConcurrencyLimiter(
+                limiter.getInitialLimit(), limiter.getMinLimit(), limiter.getMaxLimit(),
+                limiter.getBackoffRatio(), limiter.getLatencyThreshold()), meterRegistry);
+        }
+        LlmProperties.CircuitBreakerProperties breaker = properties.getCircuitBreaker();
+        if (breaker.isEnabled()) {
+            client = new CircuitBreakingLlmClient(client, model -> new SlidingWindowCircuitBreaker(
+                breaker.getWindowSize(), breaker.getMinimumCalls(), breaker.getFailureRateThreshold(),
+                breaker.getSlowCallRateThreshold(), breaker.getSlowCallThreshold(),
+                breaker.getOpenDuration(), breaker.getHalfOpenProbes()), meterRegistry);
+        }
+        LlmProperties.CoalescingProperties coalescing = properties.getCoalescing();
+        if (coalescing.isEnabled()) {
+            client = new CoalescingLlmClient(client, coalescing.getMaxWaiters(), coalescing.getWaitTimeout(), meterRegistry);
+        }
+        return client;
+    }
+
+    /**
+     * 两个渠道共用一个连接池，按路由（模型网关 host）限制并发连接，并复用 keep-alive 连接避免重复的 TCP/TLS 握手。
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager llmConnectionManager(LlmProperties properties) {
+        LlmProperties.PoolProperties pool = properties.getPool();
+        return PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(pool.getMaxConnections())
+            .setMaxConnPerRoute(pool.getMaxConnectionsPerRoute())
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(pool.getConnectTimeout()))
+                .setTimeToLive(TimeValue.of(pool.getTimeToLive()))
+                .setValidateAfterInactivity(TimeValue.of(pool.getValidateAfterInactivity()))
+                .build())
+            .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient llmHttpClient(PoolingHttpClientConnectionManager llmConnectionManager,
+                                             LlmProperties properties) {
+        LlmProperties.PoolProperties pool = properties.getPool();
+        return HttpClients.custom()
+            .setConnectionManager(llmConnectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(pool.getConnectionRequestTimeout()))
+                .build())
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.of(pool.getIdleEviction()))
+            .disableAutomaticRetries()
+            .build();
+    }
+
+    /**
+     * 对冲调用时主请求与对冲请求都在该线程池执行，不排队：池满时退化为不对冲的直接调用。
+     */
+    @Bean
+    public ThreadPoolTaskExecutor llmHedgeExecutor(LlmProperties properties) {
+        LlmProperties.HedgingProperties hedging = properties.getHedging();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("llm-hedge-");
+        executor.setCorePoolSize(hedging.getCorePoolSize());
+        executor.setMaxPoolSize(Math.max(hedging.getCorePoolSize(), hedging.getMaxPoolSize()));
+        executor.setQueueCapacity(0);
+        return executor;
+    }
+
+    /**
+     * 默认使用本地近似计数；需要精确计数时可注册与模型一致的分词器实现替换。
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public TokenEstimator tokenEstimator() {
+        return new BpeApproximateTokenEstimator();
+    }
+
+    /**
+     * 重试与对冲共用一个额外调用额度，两者叠加也不超过 extra-call-budget 约定的比例。
+     */
+    @Bean
+    public RatioBudget llmExtraCallBudget(LlmProperties properties, MeterRegistry meterRegistry) {
+        LlmProperties.ExtraCallBudgetProperties config = properties.getExtraCallBudget();
+        RatioBudget budget = new RatioBudget(config.getRatio(), config.getBurst());
+        Gauge.builder("healthai.llm.extra_call.budget", budget, RatioBudget::getTokens)
+            .description("重试与对冲共用的剩余额度")
+            .register(meterRegistry);
+        return budget;
+    }
+
+    @Bean
+    public LlmRetryPolicy llmRetryPolicy(LlmProperties properties, RatioBudget llmExtraCallBudget, MeterRegistry meterRegistry) {
+        return new LlmRetryPolicy(properties.getRetry(), llmExtraCallBudget, meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder llmConnectionPoolMetrics(PoolingHttpClientConnectionManager llmConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(llmConnectionManager, "llm");
+    }
+
     @Bean
     @ConditionalOnProperty(prefix = "healthai.llm.ollama", name = "enabled", havingValue = "true", matchIfMissing = true)
-    public LlmClient ollamaClient(LlmProperties properties) {
+    public OllamaLlmClient ollamaClient(LlmProperties properties, ObjectMapper objectMapper, CloseableHttpClient llmHttpClient,
+                                        LlmRetryPolicy llmRetryPolicy, ModelWarmthTracker modelWarmthTracker) {
         LlmProperties.OllamaProperties config = properties.getOllama();
         RestClient restClient = RestClient.builder()
             .baseUrl(config.getBaseUrl())
-            .requestFactory(createRequestFactory(config.getTimeout().toMillis()))
+            .requestFactory(createRequestFactory(llmHttpClient, properties.getPool(), config.getTimeout()))
             .build();
-        return new OllamaLlmClient(restClient, config);
+        return new OllamaLlmClient(restClient, config, objectMapper, llmRetryPolicy, modelWarmthTracker);
+    }
+
+    /**
+     * 模型预热直接调用未经装饰的 Ollama 客户端，不占用限流额度，也不计入熔断统计。
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnExpression("${healthai.llm.warmup.enabled:false} and ${healthai.llm.ollama.enabled:true}")
+    public OllamaModelWarmer ollamaModelWarmer(OllamaLlmClient ollamaClient,
+                                               PromptTemplateMapper promptTemplateMapper,
+                                               LlmProperties properties,
+                                               ModelWarmthTracker modelWarmthTracker,
+                                               MeterRegistry meterRegistry) {
+        return new OllamaModelWarmer(ollamaClient, promptTemplateMapper, properties, modelWarmthTracker, meterRegistry);
     }
 
     @Bean
     @ConditionalOnProperty(prefix = "healthai.llm.http", name = "enabled", havingValue = "true")
-    public LlmClient httpApiClient(LlmProperties properties) {
+    public LlmClient httpApiClient(LlmProperties properties, ObjectMapper objectMapper, CloseableHttpClient llmHttpClient,
+                                   LlmRetryPolicy llmRetryPolicy, MeterRegistry meterRegistry) {
         LlmProperties.HttpApiProperties config = properties.getHttp();
         RestClient.Builder builder = RestClient.builder()
             .baseUrl(config.getBaseUrl())
-            .requestFactory(createRequestFactory(config.getTimeout().toMillis()));
+            .requestFactory(createRequestFactory(llmHttpClient, properties.getPool(), config.getTimeout()));
         if (StringUtils.hasText(config.getApiKey())) {
             builder = builder.defaultHeader("Authorization", "Bearer " + config.getApiKey());
         }
         RestClient restClient = builder.build();
-        return new HttpApiLlmClient(restClient, config);
+        return new HttpApiLlmClient(restClient, config, objectMapper, llmRetryPolicy, meterRegistry);
     }
 
-    private SimpleClientHttpRequestFactory createRequestFactory(long timeoutMs) {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        int timeout = (int) timeoutMs;
-        factory.setReadTimeout(timeout);
-        factory.setConnectTimeout(timeout);
+    /**
+     * 连接池共享，读超时按渠道区分：通过每次请求的 HttpContext 下发渠道自己的 RequestConfig。
+     * 创建的请求登记到当前线程的 {@link LlmCallCancellation}，对冲落败时可以直接 abort。
+     */
+    private HttpComponentsClientHttpRequestFactory createRequestFactory(CloseableHttpClient httpClient,
+                                                                        LlmProperties.PoolProperties pool,
+                                                                        Duration readTimeout) {
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.of(pool.getConnectionRequestTimeout()))
+            .setResponseTimeout(Timeout.of(readTimeout))
+            .build();
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient) {
+            @Override
+            protected void postProcessHttpRequest(ClassicHttpRequest request) {
+                if (request instanceof Cancellable cancellable) {
+                    LlmCallCancellation.register(cancellable);
+                }
+            }
+        };
+        factory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(requestConfig);
+            return context;
+        });
         return factory;
     }
 }
@@ -0,0 +1,207 @@
+package com.example.healthai.consult.cache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import com.example.healthai.common.cache.CacheEvictionBroadcaster;
+import com.example.healthai.consult.config.ConsultationCacheProperties;
+import com.example.healthai.consult.dto.ConsultationDetailResponse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 问诊详情读模型的两级缓存：本地 Caffeine + Redis，按问诊 id 缓存 {@link ConsultationDetailResponse}。
+ * 患者等待 AI 分诊时轮询详情，命中后不再查询问诊与消息表；访问权限由调用方基于缓存中的 userId/doctorId 校验。
+ * 问诊状态变更、领取与新增消息时调用 {@link #evict(Long)}，经 {@link CacheEvictionBroadcaster} 在事务提交后失效各节点。
+ * <p>
+ * Redis 中每个问诊另有一个版本键，失效时递增。回源前先读版本，写回时由 Lua 脚本比较版本，期间任何节点失效过就放弃写入；
+ * 否则其他节点在本节点加载之后、写回之前提交的变更会被旧快照覆盖，所有节点都读到旧数据直到 redis-ttl 到期。
+ */
+@Component
+public class ConsultationDetailCache {
+
+    static final String CACHE_NAME = "consultation-detail";
+
+    /**
+     * KEYS[1] 数据键，KEYS[2] 版本键；ARGV[1] 回源前读到的版本，ARGV[2] 数据，ARGV[3] 过期毫秒数。
+     */
+    static final RedisScript<Long> WRITE_IF_UNCHANGED = new DefaultRedisScript<>(
+        "local current = redis.call('GET', KEYS[2]) or '0'\n"
+            + "if current ~= ARGV[1] then return 0 end\n"
+            + "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])\n"
+            + "return 1",
+        Long.class);
+
+    private static final Logger log = LoggerFactory.getLogger(ConsultationDetailCache.class);
+    private static final String METRIC_NAME = "healthai.consultation.detail.cache";
+    private static final String VERSION_SUFFIX = ":version";
+    private static final String NO_VERSION = "0";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final CacheEvictionBroadcaster broadcaster;
+    private final ConsultationCacheProperties properties;
+    private final Cache<Long, ConsultationDetailResponse> localCache;
+    /**
+     * 每次失效递增。加载期间本节点发生过失效时不回填，避免把提交前读到的旧快照写回缓存；其他节点的失效由 Redis 版本键识别。
+     */
+    private final AtomicLong evictions = new AtomicLong();
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    public ConsultationDetailCache(StringRedisTemplate redisTemplate,
+                                   ObjectMapper objectMapper,
+                                   CacheEvictionBroadcaster broadcaster,
+                                   ConsultationCacheProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.broadcaster = broadcaster;
+        this.properties = properties;
+        this.localCache = Caffeine.newBuilder()
+            .maximumSize(properties.getLocalMaximumSize())
+            .expireAfterWrite(properties.getLocalTtl())
+            .build();
+        this.localHits = hitCounter(meterRegistry, "hit", "local");
+        this.redisHits = hitCounter(meterRegistry, "hit", "redis");
+        this.misses = hitCounter(meterRegistry, "miss", "none");
+        // 每个节点收到广播都会删除一次 Redis 键，删除是幂等的，未开启广播时也能保证本节点写入后 Redis 失效
+        broadcaster.register(CACHE_NAME, key -> evictLocally(Long.valueOf(key)));
+    }
+
+    public ConsultationDetailResponse get(Long id, Supplier<ConsultationDetailResponse> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+        ConsultationDetailResponse cached = localCache.getIfPresent(id);
+        if (cached != null) {
+            localHits.increment();
+            return cached;
+        }
+        long generation = evictions.get();
+        RemoteEntry remote = readRemote(id);
+        if (remote.detail() != null) {
+            redisHits.increment();
+            if (evictions.get() == generation) {
+                localCache.put(id, remote.detail());
+            }
+            return remote.detail();
+        }
+        misses.increment();
+        ConsultationDetailResponse loaded = loader.get();
+        if (loaded != null && evictions.get() == generation && writeRemote(id, remote.version(), loaded)) {
+            localCache.put(id, loaded);
+        }
+        return loaded;
+    }
+
+    public void evict(Long id) {
+        if (id != null && properties.isEnabled()) {
+            broadcaster.evict(CACHE_NAME, id.toString());
+        }
+    }
+
+    private void evictLocally(Long id) {
+        evictions.incrementAndGet();
+        localCache.invalidate(id);
+        if (!properties.isRedisEnabled()) {
+            return;
+        }
+        try {
+            // 先递增版本再删数据：递增之前开始的回源写回会被拒绝，之后开始的回源读到的已是提交后的数据
+            String versionKey = versionKey(id);
+            redisTemplate.opsForValue().increment(versionKey);
+            redisTemplate.expire(versionKey, properties.getRedisTtl());
+            redisTemplate.delete(dataKey(id));
+        } catch (RuntimeException e) {
+            log.warn("删除 Redis 问诊详情缓存失败, consultationId={}", id, e);
+        }
+    }
+
+    /**
+     * 一次往返读出数据与版本；Redis 未启用或读取失败时版本为 null，此时只回填本地缓存。
+     */
+    private RemoteEntry readRemote(Long id) {
+        if (!properties.isRedisEnabled()) {
+            return RemoteEntry.NONE;
+        }
+        List<String> values;
+        try {
+            values = redisTemplate.opsForValue().multiGet(Arrays.asList(dataKey(id), versionKey(id)));
+        } catch (RuntimeException e) {
+            log.warn("读取 Redis 问诊详情缓存失败, consultationId={}", id, e);
+            return RemoteEntry.NONE;
+        }
+        if (values == null || values.size() < 2) {
+            return RemoteEntry.NONE;
+        }
+        String version = values.get(1) == null ? NO_VERSION : values.get(1);
+        String json = values.get(0);
+        if (json == null) {
+            return new RemoteEntry(null, version);
+        }
+        try {
+            return new RemoteEntry(objectMapper.readValue(json, ConsultationDetailResponse.class), version);
+        } catch (JsonProcessingException e) {
+            log.warn("问诊详情缓存反序列化失败, consultationId={}", id, e);
+            return new RemoteEntry(null, version);
+        }
+    }
+
+    /**
+     * @return 是否回填本地缓存：Redis 未启用或未读到版本时为 true；版本已变或写入失败时为 false
+     */
+    private boolean writeRemote(Long id, String version, ConsultationDetailResponse detail) {
+        if (!properties.isRedisEnabled() || version == null) {
+            return true;
+        }
+        try {
+            Long written = redisTemplate.execute(WRITE_IF_UNCHANGED, List.of(dataKey(id), versionKey(id)), version,
+                objectMapper.writeValueAsString(detail), String.valueOf(properties.getRedisTtl().toMillis()));
+            return written != null && written == 1L;
+        } catch (JsonProcessingException e) {
+            log.warn("问诊详情缓存序列化失败, consultationId={}", id, e);
+            return false;
+        } catch (RuntimeException e) {
+            log.warn("写入 Redis 问诊详情缓存失败, consultationId={}", id, e);
+            return false;
+        }
+    }
+
+    private String dataKey(Long id) {
+        return properties.getKeyPrefix() + id;
+    }
+
+    private String versionKey(Long id) {
+        return properties.getKeyPrefix() + id + VERSION_SUFFIX;
+    }
+
+    private static Counter hitCounter(MeterRegistry registry, String result, String tier) {
+        return Counter.builder(METRIC_NAME)
+            .description("问诊详情缓存命中情况")
+            .tag("result", result)
+            .tag("tier", tier)
+            .register(registry);
+    }
+
+    private record RemoteEntry(ConsultationDetailResponse detail, String version) {
+
+        static final RemoteEntry NONE = new RemoteEntry(null, null);
+    }
+}
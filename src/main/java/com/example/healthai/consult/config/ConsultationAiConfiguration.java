@@ -0,0 +1,35 @@
+package com.example.healthai.consult.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.example.healthai.consult.service.ConsultationService;
+import com.example.healthai.consult.service.ConsultationTriageSweeper;
+
+@Configuration
+@EnableConfigurationProperties({ConsultationAiProperties.class, ConsultationCacheProperties.class})
+public class ConsultationAiConfiguration {
+
+    @Bean
+    public ThreadPoolTaskExecutor consultationAiExecutor(ConsultationAiProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("consult-ai-");
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(Math.max(properties.getCorePoolSize(), properties.getMaxPoolSize()));
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "healthai.consultation.ai", name = "draft-sweep-enabled", havingValue = "true",
+        matchIfMissing = true)
+    public ConsultationTriageSweeper consultationTriageSweeper(ConsultationService consultationService,
+                                                               ConsultationAiProperties properties) {
+        return new ConsultationTriageSweeper(consultationService, properties);
+    }
+}
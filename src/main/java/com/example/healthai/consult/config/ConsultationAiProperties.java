@@ -0,0 +1,61 @@
+package com.example.healthai.consult.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "healthai.consultation.ai")
+public class ConsultationAiProperties {
+
+    /**
+     * 异步模式下 create() 仅提交 DRAFT 问诊并返回 202，AI 分诊在独立线程池中执行。
+     */
+    private boolean asyncEnabled = false;
+
+    /**
+     * 线程池规模应明显小于 Hikari 连接池，避免慢推理占满数据库连接。
+     */
+    private int corePoolSize = 4;
+    private int maxPoolSize = 4;
+    private int queueCapacity = 200;
+
+    /**
+     * SSE 流式问诊连接的最长保持时间。
+     */
+    private Duration streamTimeout = Duration.ofSeconds(120);
+
+    /**
+     * 追问使用的提示词模板，可用变量：history（对话历史，续接 context 时为空）、message（本轮追问）以及患者信息。
+     */
+    private String followUpTemplateCode = "consult.followup";
+
+    /**
+     * 无法续接 context 时拼接历史对话的 token 上限，超出后保留首轮问答并按时间倒序截取最近的对话。
+     */
+    private int historyTokenBudget = 2048;
+
+    /**
+     * 模型 context 的保留时长，过期后下一次追问回退到拼接历史。
+     */
+    private Duration contextTtl = Duration.ofHours(2);
+
+    /**
+     * 分诊任务只保存在内存线程池中，进程崩溃、发布或停机超过等待时间后问诊会停留在 DRAFT。
+     * 超过该时长仍为 DRAFT 的问诊由后台任务标记为 FAILED，须大于模型超时、重试与排队时间之和。
+     */
+    private Duration draftTimeout = Duration.ofMinutes(10);
+
+    private boolean draftSweepEnabled = true;
+
+    private Duration draftSweepInterval = Duration.ofMinutes(1);
+
+    /**
+     * 单次最多标记的问诊数。
+     */
+    private int draftSweepBatchSize = 100;
+}
@@ -0,0 +1,32 @@
+package com.example.healthai.consult.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "healthai.consultation.detail-cache")
+public class ConsultationCacheProperties {
+
+    /**
+     * 是否缓存问诊详情读模型。问诊状态变更与新增消息时主动失效，TTL 仅用于兜底。
+     */
+    private boolean enabled = true;
+
+    private int localMaximumSize = 10_000;
+
+    /**
+     * 本地缓存保留时长，跨节点失效依赖缓存广播，未开启广播时以此限制其他节点读到旧数据的时间。
+     */
+    private Duration localTtl = Duration.ofSeconds(30);
+
+    private boolean redisEnabled = true;
+
+    private Duration redisTtl = Duration.ofMinutes(10);
+
+    private String keyPrefix = "healthai:consult:detail:";
+}
@@ -1,23 +1,98 @@
 package com.example.healthai.consult.config;
 
-import org.apache.kafka.clients.producer.ProducerConfig;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.backoff.FixedBackOff;
 
+import com.example.healthai.consult.event.ConsultationEventOutbox;
 import com.example.healthai.consult.event.ConsultationEventPayload;
+import com.example.healthai.consult.event.ConsultationEventSerializer;
+import com.example.healthai.consult.event.ConsultationOutboxRelay;
+import com.example.healthai.consult.mapper.ConsultationOutboxMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 @EnableConfigurationProperties(ConsultationKafkaProperties.class)
 public class ConsultationKafkaConfiguration {
 
+    private static final Logger log = LoggerFactory.getLogger(ConsultationKafkaConfiguration.class);
+
+    /**
+     * 把 avro-enabled 传给 {@link ConsultationEventSerializer}，序列化器由 Kafka 客户端按类名实例化，只能经生产者配置拿到开关。
+     */
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer consultationEventFormatCustomizer(ConsultationKafkaProperties kafkaProperties) {
+        return producerFactory -> producerFactory.updateConfigs(
+            Map.of(ConsultationEventSerializer.AVRO_ENABLED_CONFIG, kafkaProperties.isAvroEnabled()));
+    }
+
     @Bean
     @ConditionalOnBean(ProducerFactory.class)
     public KafkaTemplate<String, ConsultationEventPayload> consultationKafkaTemplate(
             ProducerFactory<String, ConsultationEventPayload> producerFactory) {
         return new KafkaTemplate<>(producerFactory);
     }
+
+    /**
+     * 与 {@link ConsultationEventOutbox} 一致，以 ObjectProvider 判断是否配置了 Kafka，未配置时中继不启动。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ConsultationOutboxRelay consultationOutboxRelay(ConsultationOutboxMapper outboxMapper,
+                                                           ObjectProvider<KafkaTemplate<String, ConsultationEventPayload>> kafkaTemplate,
+                                                           ObjectMapper objectMapper,
+                                                           TransactionTemplate transactionTemplate,
+                                                           ConsultationKafkaProperties kafkaProperties,
+                                                           MeterRegistry meterRegistry) {
+        return new ConsultationOutboxRelay(outboxMapper, kafkaTemplate.getIfAvailable(), objectMapper, transactionTemplate, kafkaProperties,
+            meterRegistry);
+    }
+
+    /**
+     * 问诊事件的批量监听容器：多个消费线程分摊分区，整批处理成功后提交偏移量。
+     * 监听器以 BatchListenerFailedException 指出失败记录的下标，错误处理器提交其之前的偏移量，
+     * 从该条起按固定间隔重试，重试耗尽后记录日志并只跳过这一条，避免一条坏消息阻塞分区或整批重放。
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "healthai.kafka.consultation", name = "consumer-enabled", havingValue = "true")
+    public ConcurrentKafkaListenerContainerFactory<String, ConsultationEventPayload> consultationEventListenerContainerFactory(
+            ConsumerFactory<String, ConsultationEventPayload> consumerFactory,
+            ConsultationKafkaProperties kafkaProperties) {
+        ConsultationKafkaProperties.ListenerProperties listener = kafkaProperties.getListener();
+        ConcurrentKafkaListenerContainerFactory<String, ConsultationEventPayload> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(listener.getConcurrency());
+        ContainerProperties containerProperties = factory.getContainerProperties();
+        containerProperties.setAckMode(ContainerProperties.AckMode.BATCH);
+        containerProperties.setMicrometerEnabled(true);
+        Properties consumerProperties = new Properties();
+        consumerProperties.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(listener.getMaxPollRecords()));
+        containerProperties.setKafkaConsumerProperties(consumerProperties);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(
+            (record, ex) -> log.error("问诊事件处理重试耗尽，已跳过 topic={} partition={} offset={}",
+                record.topic(), record.partition(), record.offset(), ex),
+            new FixedBackOff(listener.getRetryInterval().toMillis(), listener.getRetryAttempts())));
+        return factory;
+    }
 }
@@ -1,5 +1,7 @@
 package com.example.healthai.consult.config;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import lombok.Getter;
@@ -16,4 +18,79 @@ public class ConsultationKafkaProperties {
     private String closedTopic = "healthai.consultations.closed";
     private String failedTopic = "healthai.consultations.failed";
     private boolean consumerEnabled = false;
+
+    /**
+     * 生产端是否以 Avro 编码事件，默认写 JSON。须分两步上线：先让所有消费者部署能同时解析两种格式的版本，
+     * 确认旧版本消费者全部下线后再开启，见 docs/runbooks/consultation-event-avro-rollout.md。
+     */
+    private boolean avroEnabled = false;
+
+    /**
+     * 精简事件：不携带症状描述、AI 诊断与医生意见全文，仅保留标识、状态与 detailUrl，消费方需要全文时回查详情接口。
+     */
+    private boolean thinEvents = false;
+
+    /**
+     * 事件中 detailUrl 的模板，{id} 替换为问诊 id。
+     */
+    private String detailUrlTemplate = "/api/v1/consultations/{id}";
+    private OutboxProperties outbox = new OutboxProperties();
+    private ListenerProperties listener = new ListenerProperties();
+
+    @Getter
+    @Setter
+    public static class OutboxProperties {
+
+        /**
+         * 是否在本实例运行发件箱中继。多实例都开启时以数据库锁互斥，同一时刻只有一个实例在投递。
+         */
+        private boolean relayEnabled = true;
+
+        /**
+         * 上一批未取满时的轮询间隔；取满时立即拉取下一批。
+         */
+        private Duration pollInterval = Duration.ofMillis(200);
+
+        private int batchSize = 200;
+
+        /**
+         * 等待一批事件全部确认的最长时间，超时未确认的事件留在发件箱等待下次投递。
+         */
+        private Duration sendTimeout = Duration.ofSeconds(10);
+
+        /**
+         * 投递失败后的首次重试间隔，此后每次失败翻倍，不超过 maxRetryBackoff。
+         */
+        private Duration retryBackoff = Duration.ofSeconds(1);
+        private Duration maxRetryBackoff = Duration.ofMinutes(5);
+
+        /**
+         * 累计投递失败达到该次数后搁置事件，不再自动重试。
+         */
+        private int maxAttempts = 10;
+    }
+
+    @Getter
+    @Setter
+    public static class ListenerProperties {
+
+        /**
+         * 监听容器的消费线程数，每个线程独占一部分分区（五个主题的分区合计分配）；超过分区总数的线程会空闲。
+         */
+        private int concurrency = 3;
+
+        private int maxPollRecords = 200;
+
+        /**
+         * 某条事件处理失败后从该条起重试的次数与间隔，重试耗尽后记录日志并只跳过这一条。
+         */
+        private int retryAttempts = 2;
+        private Duration retryInterval = Duration.ofSeconds(1);
+
+        /**
+         * 按事件 id 去重的时间窗口与容量，应覆盖中继重发与错误处理器重试的最长间隔。
+         */
+        private Duration dedupeWindow = Duration.ofHours(1);
+        private int dedupeMaxSize = 100_000;
+    }
 }
@@ -0,0 +1,22 @@
+package com.example.healthai.consult.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.healthai.consult.service.ConsultationClaimReaper;
+import com.example.healthai.consult.service.ConsultationService;
+
+@Configuration
+@EnableConfigurationProperties(ConsultationQueueProperties.class)
+public class ConsultationQueueConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "healthai.consultation.queue", name = "requeue-enabled", havingValue = "true",
+        matchIfMissing = true)
+    public ConsultationClaimReaper consultationClaimReaper(ConsultationService consultationService,
+                                                           ConsultationQueueProperties properties) {
+        return new ConsultationClaimReaper(consultationService, properties);
+    }
+}
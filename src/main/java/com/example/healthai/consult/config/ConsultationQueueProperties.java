@@ -0,0 +1,31 @@
+package com.example.healthai.consult.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "healthai.consultation.queue")
+public class ConsultationQueueProperties {
+
+    /**
+     * 医生领取问诊后的租约时长，到期仍未复核的问诊退回队列供其他医生领取。
+     */
+    private Duration leaseDuration = Duration.ofMinutes(30);
+
+    /**
+     * 单次最多领取的问诊数。
+     */
+    private int maxClaimSize = 20;
+
+    /**
+     * 是否由后台任务定期退回租约过期的问诊。
+     */
+    private boolean requeueEnabled = true;
+
+    private Duration requeueInterval = Duration.ofMinutes(1);
+}
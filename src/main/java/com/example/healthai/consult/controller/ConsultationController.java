@@ -1,13 +1,19 @@
 package com.example.healthai.consult.controller;
 
 import com.example.healthai.common.api.ApiResponse;
+import com.example.healthai.consult.config.ConsultationAiProperties;
+import com.example.healthai.consult.domain.ConsultationStatus;
+import com.example.healthai.consult.dto.ConsultationClaimResponse;
 import com.example.healthai.consult.dto.ConsultationCreateRequest;
 import com.example.healthai.consult.dto.ConsultationDetailResponse;
+import com.example.healthai.consult.dto.ConsultationFollowUpRequest;
 import com.example.healthai.consult.dto.ConsultationListResponse;
 import com.example.healthai.consult.dto.ConsultationReviewRequest;
 import com.example.healthai.consult.service.ConsultationService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -15,32 +21,59 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/v1/consultations")
 public class ConsultationController {
 
     private final ConsultationService consultationService;
+    private final ConsultationAiProperties aiProperties;
 
-    public ConsultationController(ConsultationService consultationService) {
+    public ConsultationController(ConsultationService consultationService, ConsultationAiProperties aiProperties) {
         this.consultationService = consultationService;
+        this.aiProperties = aiProperties;
     }
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public ApiResponse<ConsultationDetailResponse> create(@Valid @RequestBody ConsultationCreateRequest request,
-                                                          Authentication authentication) {
-        return ApiResponse.success(consultationService.create(authentication.getName(), request));
+    public ResponseEntity<ApiResponse<ConsultationDetailResponse>> create(@Valid @RequestBody ConsultationCreateRequest request,
+                                                                          Authentication authentication) {
+        ConsultationDetailResponse response = consultationService.create(authentication.getName(), request);
+        HttpStatus status = ConsultationStatus.DRAFT.name().equals(response.status())
+            ? HttpStatus.ACCEPTED
+            : HttpStatus.CREATED;
+        return ResponseEntity.status(status).body(ApiResponse.success(response));
+    }
+
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter createStreaming(@Valid @RequestBody ConsultationCreateRequest request,
+                                      Authentication authentication) {
+        SseEmitter emitter = new SseEmitter(aiProperties.getStreamTimeout().toMillis());
+        consultationService.createStreaming(authentication.getName(), request, emitter);
+        return emitter;
     }
 
     @GetMapping
     public ApiResponse<ConsultationListResponse> list(@RequestParam(required = false) String status,
                                                       @RequestParam(defaultValue = "0") int page,
                                                       @RequestParam(defaultValue = "20") int size,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "true") boolean includeTotal,
                                                       Authentication authentication) {
-        return ApiResponse.success(consultationService.list(authentication.getName(), status, page, size));
+        return ApiResponse.success(consultationService.list(authentication.getName(), status, page, size, cursor, includeTotal));
+    }
+
+    @PostMapping("/queue/claim")
+    public ApiResponse<ConsultationClaimResponse> claim(@RequestParam(defaultValue = "1") int limit,
+                                                        Authentication authentication) {
+        return ApiResponse.success(consultationService.claim(authentication.getName(), limit));
+    }
+
+    @PostMapping("/{id}/release")
+    public ApiResponse<Void> release(@PathVariable Long id, Authentication authentication) {
+        consultationService.release(authentication.getName(), id);
+        return ApiResponse.success(null);
     }
 
     @GetMapping("/{id}")
@@ -48,6 +81,13 @@ public class ConsultationController {
         return ApiResponse.success(consultationService.detail(authentication.getName(), id));
     }
 
+    @PostMapping("/{id}/messages")
+    public ApiResponse<ConsultationDetailResponse> followUp(@PathVariable Long id,
+                                                            @Valid @RequestBody ConsultationFollowUpRequest request,
+                                                            Authentication authentication) {
+        return ApiResponse.success(consultationService.followUp(authentication.getName(), id, request));
+    }
+
     @PostMapping("/{id}/review")
     public ApiResponse<ConsultationDetailResponse> review(@PathVariable Long id,
                                                           @Valid @RequestBody ConsultationReviewRequest request,
@@ -28,4 +28,5 @@ public class Consultation extends BaseEntity {
     private Integer aiLatencyMs;
     private String aiErrorCode;
     private LocalDateTime closedAt;
+    private LocalDateTime claimExpiresAt;
 }
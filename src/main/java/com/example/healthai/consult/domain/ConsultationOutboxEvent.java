@@ -0,0 +1,28 @@
+package com.example.healthai.consult.domain;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsultationOutboxEvent {
+
+    private Long id;
+    private Long consultationId;
+    private String topic;
+    private String eventType;
+    private String payload;
+    private Integer attempts;
+    private String lastError;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime parkedAt;
+    private LocalDateTime createdAt;
+}
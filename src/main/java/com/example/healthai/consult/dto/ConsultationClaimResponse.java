@@ -0,0 +1,13 @@
+package com.example.healthai.consult.dto;
+
+import java.util.List;
+
+/**
+ * @param items          本次领取到的问诊，队列为空时为空列表
+ * @param leaseExpiresAt 租约到期时间，到期前未复核的问诊会被退回队列
+ */
+public record ConsultationClaimResponse(
+        List<ConsultationListResponse.ConsultationSummary> items,
+        String leaseExpiresAt
+) {
+}
@@ -0,0 +1,12 @@
+package com.example.healthai.consult.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public record ConsultationFollowUpRequest(
+        @NotBlank(message = "追问内容不能为空")
+        @Size(max = 4000, message = "追问内容长度不能超过 4000 字符")
+        String content,
+        String templateCode
+) {
+}
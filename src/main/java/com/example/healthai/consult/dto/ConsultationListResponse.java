@@ -2,11 +2,16 @@ package com.example.healthai.consult.dto;
 
 import java.util.List;
 
+/**
+ * @param total      未要求统计总数时为 null
+ * @param nextCursor 下一页的键集分页游标，没有更多数据时为 null
+ */
 public record ConsultationListResponse(
         List<ConsultationSummary> items,
-        long total,
+        Long total,
         int page,
-        int size
+        int size,
+        String nextCursor
 ) {
 
     public record ConsultationSummary(
@@ -0,0 +1,96 @@
+package com.example.healthai.consult.event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+
+/**
+ * 问诊事件的 Avro 二进制编码：1 字节魔数 + 4 字节 schema 版本 + Avro 数据。
+ * 解码时以消息头中的版本为写入 schema、当前版本为读取 schema，由 Avro schema 解析补齐新增字段的默认值。
+ */
+public final class ConsultationEventCodec {
+
+    public static final byte MAGIC_BYTE = 0x0;
+    static final int HEADER_LENGTH = 5;
+
+    private ConsultationEventCodec() {
+    }
+
+    public static byte[] encode(ConsultationEventPayload payload) {
+        Schema schema = ConsultationEventSchemas.current();
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("consultationId", payload.consultationId());
+        record.put("patientId", payload.patientId());
+        record.put("doctorId", payload.doctorId());
+        record.put("status", payload.status());
+        record.put("eventType", payload.eventType());
+        record.put("summary", payload.summary());
+        record.put("aiDiagnosis", payload.aiDiagnosis());
+        record.put("doctorOpinion", payload.doctorOpinion());
+        record.put("aiModel", payload.aiModel());
+        record.put("aiLatencyMs", payload.aiLatencyMs());
+        record.put("aiErrorCode", payload.aiErrorCode());
+        record.put("occurredAt", payload.occurredAt());
+        record.put("detailUrl", payload.detailUrl());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write(MAGIC_BYTE);
+        out.writeBytes(ByteBuffer.allocate(4).putInt(ConsultationEventSchemas.CURRENT_VERSION).array());
+        try {
+            BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+            new GenericDatumWriter<GenericRecord>(schema).write(record, encoder);
+            encoder.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("问诊事件编码失败", e);
+        }
+        return out.toByteArray();
+    }
+
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length >= HEADER_LENGTH && data[0] == MAGIC_BYTE;
+    }
+
+    public static ConsultationEventPayload decode(byte[] data) {
+        if (!isEncoded(data)) {
+            throw new IllegalArgumentException("不是 Avro 编码的问诊事件");
+        }
+        int version = ByteBuffer.wrap(data, 1, 4).getInt();
+        GenericDatumReader<GenericRecord> reader =
+            new GenericDatumReader<>(ConsultationEventSchemas.schema(version), ConsultationEventSchemas.current());
+        GenericRecord record;
+        try {
+            record = reader.read(null,
+                DecoderFactory.get().binaryDecoder(data, HEADER_LENGTH, data.length - HEADER_LENGTH, null));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("问诊事件解码失败, schemaVersion=" + version, e);
+        }
+        return new ConsultationEventPayload(
+            (Long) record.get("consultationId"),
+            (Long) record.get("patientId"),
+            (Long) record.get("doctorId"),
+            string(record, "status"),
+            string(record, "eventType"),
+            string(record, "summary"),
+            string(record, "aiDiagnosis"),
+            string(record, "doctorOpinion"),
+            string(record, "aiModel"),
+            (Integer) record.get("aiLatencyMs"),
+            string(record, "aiErrorCode"),
+            string(record, "occurredAt"),
+            string(record, "detailUrl"));
+    }
+
+    private static String string(GenericRecord record, String field) {
+        Object value = record.get(field);
+        return value == null ? null : value.toString();
+    }
+}
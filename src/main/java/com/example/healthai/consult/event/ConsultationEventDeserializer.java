@@ -0,0 +1,33 @@
+package com.example.healthai.consult.event;
+
+import java.io.IOException;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 同时兼容 Avro 编码与切换前写入的 JSON 事件，滚动升级期间及旧消息回放时无需区分主题中的消息格式。
+ */
+public class ConsultationEventDeserializer implements Deserializer<ConsultationEventPayload> {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Override
+    public ConsultationEventPayload deserialize(String topic, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        try {
+            if (ConsultationEventCodec.isEncoded(data)) {
+                return ConsultationEventCodec.decode(data);
+            }
+            return objectMapper.readValue(data, ConsultationEventPayload.class);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("问诊事件反序列化失败, topic=" + topic, e);
+        }
+    }
+}
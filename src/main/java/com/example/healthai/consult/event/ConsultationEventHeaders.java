@@ -0,0 +1,15 @@
+package com.example.healthai.consult.event;
+
+/**
+ * 问诊事件的 Kafka 消息头。
+ */
+public final class ConsultationEventHeaders {
+
+    /**
+     * 事件唯一标识，取发件箱行 id 的十进制字符串；中继重发同一行时保持不变，消费端据此去重。
+     */
+    public static final String EVENT_ID = "healthai-event-id";
+
+    private ConsultationEventHeaders() {
+    }
+}
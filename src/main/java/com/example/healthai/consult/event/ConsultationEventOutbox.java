@@ -0,0 +1,54 @@
+package com.example.healthai.consult.event;
+
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.consult.domain.ConsultationOutboxEvent;
+import com.example.healthai.consult.mapper.ConsultationOutboxMapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 将问诊领域事件写入发件箱表，须在业务事务内调用：事务回滚时事件一并丢弃，提交后由 {@link ConsultationOutboxRelay} 投递。
+ * 未配置 Kafka 时不写入，避免发件箱无人消费而持续增长。
+ */
+@Component
+public class ConsultationEventOutbox {
+
+    private final ConsultationOutboxMapper outboxMapper;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public ConsultationEventOutbox(ConsultationOutboxMapper outboxMapper,
+                                   ObjectMapper objectMapper,
+                                   ObjectProvider<KafkaTemplate<String, ConsultationEventPayload>> kafkaTemplateProvider) {
+        this.outboxMapper = outboxMapper;
+        this.objectMapper = objectMapper;
+        this.enabled = kafkaTemplateProvider.getIfAvailable() != null;
+    }
+
+    public void enqueue(String topic, ConsultationEventPayload payload) {
+        if (!enabled) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.INTERNAL_ERROR, "问诊事件序列化失败", e);
+        }
+        outboxMapper.insert(ConsultationOutboxEvent.builder()
+            .consultationId(payload.consultationId())
+            .topic(topic)
+            .eventType(payload.eventType())
+            .payload(json)
+            .createdAt(LocalDateTime.now())
+            .build());
+    }
+}
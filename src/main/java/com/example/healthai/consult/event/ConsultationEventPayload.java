@@ -2,6 +2,12 @@ package com.example.healthai.consult.event;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 
+/**
+ * 问诊领域事件。精简事件模式下不携带 summary / aiDiagnosis / doctorOpinion 全文，消费方按 detailUrl 回查详情。
+ * Kafka 上以 {@link ConsultationEventSerializer} 编码，字段增减须同步新增 avro/consultation-event 下的 schema 版本。
+ *
+ * @param detailUrl 问诊详情接口地址，schema v2 起提供
+ */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record ConsultationEventPayload(
         Long consultationId,
@@ -15,6 +21,7 @@ public record ConsultationEventPayload(
         String aiModel,
         Integer aiLatencyMs,
         String aiErrorCode,
-        String occurredAt
+        String occurredAt,
+        String detailUrl
 ) {
 }
@@ -0,0 +1,46 @@
+package com.example.healthai.consult.event;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.avro.Schema;
+
+/**
+ * 基于类路径文件的问诊事件 schema 仓库：版本 n 对应 {@code avro/consultation-event/v<n>.avsc}。
+ * 已发布的版本只增不改，新增字段必须带默认值，保证新版本读取器能解析旧版本写入的事件。
+ */
+public final class ConsultationEventSchemas {
+
+    public static final int CURRENT_VERSION = 2;
+
+    private static final String LOCATION = "avro/consultation-event/v%d.avsc";
+    private static final Map<Integer, Schema> SCHEMAS = new ConcurrentHashMap<>();
+
+    private ConsultationEventSchemas() {
+    }
+
+    public static Schema current() {
+        return schema(CURRENT_VERSION);
+    }
+
+    public static Schema schema(int version) {
+        if (version < 1 || version > CURRENT_VERSION) {
+            throw new IllegalArgumentException("未知的问诊事件 schema 版本: " + version);
+        }
+        return SCHEMAS.computeIfAbsent(version, ConsultationEventSchemas::load);
+    }
+
+    private static Schema load(int version) {
+        String location = String.format(LOCATION, version);
+        try (InputStream in = ConsultationEventSchemas.class.getClassLoader().getResourceAsStream(location)) {
+            if (in == null) {
+                throw new IllegalStateException("缺少问诊事件 schema 文件: " + location);
+            }
+            return new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("读取问诊事件 schema 失败: " + location, e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.healthai.consult.event;
+
+import java.util.Map;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 默认仍写 JSON，与升级前的消费者兼容；{@link #AVRO_ENABLED_CONFIG} 为 true 时改写 Avro。
+ * 必须等所有消费者都换上 {@link ConsultationEventDeserializer} 后再开启，否则旧消费者无法解析。
+ */
+public class ConsultationEventSerializer implements Serializer<ConsultationEventPayload> {
+
+    /**
+     * 生产者配置项，由 healthai.kafka.consultation.avro-enabled 注入。
+     */
+    public static final String AVRO_ENABLED_CONFIG = "healthai.consultation.avro.enabled";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private boolean avroEnabled;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object value = configs.get(AVRO_ENABLED_CONFIG);
+        avroEnabled = value instanceof Boolean enabled ? enabled : Boolean.parseBoolean(String.valueOf(value));
+    }
+
+    @Override
+    public byte[] serialize(String topic, ConsultationEventPayload data) {
+        if (data == null) {
+            return null;
+        }
+        if (avroEnabled) {
+            return ConsultationEventCodec.encode(data);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("问诊事件序列化失败, topic=" + topic, e);
+        }
+    }
+}
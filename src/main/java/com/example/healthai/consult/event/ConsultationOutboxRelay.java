@@ -0,0 +1,232 @@
+package com.example.healthai.consult.event;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.healthai.consult.config.ConsultationKafkaProperties;
+import com.example.healthai.consult.domain.ConsultationOutboxEvent;
+import com.example.healthai.consult.mapper.ConsultationOutboxMapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 发件箱中继：按写入顺序批量取出待投递事件，一次性交给生产者发送后统一等待确认，确认成功的行随事务删除。
+ * 投递语义为至少一次——确认前宕机或超时的事件会在下一批重发，由幂等生产者消除重试产生的重复，
+ * 消费端按消息头 {@link ConsultationEventHeaders#EVENT_ID}（即发件箱行 id）去重。
+ * <p>
+ * 每批先在同一事务中抢占 consultation_outbox_lock 行锁，多实例部署时同一时刻只有一个中继投递，不会因并行批次打乱写入顺序。
+ * 投递失败的事件按指数退避延后重试，期间同一问诊的后续事件照常投递，因此顺序只在没有失败重试时成立，
+ * 消费端应以事件时间为准；失败次数达到上限的事件被搁置，不再占用批次，需人工排查后重置。
+ */
+public class ConsultationOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsultationOutboxRelay.class);
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    private final ConsultationOutboxMapper outboxMapper;
+    /**
+     * 未配置 Kafka 时为 null。
+     */
+    private final KafkaTemplate<String, ConsultationEventPayload> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ConsultationKafkaProperties.OutboxProperties properties;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final Counter published;
+    private final Counter failed;
+    private final Counter parked;
+    private final DistributionSummary batchSize;
+    private final Timer publishDelay;
+    private volatile double lagSeconds;
+    private volatile long parkedRows;
+
+    public ConsultationOutboxRelay(ConsultationOutboxMapper outboxMapper,
+                                   KafkaTemplate<String, ConsultationEventPayload> kafkaTemplate,
+                                   ObjectMapper objectMapper,
+                                   TransactionTemplate transactionTemplate,
+                                   ConsultationKafkaProperties kafkaProperties,
+                                   MeterRegistry meterRegistry) {
+        this.outboxMapper = outboxMapper;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = kafkaProperties.getOutbox();
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(1);
+        this.scheduler.setThreadNamePrefix("consult-outbox-");
+        this.scheduler.setDaemon(true);
+        this.scheduler.initialize();
+        this.published = meterRegistry.counter("healthai.consultation.outbox.published");
+        this.failed = meterRegistry.counter("healthai.consultation.outbox.failed");
+        this.parked = meterRegistry.counter("healthai.consultation.outbox.parked");
+        this.batchSize = DistributionSummary.builder("healthai.consultation.outbox.batch.size")
+            .description("每批从发件箱取出的事件数")
+            .serviceLevelObjectives(1, 10, 50, 100, 200, 500)
+            .register(meterRegistry);
+        this.publishDelay = Timer.builder("healthai.consultation.outbox.delay")
+            .description("事件从写入发件箱到 Kafka 确认的耗时")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        Gauge.builder("healthai.consultation.outbox.lag", this, relay -> relay.lagSeconds)
+            .description("最早一条待投递事件的积压时长")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        Gauge.builder("healthai.consultation.outbox.parked.rows", this, relay -> relay.parkedRows)
+            .description("因重试次数耗尽被搁置、等待人工处理的事件数")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (kafkaTemplate == null || !properties.isRelayEnabled()) {
+            log.info("问诊事件发件箱中继未启用");
+            return;
+        }
+        Duration interval = properties.getPollInterval();
+        scheduler.scheduleWithFixedDelay(this::drain, Instant.now().plus(interval), interval);
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    void drain() {
+        try {
+            while (relayOnce() >= properties.getBatchSize()) {
+                // 积压时连续拉取，直到某批未全部投递成功；失败的事件已退避，不会在下一轮空转重试
+            }
+            updateBacklog();
+        } catch (RuntimeException e) {
+            log.warn("问诊事件发件箱投递失败", e);
+        }
+    }
+
+    /**
+     * 投递一批事件，返回本批确认成功的事件数；其他实例持有中继锁时返回 0。
+     */
+    public int relayOnce() {
+        if (kafkaTemplate == null) {
+            return 0;
+        }
+        Integer relayed = transactionTemplate.execute(status -> {
+            if (outboxMapper.tryLockRelay() == null) {
+                return 0;
+            }
+            List<ConsultationOutboxEvent> batch = outboxMapper.findBatchForUpdate(properties.getBatchSize(), LocalDateTime.now());
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            batchSize.record(batch.size());
+            List<CompletableFuture<?>> futures = new ArrayList<>(batch.size());
+            for (ConsultationOutboxEvent event : batch) {
+                futures.add(send(event));
+            }
+            kafkaTemplate.flush();
+
+            List<Long> delivered = new ArrayList<>(batch.size());
+            long deadline = System.nanoTime() + properties.getSendTimeout().toNanos();
+            for (int i = 0; i < batch.size(); i++) {
+                ConsultationOutboxEvent event = batch.get(i);
+                try {
+                    futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    delivered.add(event.getId());
+                    published.increment();
+                    publishDelay.record(Duration.between(event.getCreatedAt(), LocalDateTime.now()));
+                } catch (ExecutionException | TimeoutException e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    markFailed(event, cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (!delivered.isEmpty()) {
+                outboxMapper.deleteByIds(delivered);
+            }
+            return delivered.size();
+        });
+        return relayed == null ? 0 : relayed;
+    }
+
+    double lagSeconds() {
+        return lagSeconds;
+    }
+
+    long parkedRows() {
+        return parkedRows;
+    }
+
+    private CompletableFuture<?> send(ConsultationOutboxEvent event) {
+        try {
+            ConsultationEventPayload payload = objectMapper.readValue(event.getPayload(), ConsultationEventPayload.class);
+            ProducerRecord<String, ConsultationEventPayload> record =
+                new ProducerRecord<>(event.getTopic(), event.getConsultationId().toString(), payload);
+            record.headers().add(ConsultationEventHeaders.EVENT_ID, event.getId().toString().getBytes(StandardCharsets.UTF_8));
+            return kafkaTemplate.send(record);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void markFailed(ConsultationOutboxEvent event, Throwable cause) {
+        failed.increment();
+        String message = cause == null ? null : String.valueOf(cause.getMessage());
+        if (message != null && message.length() > MAX_ERROR_LENGTH) {
+            message = message.substring(0, MAX_ERROR_LENGTH);
+        }
+        int attempts = (event.getAttempts() == null ? 0 : event.getAttempts()) + 1;
+        LocalDateTime now = LocalDateTime.now();
+        if (attempts >= properties.getMaxAttempts()) {
+            parked.increment();
+            outboxMapper.park(event.getId(), message, now);
+            log.error("问诊事件重试次数耗尽，已搁置 outboxId={} consultationId={} topic={} attempts={}",
+                event.getId(), event.getConsultationId(), event.getTopic(), attempts, cause);
+            return;
+        }
+        Duration backoff = retryBackoff(attempts);
+        outboxMapper.markFailed(event.getId(), message, now.plus(backoff));
+        log.warn("问诊事件投递失败 outboxId={} consultationId={} topic={} attempts={} retryIn={}",
+            event.getId(), event.getConsultationId(), event.getTopic(), attempts, backoff, cause);
+    }
+
+    /**
+     * 第 n 次失败后等待 retryBackoff * 2^(n-1)，不超过 maxRetryBackoff。
+     */
+    Duration retryBackoff(int attempts) {
+        Duration max = properties.getMaxRetryBackoff();
+        Duration backoff = properties.getRetryBackoff();
+        for (int i = 1; i < attempts && backoff.compareTo(max) < 0; i++) {
+            backoff = backoff.multipliedBy(2);
+        }
+        return backoff.compareTo(max) > 0 ? max : backoff;
+    }
+
+    private void updateBacklog() {
+        LocalDateTime oldest = outboxMapper.findOldestCreatedAt();
+        lagSeconds = oldest == null ? 0 : Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis() / 1000.0);
+        parkedRows = outboxMapper.countParked();
+    }
+}
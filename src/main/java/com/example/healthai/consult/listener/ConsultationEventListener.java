@@ -1,15 +1,43 @@
 package com.example.healthai.consult.listener;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Component;
 
+import com.example.healthai.consult.config.ConsultationKafkaProperties;
+import com.example.healthai.consult.event.ConsultationEventHeaders;
 import com.example.healthai.consult.event.ConsultationEventPayload;
+import com.example.healthai.notification.service.NotificationBatchException;
 import com.example.healthai.notification.service.NotificationService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
+/**
+ * 批量消费问诊事件。五类事件分别发往五个主题，同一问诊的事件只在同一主题内落在同一分区，
+ * 因此只保证单个主题分区内按偏移量有序，跨主题（如 created 与 ai_reviewed）不保证先后，处理逻辑不能依赖跨主题顺序。
+ * <p>
+ * 以消息头中的事件 id 去重：中继的至少一次投递与错误处理器的重试都会重发已处理过的事件，
+ * 已处理的 id 在去重窗口内直接跳过，不会重复告警。去重后的事件按拉取顺序整批交给 {@link NotificationService}，
+ * 某条失败时抛出带该记录下标的 {@link BatchListenerFailedException}，错误处理器只提交它之前的偏移量，
+ * 从该条开始重试，重试耗尽后仅跳过这一条。
+ */
 @Component
 @ConditionalOnProperty(prefix = "healthai.kafka.consultation", name = "consumer-enabled", havingValue = "true")
 public class ConsultationEventListener {
@@ -17,9 +45,48 @@ public class ConsultationEventListener {
     private static final Logger log = LoggerFactory.getLogger(ConsultationEventListener.class);
 
     private final NotificationService notificationService;
+    /**
+     * 本实例已处理的事件 id；分区重平衡后由其他实例收到的重发不在此列，去重只在实例内有效。
+     */
+    private final Cache<String, Boolean> processedEvents;
+    private final DistributionSummary batchSize;
+    private final Timer batchTimer;
+    private final Timer lagTimer;
+    private final Counter skippedCounter;
+    private final Counter duplicateCounter;
 
-    public ConsultationEventListener(NotificationService notificationService) {
+    public ConsultationEventListener(NotificationService notificationService,
+                                     ConsultationKafkaProperties kafkaProperties,
+                                     MeterRegistry meterRegistry) {
         this.notificationService = notificationService;
+        ConsultationKafkaProperties.ListenerProperties listener = kafkaProperties.getListener();
+        this.processedEvents = Caffeine.newBuilder()
+            .maximumSize(listener.getDedupeMaxSize())
+            .expireAfterWrite(listener.getDedupeWindow())
+            .build();
+        this.batchSize = DistributionSummary.builder("healthai.consultation.events.batch.size")
+            .description("单次拉取的问诊事件数")
+            .baseUnit("events")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1.0)
+            .maximumExpectedValue(1000.0)
+            .register(meterRegistry);
+        this.batchTimer = Timer.builder("healthai.consultation.events.batch")
+            .description("一批问诊事件的处理耗时")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.lagTimer = Timer.builder("healthai.consultation.events.lag")
+            .description("问诊事件从写入 Kafka 到被消费的延迟")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofMinutes(10))
+            .register(meterRegistry);
+        this.skippedCounter = Counter.builder("healthai.consultation.events.skipped")
+            .description("无法反序列化而跳过的问诊事件数")
+            .register(meterRegistry);
+        this.duplicateCounter = Counter.builder("healthai.consultation.events.duplicate")
+            .description("按事件 id 判定为重复投递而跳过的问诊事件数")
+            .register(meterRegistry);
     }
 
     @KafkaListener(topics = {
@@ -28,10 +95,72 @@ public class ConsultationEventListener {
         "${healthai.kafka.consultation.reviewed-topic}",
         "${healthai.kafka.consultation.closed-topic}",
         "${healthai.kafka.consultation.failed-topic}"
-    })
-    public void onConsultationEvent(@Payload ConsultationEventPayload payload) {
-        log.debug("Kafka consultation event consumed id={} status={} type={} ",
-            payload.consultationId(), payload.status(), payload.eventType());
-        notificationService.handleConsultationEvent(payload);
+    }, containerFactory = "consultationEventListenerContainerFactory", batch = "true")
+    public void onConsultationEvents(List<ConsumerRecord<String, ConsultationEventPayload>> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        batchSize.record(records.size());
+        long now = System.currentTimeMillis();
+        for (ConsumerRecord<String, ConsultationEventPayload> record : records) {
+            if (record.timestamp() > 0) {
+                lagTimer.record(Duration.ofMillis(Math.max(0, now - record.timestamp())));
+            }
+        }
+        log.debug("Kafka 批量消费问诊事件 records={}", records.size());
+        batchTimer.record(() -> handleInOrder(records));
+    }
+
+    /**
+     * 先剔除无法解析与已处理过的记录，其余按拉取顺序整批交给通知服务；失败时把事件下标换算回记录下标。
+     */
+    private void handleInOrder(List<ConsumerRecord<String, ConsultationEventPayload>> records) {
+        List<ConsultationEventPayload> payloads = new ArrayList<>(records.size());
+        List<Integer> recordIndexes = new ArrayList<>(records.size());
+        List<String> eventIds = new ArrayList<>(records.size());
+        Set<String> batchEventIds = new HashSet<>();
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, ConsultationEventPayload> record = records.get(i);
+            ConsultationEventPayload payload = record.value();
+            if (payload == null) {
+                log.warn("跳过无法解析的问诊事件 topic={} partition={} offset={}", record.topic(), record.partition(),
+                    record.offset());
+                skippedCounter.increment();
+                continue;
+            }
+            String eventId = eventId(record);
+            if (eventId != null && (processedEvents.getIfPresent(eventId) != null || !batchEventIds.add(eventId))) {
+                duplicateCounter.increment();
+                continue;
+            }
+            payloads.add(payload);
+            recordIndexes.add(i);
+            eventIds.add(eventId);
+        }
+        try {
+            notificationService.handleConsultationEvents(payloads);
+        } catch (NotificationBatchException e) {
+            int failed = e.getFailedIndex();
+            markProcessed(eventIds.subList(0, failed));
+            throw new BatchListenerFailedException("问诊事件处理失败 eventId=" + eventIds.get(failed), e.getCause(),
+                recordIndexes.get(failed));
+        }
+        markProcessed(eventIds);
+    }
+
+    private void markProcessed(List<String> eventIds) {
+        for (String eventId : eventIds) {
+            if (eventId != null) {
+                processedEvents.put(eventId, Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * 切换到发件箱之前写入的事件没有事件 id，返回 null，这类事件不去重。
+     */
+    private String eventId(ConsumerRecord<String, ConsultationEventPayload> record) {
+        Header header = record.headers().lastHeader(ConsultationEventHeaders.EVENT_ID);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
     }
 }
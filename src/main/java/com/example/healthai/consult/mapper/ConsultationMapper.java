@@ -1,5 +1,6 @@
 package com.example.healthai.consult.mapper;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,12 +15,27 @@ public interface ConsultationMapper {
 
     Optional<Consultation> findById(@Param("id") Long id);
 
+    /**
+     * 读取并锁定问诊，AI 分诊落库与超时标记互斥，后提交的一方读到的已是对方写入的状态。
+     */
+    Optional<Consultation> findByIdForUpdate(@Param("id") Long id);
+
     List<Consultation> search(@Param("userId") Long userId,
                               @Param("doctorId") Long doctorId,
                               @Param("status") ConsultationStatus status,
                               @Param("limit") Integer limit,
                               @Param("offset") Integer offset);
 
+    /**
+     * 键集分页：返回 (created_at, id) 严格小于游标的记录。
+     */
+    List<Consultation> searchAfter(@Param("userId") Long userId,
+                                   @Param("doctorId") Long doctorId,
+                                   @Param("status") ConsultationStatus status,
+                                   @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                   @Param("cursorId") long cursorId,
+                                   @Param("limit") int limit);
+
     long count(@Param("userId") Long userId,
                @Param("doctorId") Long doctorId,
                @Param("status") ConsultationStatus status);
@@ -27,4 +43,44 @@ public interface ConsultationMapper {
     int insert(Consultation consultation);
 
     int update(Consultation consultation);
+
+    /**
+     * 追问落库时只刷新 updated_at，且要求状态仍允许追问；同时锁住该行，使并发的复核、关闭在本事务提交后再执行。
+     * 返回 0 表示问诊状态已变更。
+     */
+    int touchForFollowUp(@Param("id") Long id, @Param("updatedAt") LocalDateTime updatedAt);
+
+    List<Consultation> findByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 按创建时间取最早的未领取 AI_REVIEWED 问诊并加行锁，跳过其他事务已锁定的行，并发领取互不等待。
+     */
+    List<Long> findClaimableIdsForUpdate(@Param("limit") int limit);
+
+    int claim(@Param("ids") List<Long> ids,
+              @Param("doctorId") Long doctorId,
+              @Param("expiresAt") LocalDateTime expiresAt,
+              @Param("now") LocalDateTime now);
+
+    int releaseClaim(@Param("id") Long id,
+                     @Param("doctorId") Long doctorId,
+                     @Param("now") LocalDateTime now);
+
+    List<Long> findExpiredClaimIds(@Param("now") LocalDateTime now);
+
+    /**
+     * 将租约已过期且仍未复核的问诊退回队列。
+     */
+    int requeueExpiredClaims(@Param("now") LocalDateTime now);
+
+    /**
+     * 取创建早于 cutoff 仍为 DRAFT 的问诊并加行锁，跳过分诊线程正在落库的行。
+     */
+    List<Long> findStaleDraftIdsForUpdate(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * 条件更新复核结果：状态仍允许复核，且 enforceAssignee 时问诊未被其他医生持有有效租约，返回 0 表示并发冲突。
+     */
+    int updateReview(@Param("consultation") Consultation consultation,
+                     @Param("enforceAssignee") boolean enforceAssignee);
 }
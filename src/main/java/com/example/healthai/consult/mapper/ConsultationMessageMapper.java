@@ -12,6 +12,11 @@ public interface ConsultationMessageMapper {
 
     List<ConsultationMessage> findByConsultationId(@Param("consultationId") Long consultationId);
 
+    /**
+     * 锁定读取该问诊最新一条消息的序号，没有消息时返回 null。
+     */
+    Integer findLastSequenceNoForUpdate(@Param("consultationId") Long consultationId);
+
     int insert(ConsultationMessage message);
 
     int batchInsert(@Param("messages") List<ConsultationMessage> messages);
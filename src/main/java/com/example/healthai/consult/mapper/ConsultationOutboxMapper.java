@@ -0,0 +1,43 @@
+package com.example.healthai.consult.mapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import com.example.healthai.consult.domain.ConsultationOutboxEvent;
+
+@Mapper
+public interface ConsultationOutboxMapper {
+
+    int insert(ConsultationOutboxEvent event);
+
+    /**
+     * 在当前事务中抢占中继锁，其他实例持有时立即返回 null 而不等待。
+     */
+    String tryLockRelay();
+
+    /**
+     * 按写入顺序取一批已到重试时间、未搁置的事件并加行锁。
+     */
+    List<ConsultationOutboxEvent> findBatchForUpdate(@Param("limit") int limit, @Param("now") LocalDateTime now);
+
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    int markFailed(@Param("id") Long id,
+                   @Param("lastError") String lastError,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * 重试次数耗尽，搁置该事件，中继不再投递。
+     */
+    int park(@Param("id") Long id, @Param("lastError") String lastError, @Param("parkedAt") LocalDateTime parkedAt);
+
+    /**
+     * 最早一条待投递（未搁置）事件的写入时间，无积压时返回 null。
+     */
+    LocalDateTime findOldestCreatedAt();
+
+    long countParked();
+}
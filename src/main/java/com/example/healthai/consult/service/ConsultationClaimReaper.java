@@ -0,0 +1,52 @@
+package com.example.healthai.consult.service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.example.healthai.consult.config.ConsultationQueueProperties;
+
+/**
+ * 定期将租约过期的问诊退回医生工作队列。各实例同时执行也只是对同一批行做幂等更新。
+ */
+public class ConsultationClaimReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsultationClaimReaper.class);
+
+    private final ConsultationService consultationService;
+    private final ConsultationQueueProperties properties;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    public ConsultationClaimReaper(ConsultationService consultationService, ConsultationQueueProperties properties) {
+        this.consultationService = consultationService;
+        this.properties = properties;
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(1);
+        this.scheduler.setThreadNamePrefix("consult-requeue-");
+        this.scheduler.setDaemon(true);
+        this.scheduler.initialize();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Duration interval = properties.getRequeueInterval();
+        scheduler.scheduleWithFixedDelay(this::requeue, Instant.now().plus(interval), interval);
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    void requeue() {
+        try {
+            consultationService.requeueExpiredClaims();
+        } catch (RuntimeException e) {
+            log.warn("退回过期问诊领取失败", e);
+        }
+    }
+}
@@ -1,37 +1,59 @@
 package com.example.healthai.consult.service;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.springframework.beans.factory.ObjectProvider;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.example.healthai.audit.AuditConstants;
 import com.example.healthai.audit.service.AuditTrailService;
 import com.example.healthai.auth.domain.User;
 import com.example.healthai.auth.domain.UserType;
 import com.example.healthai.auth.mapper.UserMapper;
+import com.example.healthai.common.api.ApiResponse;
+import com.example.healthai.common.api.PageCursor;
 import com.example.healthai.common.exception.BusinessException;
 import com.example.healthai.common.exception.ErrorCode;
 import com.example.healthai.consult.domain.Consultation;
 import com.example.healthai.consult.domain.ConsultationMessage;
 import com.example.healthai.consult.domain.ConsultationMessageRole;
 import com.example.healthai.consult.domain.ConsultationStatus;
+import com.example.healthai.consult.cache.ConsultationDetailCache;
+import com.example.healthai.consult.config.ConsultationAiProperties;
 import com.example.healthai.consult.config.ConsultationKafkaProperties;
+import com.example.healthai.consult.config.ConsultationQueueProperties;
+import com.example.healthai.consult.dto.ConsultationClaimResponse;
 import com.example.healthai.consult.dto.ConsultationCreateRequest;
 import com.example.healthai.consult.dto.ConsultationDetailResponse;
+import com.example.healthai.consult.dto.ConsultationFollowUpRequest;
 import com.example.healthai.consult.dto.ConsultationListResponse;
 import com.example.healthai.consult.dto.ConsultationMessageResponse;
 import com.example.healthai.consult.dto.ConsultationReviewRequest;
 import com.example.healthai.consult.mapper.ConsultationMapper;
 import com.example.healthai.consult.mapper.ConsultationMessageMapper;
+import com.example.healthai.consult.event.ConsultationEventOutbox;
 import com.example.healthai.consult.event.ConsultationEventPayload;
+import com.example.healthai.consult.service.ConversationContextStore.ConversationContext;
+import com.example.healthai.llm.schedule.LlmPriority;
+import com.example.healthai.llm.token.TokenEstimator;
 import com.example.healthai.prompt.service.PromptExecutionCommand;
 import com.example.healthai.prompt.service.PromptResult;
 import com.example.healthai.prompt.service.PromptService;
@@ -39,31 +61,54 @@ import com.example.healthai.prompt.service.PromptService;
 @Service
 public class ConsultationService {
 
+    private static final Logger log = LoggerFactory.getLogger(ConsultationService.class);
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
     private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SEQUENCE_ATTEMPTS = 3;
 
     private final ConsultationMapper consultationMapper;
     private final ConsultationMessageMapper consultationMessageMapper;
     private final UserMapper userMapper;
     private final PromptService promptService;
     private final AuditTrailService auditTrailService;
-    private final KafkaTemplate<String, ConsultationEventPayload> kafkaTemplate;
+    private final ConsultationEventOutbox eventOutbox;
     private final ConsultationKafkaProperties kafkaProperties;
+    private final ConsultationAiProperties aiProperties;
+    private final Executor aiExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final ConversationContextStore contextStore;
+    private final TokenEstimator tokenEstimator;
+    private final ConsultationQueueProperties queueProperties;
+    private final ConsultationDetailCache detailCache;
 
     public ConsultationService(ConsultationMapper consultationMapper,
                                ConsultationMessageMapper consultationMessageMapper,
                                UserMapper userMapper,
                                PromptService promptService,
                                AuditTrailService auditTrailService,
-                               ObjectProvider<KafkaTemplate<String, ConsultationEventPayload>> kafkaTemplateProvider,
-                               ConsultationKafkaProperties kafkaProperties) {
+                               ConsultationEventOutbox eventOutbox,
+                               ConsultationKafkaProperties kafkaProperties,
+                               ConsultationAiProperties aiProperties,
+                               @Qualifier("consultationAiExecutor") Executor aiExecutor,
+                               TransactionTemplate transactionTemplate,
+                               ConversationContextStore contextStore,
+                               TokenEstimator tokenEstimator,
+                               ConsultationQueueProperties queueProperties,
+                               ConsultationDetailCache detailCache) {
         this.consultationMapper = consultationMapper;
         this.consultationMessageMapper = consultationMessageMapper;
         this.userMapper = userMapper;
         this.promptService = promptService;
         this.auditTrailService = auditTrailService;
-        this.kafkaTemplate = kafkaTemplateProvider.getIfAvailable();
+        this.eventOutbox = eventOutbox;
         this.kafkaProperties = kafkaProperties;
+        this.aiProperties = aiProperties;
+        this.aiExecutor = aiExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.contextStore = contextStore;
+        this.tokenEstimator = tokenEstimator;
+        this.queueProperties = queueProperties;
+        this.detailCache = detailCache;
     }
 
     @Transactional
@@ -73,97 +118,156 @@ public class ConsultationService {
             throw new BusinessException(ErrorCode.FORBIDDEN, "仅患者可发起问诊");
         }
 
-        LocalDateTime now = LocalDateTime.now();
-        Consultation consultation = Consultation.builder()
-            .userId(user.getId())
-            .symptomDescription(request.symptomDescription())
-            .status(ConsultationStatus.DRAFT)
-            .createdAt(now)
-            .updatedAt(now)
-            .build();
-        consultationMapper.insert(consultation);
+        Consultation consultation = createDraft(user, request);
+        PromptExecutionCommand command = buildPromptCommand(request, user);
 
-        saveMessage(consultation.getId(), ConsultationMessageRole.PATIENT, 1, request.symptomDescription(), null);
-
-        auditTrailService.recordConsultationEvent(
-            AuditConstants.ACTION_CONSULT_CREATED,
-            user.getId(),
-            user.getUserType().name(),
-            consultation.getId().toString(),
-            null,
-            null);
-        publishEvent(kafkaProperties.getCreatedTopic(), consultation, "CONSULTATION_CREATED", user);
+        if (aiProperties.isAsyncEnabled()) {
+            scheduleAiTriage(consultation.getId(), command, user);
+            return buildDetailResponse(consultation, consultationMessageMapper.findByConsultationId(consultation.getId()));
+        }
 
         try {
-            PromptResult promptResult = promptService.executeConsultationPrompt(buildPromptCommand(request, user));
+            applyAiResult(consultation, user, promptService.executeConsultationPrompt(command));
+        } catch (BusinessException ex) {
+            applyAiFailure(consultation, user, ex);
+        }
 
-            consultation.setAiDiagnosis(promptResult.getContent());
-            consultation.setAiModel(promptResult.getModel());
-            consultation.setAiLatencyMs(promptResult.getLatencyMs() == null ? null : promptResult.getLatencyMs().intValue());
-            consultation.setAiErrorCode(null);
-            consultation.setStatus(ConsultationStatus.AI_REVIEWED);
-            consultation.setUpdatedAt(LocalDateTime.now());
-            consultationMapper.update(consultation);
+        return buildDetailResponse(consultation, consultationMessageMapper.findByConsultationId(consultation.getId()));
+    }
 
-            saveMessage(consultation.getId(), ConsultationMessageRole.AI, 2, promptResult.getContent(), promptResult.getCompletionTokens());
+    /**
+     * 流式问诊：先提交 DRAFT 问诊，再在 AI 线程池中流式调用大模型，逐段通过 SSE 推送给患者，
+     * 生成结束后落库并推送 done 事件。客户端中途断开不影响结果落库。
+     */
+    public void createStreaming(String username, ConsultationCreateRequest request, SseEmitter emitter) {
+        User user = loadUser(username);
+        if (user.getUserType() != UserType.PATIENT && user.getUserType() != UserType.ADMIN) {
+            throw new BusinessException(ErrorCode.FORBIDDEN, "仅患者可发起问诊");
+        }
 
-            auditTrailService.recordConsultationEvent(
-                AuditConstants.ACTION_CONSULT_AI_COMPLETED,
-                user.getId(),
-                user.getUserType().name(),
-                consultation.getId().toString(),
-                null,
-                null);
-            publishEvent(kafkaProperties.getAiReviewedTopic(), consultation, "CONSULTATION_AI_REVIEWED", user);
-        } catch (BusinessException ex) {
-            consultation.setStatus(ConsultationStatus.FAILED);
-            consultation.setAiErrorCode(ex.getErrorCode().getCode());
-            consultation.setUpdatedAt(LocalDateTime.now());
-            consultationMapper.update(consultation);
+        Consultation consultation = transactionTemplate.execute(status -> createDraft(user, request));
+        Long consultationId = consultation.getId();
+        PromptExecutionCommand command = buildPromptCommand(request, user);
+        sendStreamEvent(emitter, "created", buildDetailResponse(consultation, List.of()));
 
-            auditTrailService.recordConsultationEvent(
-                AuditConstants.ACTION_CONSULT_AI_COMPLETED,
-                user.getId(),
-                user.getUserType().name(),
-                consultation.getId().toString(),
-                null,
-                ex.getMessage());
-            publishEvent(kafkaProperties.getFailedTopic(), consultation, "CONSULTATION_FAILED", user);
+        try {
+            aiExecutor.execute(() -> streamAiTriage(consultationId, command, user, emitter));
+        } catch (RejectedExecutionException ex) {
+            log.warn("AI triage queue full, streaming consultation {} marked as failed", consultationId);
+            BusinessException failure = new BusinessException(ErrorCode.LLM_CALL_FAILED, "AI 分诊队列已满", ex);
+            completeAiTriage(consultationId, user, null, failure);
+            sendStreamEvent(emitter, "error", ApiResponse.failure(failure.getMessage()));
+            emitter.complete();
         }
-
-        return buildDetailResponse(consultation, consultationMessageMapper.findByConsultationId(consultation.getId()));
     }
 
     @Transactional(readOnly = true)
-    public ConsultationListResponse list(String username, String status, int page, int size) {
+    public ConsultationListResponse list(String username, String status, int page, int size, String cursor, boolean includeTotal) {
         User user = loadUser(username);
         int safePage = Math.max(page, 0);
         int safeSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
-        int offset = safePage * safeSize;
+        PageCursor after = PageCursor.decode(cursor);
 
         ConsultationStatus statusFilter = parseStatus(status);
 
         Long userIdFilter = user.getUserType() == UserType.PATIENT ? user.getId() : null;
         Long doctorIdFilter = user.getUserType() == UserType.DOCTOR ? user.getId() : null;
 
-        List<Consultation> consultations = consultationMapper.search(userIdFilter, doctorIdFilter, statusFilter, safeSize, offset);
-        long total = consultationMapper.count(userIdFilter, doctorIdFilter, statusFilter);
+        // 传入游标时按 (created_at, id) 键集翻页，忽略 page；多取一条用于判断是否还有下一页
+        List<Consultation> fetched = after != null
+            ? consultationMapper.searchAfter(userIdFilter, doctorIdFilter, statusFilter, after.timestamp(), after.id(), safeSize + 1)
+            : consultationMapper.search(userIdFilter, doctorIdFilter, statusFilter, safeSize + 1, safePage * safeSize);
+        boolean hasMore = fetched.size() > safeSize;
+        List<Consultation> consultations = hasMore ? fetched.subList(0, safeSize) : fetched;
+        Long total = includeTotal ? consultationMapper.count(userIdFilter, doctorIdFilter, statusFilter) : null;
 
         List<ConsultationListResponse.ConsultationSummary> summaries = consultations.stream()
             .map(this::toSummary)
             .toList();
 
-        return new ConsultationListResponse(summaries, total, safePage, safeSize);
+        String nextCursor = null;
+        if (hasMore) {
+            Consultation last = consultations.get(consultations.size() - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new ConsultationListResponse(summaries, total, safePage, safeSize, nextCursor);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * 详情走读模型缓存，命中时不开启事务也不访问问诊与消息表；权限基于缓存中的归属信息校验。
+     */
     public ConsultationDetailResponse detail(String username, Long id) {
         User user = loadUser(username);
+        ConsultationDetailResponse detail = detailCache.get(id, () -> transactionTemplate.execute(status -> {
+            Consultation consultation = consultationMapper.findById(id)
+                .orElseThrow(() -> new BusinessException(ErrorCode.CONSULTATION_NOT_FOUND, "问诊记录不存在"));
+            return buildDetailResponse(consultation, consultationMessageMapper.findByConsultationId(id));
+        }));
+        ensureAccess(user, detail.userId(), detail.doctorId());
+        return detail;
+    }
+
+    /**
+     * 追问：追加患者（或负责该问诊的医生）的消息并生成 AI 回复。优先携带上一轮模型返回的 context 只提交本轮内容，
+     * context 缺失、过期或续接失败时改为在 token 预算内拼接历史对话重新生成。医生追问按交互式优先级调度。
+     * 生成回复不在事务内进行，避免整个生成期间占用数据库连接；生成后在短事务中重新读取问诊、校验状态再追加消息，
+     * 只更新 updated_at，不会用生成前的快照覆盖期间提交的复核或关闭。
+     */
+    public ConsultationDetailResponse followUp(String username, Long id, ConsultationFollowUpRequest request) {
+        User user = loadUser(username);
+
         Consultation consultation = consultationMapper.findById(id)
             .orElseThrow(() -> new BusinessException(ErrorCode.CONSULTATION_NOT_FOUND, "问诊记录不存在"));
         ensureAccess(user, consultation);
-        List<ConsultationMessage> messages = consultationMessageMapper.findByConsultationId(id);
-        return buildDetailResponse(consultation, messages);
+        if (user.getUserType() == UserType.DOCTOR && !user.getId().equals(consultation.getDoctorId())) {
+            throw new BusinessException(ErrorCode.CONSULTATION_FORBIDDEN, "请先领取该问诊再追问");
+        }
+
+        ensureFollowUpAllowed(consultation);
+
+        List<ConsultationMessage> history = consultationMessageMapper.findByConsultationId(id);
+        int lastSequence = history.isEmpty() ? 0 : history.get(history.size() - 1).getSequenceNo();
+        PromptResult promptResult = generateFollowUpReply(consultation, user, history, lastSequence, request);
+
+        return transactionTemplate.execute(status -> {
+            // 先以条件更新锁住问诊行并校验状态，生成期间已被关闭或驳回时不再追加
+            LocalDateTime now = LocalDateTime.now();
+            if (consultationMapper.touchForFollowUp(id, now) == 0) {
+                throw new BusinessException(ErrorCode.CONSULTATION_STATUS_CONFLICT, "问诊状态已变更，追问未保存");
+            }
+            Consultation current = consultationMapper.findById(id)
+                .orElseThrow(() -> new BusinessException(ErrorCode.CONSULTATION_NOT_FOUND, "问诊记录不存在"));
+            if (user.getUserType() == UserType.DOCTOR && !user.getId().equals(current.getDoctorId())) {
+                throw new BusinessException(ErrorCode.CONSULTATION_FORBIDDEN, "问诊已不由您负责");
+            }
+
+            // 生成回复期间可能有医生复核插入消息，此时模型 context 不包含该消息，不再保存
+            ConsultationMessageRole askerRole = user.getUserType() == UserType.DOCTOR
+                ? ConsultationMessageRole.DOCTOR : ConsultationMessageRole.PATIENT;
+            int questionSequence = appendMessage(id, askerRole, request.content(), null);
+            int aiSequence = appendMessage(id, ConsultationMessageRole.AI, promptResult.getContent(), promptResult.getCompletionTokens());
+            if (questionSequence == lastSequence + 1) {
+                saveContext(id, aiSequence, promptResult);
+            } else {
+                contextStore.evict(id);
+            }
+
+            auditTrailService.recordConsultationEvent(
+                AuditConstants.ACTION_CONSULT_FOLLOW_UP,
+                user.getId(),
+                user.getUserType().name(),
+                id.toString(),
+                null,
+                null);
+
+            return buildDetailResponse(current, consultationMessageMapper.findByConsultationId(id));
+        });
+    }
+
+    private void ensureFollowUpAllowed(Consultation consultation) {
+        if (consultation.getStatus() != ConsultationStatus.AI_REVIEWED && consultation.getStatus() != ConsultationStatus.DOCTOR_REVIEWED) {
+            throw new BusinessException(ErrorCode.CONSULTATION_STATUS_CONFLICT, "当前问诊状态不允许追问");
+        }
     }
 
     @Transactional
@@ -184,12 +288,13 @@ public class ConsultationService {
             throw new BusinessException(ErrorCode.CONSULTATION_STATUS_CONFLICT, "当前问诊状态不允许复核");
         }
 
-        if (consultation.getDoctorId() != null && !consultation.getDoctorId().equals(user.getId()) && user.getUserType() != UserType.ADMIN) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean admin = user.getUserType() == UserType.ADMIN;
+        if (!admin && isHeldByOtherDoctor(consultation, user, now)) {
             throw new BusinessException(ErrorCode.CONSULTATION_FORBIDDEN, "问诊已由其他医生处理");
         }
 
         ConsultationStatus newStatus = ConsultationStatus.valueOf(request.status());
-        LocalDateTime now = LocalDateTime.now();
 
         consultation.setDoctorId(user.getId());
         consultation.setDoctorOpinion(request.doctorOpinion());
@@ -199,10 +304,13 @@ public class ConsultationService {
             consultation.setClosedAt(now);
         }
 
-        consultationMapper.update(consultation);
+        // 上面的检查基于快照，以条件更新兜底两名医生同时复核
+        if (consultationMapper.updateReview(consultation, !admin) == 0) {
+            throw new BusinessException(ErrorCode.CONSULTATION_STATUS_CONFLICT, "问诊已被其他医生领取或状态已变更");
+        }
+        consultation.setClaimExpiresAt(null);
 
-        int nextSequence = calculateNextSequence(id);
-        saveMessage(id, ConsultationMessageRole.DOCTOR, nextSequence, request.doctorOpinion(), null);
+        appendMessage(id, ConsultationMessageRole.DOCTOR, request.doctorOpinion(), null);
 
         auditTrailService.recordConsultationEvent(
             AuditConstants.ACTION_CONSULT_REVIEWED,
@@ -216,6 +324,73 @@ public class ConsultationService {
         return buildDetailResponse(consultation, consultationMessageMapper.findByConsultationId(id));
     }
 
+    /**
+     * 医生从工作队列领取最早的 limit 条未分配 AI_REVIEWED 问诊。SKIP LOCKED 使并发领取的医生各自拿到不同的行，
+     * 无需等待锁或冲突重试；领取带租约，到期未复核时由 {@link ConsultationClaimReaper} 退回队列。
+     */
+    @Transactional
+    public ConsultationClaimResponse claim(String username, int limit) {
+        User user = loadUser(username);
+        if (user.getUserType() != UserType.DOCTOR) {
+            throw new BusinessException(ErrorCode.FORBIDDEN, "仅医生可领取问诊");
+        }
+        int safeLimit = Math.min(Math.max(limit, 1), queueProperties.getMaxClaimSize());
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(queueProperties.getLeaseDuration());
+
+        List<Long> ids = consultationMapper.findClaimableIdsForUpdate(safeLimit);
+        if (ids.isEmpty()) {
+            return new ConsultationClaimResponse(List.of(), null);
+        }
+        consultationMapper.claim(ids, user.getId(), expiresAt, now);
+        ids.forEach(detailCache::evict);
+        List<ConsultationListResponse.ConsultationSummary> items = consultationMapper.findByIds(ids).stream()
+            .map(this::toSummary)
+            .toList();
+        log.debug("医生 {} 领取问诊 {}，租约到期 {}", user.getId(), ids, expiresAt);
+        return new ConsultationClaimResponse(items, formatDateTime(expiresAt));
+    }
+
+    /**
+     * 医生主动放弃尚未复核的问诊，立即退回队列。
+     */
+    @Transactional
+    public void release(String username, Long id) {
+        User user = loadUser(username);
+        if (consultationMapper.releaseClaim(id, user.getId(), LocalDateTime.now()) == 0) {
+            throw new BusinessException(ErrorCode.CONSULTATION_STATUS_CONFLICT, "问诊未由当前医生领取或已复核");
+        }
+        detailCache.evict(id);
+    }
+
+    @Transactional
+    public int requeueExpiredClaims() {
+        LocalDateTime now = LocalDateTime.now();
+        consultationMapper.findExpiredClaimIds(now).forEach(detailCache::evict);
+        int requeued = consultationMapper.requeueExpiredClaims(now);
+        if (requeued > 0) {
+            log.info("{} 条问诊领取租约过期，已退回队列", requeued);
+        }
+        return requeued;
+    }
+
+    /**
+     * 将超过 draft-timeout 仍为 DRAFT 的问诊标记为 FAILED。原始模板与变量未落库，无法原样重新提交，
+     * 由患者根据错误码重新发起问诊。分诊结果晚于标记到达时按非 DRAFT 丢弃。
+     */
+    @Transactional
+    public int failAbandonedTriage() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(aiProperties.getDraftTimeout());
+        List<Long> ids = consultationMapper.findStaleDraftIdsForUpdate(cutoff, aiProperties.getDraftSweepBatchSize());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        BusinessException failure = new BusinessException(ErrorCode.CONSULTATION_TRIAGE_ABANDONED, "AI 分诊未在规定时间内完成");
+        consultationMapper.findByIds(ids).forEach(consultation -> applyAiFailure(consultation, null, failure));
+        log.warn("{} 条问诊超过 {} 仍未完成 AI 分诊，已标记为失败", ids.size(), aiProperties.getDraftTimeout());
+        return ids.size();
+    }
+
     @Transactional
     public ConsultationDetailResponse close(String username, Long id) {
         User user = loadUser(username);
@@ -249,6 +424,168 @@ public class ConsultationService {
         return buildDetailResponse(consultation, consultationMessageMapper.findByConsultationId(id));
     }
 
+    private Consultation createDraft(User user, ConsultationCreateRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        Consultation consultation = Consultation.builder()
+            .userId(user.getId())
+            .symptomDescription(request.symptomDescription())
+            .status(ConsultationStatus.DRAFT)
+            .createdAt(now)
+            .updatedAt(now)
+            .build();
+        consultationMapper.insert(consultation);
+
+        saveMessage(consultation.getId(), ConsultationMessageRole.PATIENT, 1, request.symptomDescription(), null);
+
+        auditTrailService.recordConsultationEvent(
+            AuditConstants.ACTION_CONSULT_CREATED,
+            user.getId(),
+            user.getUserType().name(),
+            consultation.getId().toString(),
+            null,
+            null);
+        publishEvent(kafkaProperties.getCreatedTopic(), consultation, "CONSULTATION_CREATED", user);
+        return consultation;
+    }
+
+    private void applyAiResult(Consultation consultation, User user, PromptResult promptResult) {
+        consultation.setAiDiagnosis(promptResult.getContent());
+        consultation.setAiModel(promptResult.getModel());
+        consultation.setAiLatencyMs(promptResult.getLatencyMs() == null ? null : promptResult.getLatencyMs().intValue());
+        consultation.setAiErrorCode(null);
+        consultation.setStatus(ConsultationStatus.AI_REVIEWED);
+        consultation.setUpdatedAt(LocalDateTime.now());
+        consultationMapper.update(consultation);
+
+        saveMessage(consultation.getId(), ConsultationMessageRole.AI, 2, promptResult.getContent(), promptResult.getCompletionTokens());
+        saveContext(consultation.getId(), 2, promptResult);
+
+        auditTrailService.recordConsultationEvent(
+            AuditConstants.ACTION_CONSULT_AI_COMPLETED,
+            user.getId(),
+            user.getUserType().name(),
+            consultation.getId().toString(),
+            null,
+            null);
+        publishEvent(kafkaProperties.getAiReviewedTopic(), consultation, "CONSULTATION_AI_REVIEWED", user);
+    }
+
+    /**
+     * user 为空表示由后台任务标记失败，审计记为系统操作。
+     */
+    private void applyAiFailure(Consultation consultation, User user, BusinessException ex) {
+        consultation.setStatus(ConsultationStatus.FAILED);
+        consultation.setAiErrorCode(ex.getErrorCode().getCode());
+        consultation.setUpdatedAt(LocalDateTime.now());
+        consultationMapper.update(consultation);
+
+        auditTrailService.recordConsultationEvent(
+            AuditConstants.ACTION_CONSULT_AI_COMPLETED,
+            user == null ? null : user.getId(),
+            user == null ? AuditConstants.ACTOR_SYSTEM : user.getUserType().name(),
+            consultation.getId().toString(),
+            null,
+            ex.getMessage());
+        publishEvent(kafkaProperties.getFailedTopic(), consultation, "CONSULTATION_FAILED", user);
+    }
+
+    /**
+     * 在当前事务提交后再投递 AI 分诊任务，保证异步线程能读到已提交的 DRAFT 记录。
+     */
+    private void scheduleAiTriage(Long consultationId, PromptExecutionCommand command, User user) {
+        Runnable submission = () -> submitAiTriage(consultationId, command, user);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submission.run();
+                }
+            });
+        } else {
+            submission.run();
+        }
+    }
+
+    private void submitAiTriage(Long consultationId, PromptExecutionCommand command, User user) {
+        try {
+            aiExecutor.execute(() -> runAiTriage(consultationId, command, user));
+        } catch (RejectedExecutionException ex) {
+            log.warn("AI triage queue full, consultation {} marked as failed", consultationId);
+            completeAiTriage(consultationId, user, null,
+                new BusinessException(ErrorCode.LLM_CALL_FAILED, "AI 分诊队列已满", ex));
+        }
+    }
+
+    private void runAiTriage(Long consultationId, PromptExecutionCommand command, User user) {
+        PromptResult promptResult = null;
+        BusinessException failure = null;
+        try {
+            promptResult = promptService.executeConsultationPrompt(command);
+        } catch (BusinessException ex) {
+            failure = ex;
+        } catch (RuntimeException ex) {
+            log.error("AI triage failed unexpectedly for consultation {}", consultationId, ex);
+            failure = new BusinessException(ErrorCode.LLM_CALL_FAILED, "AI 分诊执行异常", ex);
+        }
+        completeAiTriage(consultationId, user, promptResult, failure);
+    }
+
+    private void streamAiTriage(Long consultationId, PromptExecutionCommand command, User user, SseEmitter emitter) {
+        AtomicBoolean clientConnected = new AtomicBoolean(true);
+        PromptResult promptResult = null;
+        BusinessException failure = null;
+        try {
+            promptResult = promptService.streamConsultationPrompt(command, token -> {
+                if (clientConnected.get() && !sendStreamEvent(emitter, "token", token)) {
+                    clientConnected.set(false);
+                }
+            });
+        } catch (BusinessException ex) {
+            failure = ex;
+        } catch (RuntimeException ex) {
+            log.error("Streaming AI triage failed unexpectedly for consultation {}", consultationId, ex);
+            failure = new BusinessException(ErrorCode.LLM_CALL_FAILED, "AI 分诊执行异常", ex);
+        }
+        completeAiTriage(consultationId, user, promptResult, failure);
+
+        if (failure != null) {
+            sendStreamEvent(emitter, "error", ApiResponse.failure(failure.getMessage()));
+        } else {
+            consultationMapper.findById(consultationId).ifPresent(consultation -> sendStreamEvent(emitter, "done",
+                buildDetailResponse(consultation, consultationMessageMapper.findByConsultationId(consultationId))));
+        }
+        emitter.complete();
+    }
+
+    private boolean sendStreamEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+            return true;
+        } catch (IOException | IllegalStateException ex) {
+            log.debug("SSE client disconnected while sending {} event", name);
+            return false;
+        }
+    }
+
+    private void completeAiTriage(Long consultationId, User user, PromptResult promptResult, BusinessException failure) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Consultation consultation = consultationMapper.findByIdForUpdate(consultationId).orElse(null);
+                if (consultation == null || consultation.getStatus() != ConsultationStatus.DRAFT) {
+                    log.debug("Skip AI triage result for consultation {}, no longer in DRAFT", consultationId);
+                    return;
+                }
+                if (failure != null) {
+                    applyAiFailure(consultation, user, failure);
+                } else {
+                    applyAiResult(consultation, user, promptResult);
+                }
+            });
+        } catch (RuntimeException ex) {
+            log.error("Failed to persist AI triage result for consultation {}", consultationId, ex);
+        }
+    }
+
     private PromptExecutionCommand buildPromptCommand(ConsultationCreateRequest request, User user) {
         Map<String, Object> variables = new HashMap<>(request.variables());
         variables.putIfAbsent("symptomDescription", request.symptomDescription());
@@ -261,9 +598,90 @@ public class ConsultationService {
         return PromptExecutionCommand.builder()
             .templateCode(request.templateCode())
             .variables(variables)
+            .priority(priorityFor(user))
             .build();
     }
 
+    private PromptResult generateFollowUpReply(Consultation consultation, User user, List<ConsultationMessage> history,
+                                               int lastSequence, ConsultationFollowUpRequest request) {
+        Long id = consultation.getId();
+        ConversationContext context = contextStore.find(id)
+            .filter(candidate -> candidate.lastSequenceNo() == lastSequence)
+            .orElse(null);
+        if (context != null) {
+            try {
+                return promptService.executeConsultationPrompt(buildFollowUpCommand(consultation, user, request, "", context));
+            } catch (BusinessException ex) {
+                log.info("Follow-up with cached context failed for consultation {}, retrying with history: {}", id, ex.getMessage());
+                contextStore.evict(id);
+            }
+        }
+        String transcript = ConversationWindow.render(history, aiProperties.getHistoryTokenBudget(), tokenEstimator);
+        return promptService.executeConsultationPrompt(buildFollowUpCommand(consultation, user, request, transcript, null));
+    }
+
+    private PromptExecutionCommand buildFollowUpCommand(Consultation consultation, User user, ConsultationFollowUpRequest request,
+                                                        String history, ConversationContext context) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("history", history);
+        variables.put("message", request.content());
+        variables.put("symptomDescription", consultation.getSymptomDescription());
+        variables.put("patientId", consultation.getUserId());
+        variables.put("askedBy", user.getUserType().name());
+        if (user.getUserType() != UserType.DOCTOR) {
+            variables.put("patientName", user.getFullName());
+        }
+
+        PromptExecutionCommand.PromptExecutionCommandBuilder builder = PromptExecutionCommand.builder()
+            .templateCode(StringUtils.hasText(request.templateCode()) ? request.templateCode() : aiProperties.getFollowUpTemplateCode())
+            .variables(variables)
+            .priority(priorityFor(user));
+        if (context != null) {
+            builder.channelOverride(context.channel())
+                .modelOverride(context.model())
+                .context(context.tokens());
+        }
+        return builder.build();
+    }
+
+    /**
+     * 医生在工作台上等待结果，优先于患者分诊调度；其余调用按患者分诊排队。
+     */
+    private LlmPriority priorityFor(User user) {
+        return user.getUserType() == UserType.DOCTOR ? LlmPriority.DOCTOR_INTERACTIVE : LlmPriority.PATIENT_TRIAGE;
+    }
+
+    private void saveContext(Long consultationId, int lastSequence, PromptResult promptResult) {
+        if (promptResult.getContext() == null || promptResult.getContext().isEmpty()) {
+            contextStore.evict(consultationId);
+            return;
+        }
+        contextStore.save(consultationId, new ConversationContext(lastSequence, promptResult.getChannel(),
+            promptResult.getModel(), promptResult.getContext()));
+    }
+
+    /**
+     * 以最新序号 + 1 追加消息：锁定读取只命中 (consultation_id, sequence_no) 唯一索引的最后一条，耗时与对话长度无关，
+     * MySQL 下同时锁住其后的间隙使并发追加串行化；仍发生唯一索引冲突时重新读取并重试。
+     *
+     * @return 分配到的序号
+     */
+    private int appendMessage(Long consultationId, ConsultationMessageRole role, String content, Integer tokenUsage) {
+        for (int attempt = 1; ; attempt++) {
+            Integer last = consultationMessageMapper.findLastSequenceNoForUpdate(consultationId);
+            int sequence = last == null ? 1 : last + 1;
+            try {
+                saveMessage(consultationId, role, sequence, content, tokenUsage);
+                return sequence;
+            } catch (DuplicateKeyException ex) {
+                if (attempt >= MAX_SEQUENCE_ATTEMPTS) {
+                    throw new BusinessException(ErrorCode.CONSULTATION_STATUS_CONFLICT, "问诊消息并发写入冲突，请稍后重试", ex);
+                }
+                log.info("问诊 {} 消息序号 {} 已被占用，重新分配", consultationId, sequence);
+            }
+        }
+    }
+
     private void saveMessage(Long consultationId, ConsultationMessageRole role, int sequence, String content, Integer tokenUsage) {
         LocalDateTime now = LocalDateTime.now();
         ConsultationMessage message = ConsultationMessage.builder()
@@ -276,6 +694,7 @@ public class ConsultationService {
             .updatedAt(now)
             .build();
         consultationMessageMapper.insert(message);
+        detailCache.evict(consultationId);
     }
 
     private ConsultationListResponse.ConsultationSummary toSummary(Consultation consultation) {
@@ -321,29 +740,28 @@ public class ConsultationService {
         );
     }
 
+    /**
+     * 所有状态流转都经过此处发布事件，同时失效问诊详情缓存。事件写入发件箱，与状态变更同一事务提交。
+     */
     private void publishEvent(String topic, Consultation consultation, String eventType, User actor) {
-        if (kafkaTemplate == null) {
-            return;
-        }
+        detailCache.evict(consultation.getId());
+        boolean thin = kafkaProperties.isThinEvents();
         ConsultationEventPayload payload = new ConsultationEventPayload(
             consultation.getId(),
             consultation.getUserId(),
             consultation.getDoctorId(),
             consultation.getStatus().name(),
             eventType,
-            consultation.getSymptomDescription(),
-            consultation.getAiDiagnosis(),
-            consultation.getDoctorOpinion(),
+            thin ? null : consultation.getSymptomDescription(),
+            thin ? null : consultation.getAiDiagnosis(),
+            thin ? null : consultation.getDoctorOpinion(),
             consultation.getAiModel(),
             consultation.getAiLatencyMs(),
             consultation.getAiErrorCode(),
-            formatDateTime(LocalDateTime.now())
+            formatDateTime(LocalDateTime.now()),
+            kafkaProperties.getDetailUrlTemplate().replace("{id}", consultation.getId().toString())
         );
-        kafkaTemplate.send(topic, consultation.getId().toString(), payload);
-    }
-
-    private int calculateNextSequence(Long consultationId) {
-        return consultationMessageMapper.findByConsultationId(consultationId).size() + 1;
+        eventOutbox.enqueue(topic, payload);
     }
 
     private ConsultationStatus parseStatus(String status) {
@@ -366,18 +784,30 @@ public class ConsultationService {
             .orElseThrow(() -> new BusinessException(ErrorCode.UNAUTHORIZED, "未找到用户会话"));
     }
 
+    private boolean isHeldByOtherDoctor(Consultation consultation, User user, LocalDateTime now) {
+        if (consultation.getDoctorId() == null || consultation.getDoctorId().equals(user.getId())) {
+            return false;
+        }
+        // 租约已过期的领取视为已退回队列
+        return consultation.getClaimExpiresAt() == null || consultation.getClaimExpiresAt().isAfter(now);
+    }
+
     private void ensureAccess(User user, Consultation consultation) {
+        ensureAccess(user, consultation.getUserId(), consultation.getDoctorId());
+    }
+
+    private void ensureAccess(User user, Long ownerId, Long doctorId) {
         if (user.getUserType() == UserType.ADMIN) {
             return;
         }
         if (user.getUserType() == UserType.PATIENT) {
-            if (!consultation.getUserId().equals(user.getId())) {
+            if (!ownerId.equals(user.getId())) {
                 throw new BusinessException(ErrorCode.CONSULTATION_FORBIDDEN, "无权访问该问诊记录");
             }
             return;
         }
         if (user.getUserType() == UserType.DOCTOR) {
-            if (consultation.getDoctorId() != null && !consultation.getDoctorId().equals(user.getId())) {
+            if (doctorId != null && !doctorId.equals(user.getId())) {
                 throw new BusinessException(ErrorCode.CONSULTATION_FORBIDDEN, "问诊已分配给其他医生");
             }
         }
@@ -0,0 +1,52 @@
+package com.example.healthai.consult.service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.example.healthai.consult.config.ConsultationAiProperties;
+
+/**
+ * 定期将分诊任务已丢失的 DRAFT 问诊标记为失败。各实例同时执行时通过 SKIP LOCKED 分摊不同的行。
+ */
+public class ConsultationTriageSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsultationTriageSweeper.class);
+
+    private final ConsultationService consultationService;
+    private final ConsultationAiProperties properties;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    public ConsultationTriageSweeper(ConsultationService consultationService, ConsultationAiProperties properties) {
+        this.consultationService = consultationService;
+        this.properties = properties;
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(1);
+        this.scheduler.setThreadNamePrefix("consult-draft-sweep-");
+        this.scheduler.setDaemon(true);
+        this.scheduler.initialize();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Duration interval = properties.getDraftSweepInterval();
+        scheduler.scheduleWithFixedDelay(this::sweep, Instant.now().plus(interval), interval);
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    void sweep() {
+        try {
+            consultationService.failAbandonedTriage();
+        } catch (RuntimeException e) {
+            log.warn("标记超时 DRAFT 问诊失败", e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.healthai.consult.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.healthai.consult.config.ConsultationAiProperties;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * 保存每个问诊最近一次 AI 回复时模型返回的 context，供下一轮追问续接。
+ * 以 Redis 为准，本地 Caffeine 兜底；context 记录了生成时的最后消息序号，与当前对话不一致时视为失效。
+ */
+@Component
+public class ConversationContextStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationContextStore.class);
+    private static final String KEY_PREFIX = "healthai:consult:context:";
+    private static final int LOCAL_MAXIMUM_SIZE = 10_000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Cache<Long, ConversationContext> localCache;
+
+    public ConversationContextStore(StringRedisTemplate redisTemplate,
+                                    ObjectMapper objectMapper,
+                                    ConsultationAiProperties aiProperties) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = aiProperties.getContextTtl();
+        this.localCache = Caffeine.newBuilder()
+            .maximumSize(LOCAL_MAXIMUM_SIZE)
+            .expireAfterWrite(ttl)
+            .build();
+    }
+
+    public Optional<ConversationContext> find(Long consultationId) {
+        try {
+            String json = redisTemplate.opsForValue().get(KEY_PREFIX + consultationId);
+            if (json != null) {
+                return Optional.of(objectMapper.readValue(json, ConversationContext.class));
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("问诊 context 反序列化失败, consultationId={}", consultationId, e);
+        } catch (RuntimeException e) {
+            log.warn("读取 Redis 问诊 context 失败, consultationId={}", consultationId, e);
+        }
+        return Optional.ofNullable(localCache.getIfPresent(consultationId));
+    }
+
+    public void save(Long consultationId, ConversationContext context) {
+        if (context.tokens() == null || context.tokens().isEmpty()) {
+            evict(consultationId);
+            return;
+        }
+        localCache.put(consultationId, context);
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + consultationId, objectMapper.writeValueAsString(context), ttl);
+        } catch (JsonProcessingException e) {
+            log.warn("问诊 context 序列化失败, consultationId={}", consultationId, e);
+        } catch (RuntimeException e) {
+            log.warn("写入 Redis 问诊 context 失败, consultationId={}", consultationId, e);
+        }
+    }
+
+    public void evict(Long consultationId) {
+        localCache.invalidate(consultationId);
+        try {
+            redisTemplate.delete(KEY_PREFIX + consultationId);
+        } catch (RuntimeException e) {
+            log.warn("删除 Redis 问诊 context 失败, consultationId={}", consultationId, e);
+        }
+    }
+
+    /**
+     * @param lastSequenceNo 该 context 覆盖到的最后一条消息序号
+     */
+    public record ConversationContext(int lastSequenceNo, PromptChannel channel, String model, List<Integer> tokens) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.healthai.consult.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import com.example.healthai.consult.domain.ConsultationMessage;
+import com.example.healthai.consult.domain.ConsultationMessageRole;
+import com.example.healthai.llm.token.TokenEstimator;
+
+/**
+ * 无法续接模型 context 时，把历史对话拼成受 token 预算约束的文本：
+ * 首轮患者描述与 AI 初诊作为锚点始终保留，其余按时间倒序尽量放入最近的对话，被省略的部分以一行说明代替。
+ */
+final class ConversationWindow {
+
+    private static final int ANCHOR_SIZE = 2;
+
+    private ConversationWindow() {
+    }
+
+    static String render(List<ConsultationMessage> messages, int tokenBudget, TokenEstimator estimator) {
+        if (messages.isEmpty()) {
+            return "";
+        }
+        int anchorCount = Math.min(ANCHOR_SIZE, messages.size());
+        List<String> anchor = messages.subList(0, anchorCount).stream()
+            .map(ConversationWindow::line)
+            .toList();
+        int remaining = tokenBudget - anchor.stream().mapToInt(estimator::estimate).sum();
+
+        Deque<String> recent = new ArrayDeque<>();
+        int index = messages.size() - 1;
+        for (; index >= anchorCount; index--) {
+            String line = line(messages.get(index));
+            int tokens = estimator.estimate(line);
+            if (tokens > remaining) {
+                break;
+            }
+            remaining -= tokens;
+            recent.addFirst(line);
+        }
+
+        StringBuilder history = new StringBuilder();
+        anchor.forEach(line -> history.append(line).append('\n'));
+        int omitted = index - anchorCount + 1;
+        if (omitted > 0) {
+            history.append("（中间省略 ").append(omitted).append(" 条对话）\n");
+        }
+        recent.forEach(line -> history.append(line).append('\n'));
+        return history.toString();
+    }
+
+    private static String line(ConsultationMessage message) {
+        return label(message.getRole()) + "：" + message.getContent();
+    }
+
+    private static String label(ConsultationMessageRole role) {
+        return switch (role) {
+            case PATIENT -> "患者";
+            case AI -> "AI 助手";
+            case DOCTOR -> "医生";
+            case SYSTEM -> "系统";
+        };
+    }
+}
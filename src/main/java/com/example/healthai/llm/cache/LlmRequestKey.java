@@ -0,0 +1,51 @@
+package com.example.healthai.llm.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.example.healthai.llm.client.LlmRequest;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+/**
+ * 以 (渠道, 模型, 渲染后的提示词, temperature, maxTokens, options, context) 计算请求指纹，
+ * 响应缓存与在途请求合并共用同一套键。
+ */
+public final class LlmRequestKey {
+
+    private static final char SEPARATOR = '\u0000';
+
+    private LlmRequestKey() {
+    }
+
+    public static String of(PromptChannel channel, LlmRequest request) {
+        StringBuilder canonical = new StringBuilder()
+            .append(channel).append(SEPARATOR)
+            .append(request.getModel()).append(SEPARATOR)
+            .append(request.getTemperature()).append(SEPARATOR)
+            .append(request.getMaxTokens()).append(SEPARATOR)
+            .append(canonicalOptions(request.getOptions())).append(SEPARATOR)
+            .append(request.getContext() == null ? "" : request.getContext()).append(SEPARATOR)
+            .append(request.getPrompt());
+        return sha256(canonical.toString());
+    }
+
+    private static String canonicalOptions(Map<String, Object> options) {
+        if (options == null || options.isEmpty()) {
+            return "";
+        }
+        return new TreeMap<>(options).toString();
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.healthai.llm.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.healthai.llm.client.LlmResponse;
+import com.example.healthai.llm.config.LlmProperties;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 大模型响应的两级缓存：本地 Caffeine（W-TinyLFU 淘汰）+ Redis。
+ * Redis 不可用时仅记录日志并降级为本地缓存，不影响正常调用。
+ */
+@Component
+public class LlmResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmResponseCache.class);
+    private static final String METRIC_NAME = "healthai.llm.response.cache";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final LlmProperties.ResponseCacheProperties properties;
+    private final Cache<String, CachedResponse> localCache;
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    public LlmResponseCache(StringRedisTemplate redisTemplate,
+                            ObjectMapper objectMapper,
+                            LlmProperties llmProperties,
+                            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = llmProperties.getResponseCache();
+        this.localCache = Caffeine.newBuilder()
+            .maximumSize(properties.getLocalMaximumSize())
+            .expireAfter(new LocalTtlExpiry())
+            .build();
+        this.localHits = hitCounter(meterRegistry, "hit", "local");
+        this.redisHits = hitCounter(meterRegistry, "hit", "redis");
+        this.misses = hitCounter(meterRegistry, "miss", "none");
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public Optional<LlmResponse> get(String key) {
+        long start = System.nanoTime();
+        CachedResponse cached = localCache.getIfPresent(key);
+        if (cached != null) {
+            localHits.increment();
+            return Optional.of(cached.toResponse(Duration.ofNanos(System.nanoTime() - start)));
+        }
+        cached = readRemote(key);
+        if (cached != null) {
+            redisHits.increment();
+            localCache.put(key, cached.withLocalTtl(properties.getLocalTtl()));
+            return Optional.of(cached.toResponse(Duration.ofNanos(System.nanoTime() - start)));
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String key, LlmResponse response, Duration ttl) {
+        if (response == null || response.getContent() == null || ttl == null || ttl.isZero() || ttl.isNegative()) {
+            return;
+        }
+        Duration localTtl = ttl.compareTo(properties.getLocalTtl()) < 0 ? ttl : properties.getLocalTtl();
+        CachedResponse cached = CachedResponse.of(response, localTtl);
+        localCache.put(key, cached);
+        writeRemote(key, cached, ttl);
+    }
+
+    private CachedResponse readRemote(String key) {
+        if (!properties.isRedisEnabled()) {
+            return null;
+        }
+        try {
+            String json = redisTemplate.opsForValue().get(properties.getKeyPrefix() + key);
+            return json == null ? null : objectMapper.readValue(json, CachedResponse.class);
+        } catch (JsonProcessingException e) {
+            log.warn("大模型响应缓存反序列化失败, key={}", key, e);
+            return null;
+        } catch (RuntimeException e) {
+            log.warn("读取 Redis 响应缓存失败, key={}", key, e);
+            return null;
+        }
+    }
+
+    private void writeRemote(String key, CachedResponse cached, Duration ttl) {
+        if (!properties.isRedisEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(properties.getKeyPrefix() + key, objectMapper.writeValueAsString(cached), ttl);
+        } catch (JsonProcessingException e) {
+            log.warn("大模型响应缓存序列化失败, key={}", key, e);
+        } catch (RuntimeException e) {
+            log.warn("写入 Redis 响应缓存失败, key={}", key, e);
+        }
+    }
+
+    private static Counter hitCounter(MeterRegistry registry, String result, String tier) {
+        return Counter.builder(METRIC_NAME)
+            .description("大模型响应缓存命中情况")
+            .tag("result", result)
+            .tag("tier", tier)
+            .register(registry);
+    }
+
+    /**
+     * 按条目各自的本地 TTL 过期，读取不续期。
+     */
+    private static final class LocalTtlExpiry implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+            return value.localTtl().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return value.localTtl().toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    record CachedResponse(String content,
+                          Integer promptTokens,
+                          Integer completionTokens,
+                          String model,
+                          Duration localTtl) {
+
+        static CachedResponse of(LlmResponse response, Duration localTtl) {
+            return new CachedResponse(response.getContent(), response.getPromptTokens(),
+                response.getCompletionTokens(), response.getModel(), localTtl);
+        }
+
+        CachedResponse withLocalTtl(Duration ttl) {
+            return new CachedResponse(content, promptTokens, completionTokens, model, ttl);
+        }
+
+        LlmResponse toResponse(Duration latency) {
+            return LlmResponse.builder()
+                .content(content)
+                .promptTokens(promptTokens)
+                .completionTokens(completionTokens)
+                .model(model)
+                .latency(latency)
+                .build();
+        }
+    }
+}
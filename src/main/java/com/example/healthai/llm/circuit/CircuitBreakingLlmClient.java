@@ -0,0 +1,100 @@
+package com.example.healthai.llm.circuit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.llm.client.LlmClient;
+import com.example.healthai.llm.client.LlmFailures;
+import com.example.healthai.llm.client.LlmRequest;
+import com.example.healthai.llm.client.LlmResponse;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 按 渠道 + 模型 维度熔断：熔断打开时直接抛出 {@link ErrorCode#LLM_CIRCUIT_OPEN}，
+ * 由 {@code PromptService} 切换到另一渠道。
+ */
+public class CircuitBreakingLlmClient implements LlmClient {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreakingLlmClient.class);
+    private static final String DEFAULT_MODEL = "default";
+
+    private final LlmClient delegate;
+    private final Function<String, SlidingWindowCircuitBreaker> breakerFactory;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, SlidingWindowCircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakingLlmClient(LlmClient delegate,
+                                    Function<String, SlidingWindowCircuitBreaker> breakerFactory,
+                                    MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.breakerFactory = breakerFactory;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public PromptChannel channel() {
+        return delegate.channel();
+    }
+
+    @Override
+    public LlmResponse generate(LlmRequest request) {
+        return execute(request, () -> delegate.generate(request));
+    }
+
+    @Override
+    public LlmResponse stream(LlmRequest request, Consumer<String> tokenConsumer) {
+        return execute(request, () -> delegate.stream(request, tokenConsumer));
+    }
+
+    private LlmResponse execute(LlmRequest request, Supplier<LlmResponse> call) {
+        String model = request.getModel() == null ? DEFAULT_MODEL : request.getModel();
+        SlidingWindowCircuitBreaker breaker = breakers.computeIfAbsent(model, this::createBreaker);
+        if (!breaker.tryAcquirePermission()) {
+            throw new BusinessException(ErrorCode.LLM_CIRCUIT_OPEN,
+                "大模型渠道 " + channel() + "/" + model + " 已熔断");
+        }
+        long start = System.nanoTime();
+        try {
+            LlmResponse response = call.get();
+            breaker.onSuccess(System.nanoTime() - start);
+            return response;
+        } catch (BusinessException e) {
+            // 4xx、模型未配置、返回为空不代表渠道故障，不计入失败率
+            if (LlmFailures.isBackendFailure(e.getErrorCode())) {
+                SlidingWindowCircuitBreaker.State before = breaker.getState();
+                breaker.onError();
+                if (before != SlidingWindowCircuitBreaker.State.OPEN
+                    && breaker.getState() == SlidingWindowCircuitBreaker.State.OPEN) {
+                    log.warn("大模型渠道 {}/{} 熔断打开", channel(), model);
+                }
+            } else {
+                breaker.onIgnored();
+            }
+            throw e;
+        } catch (RuntimeException | Error e) {
+            breaker.onIgnored();
+            throw e;
+        }
+    }
+
+    private SlidingWindowCircuitBreaker createBreaker(String model) {
+        SlidingWindowCircuitBreaker breaker = breakerFactory.apply(model);
+        Gauge.builder("healthai.llm.circuit.state", breaker, b -> b.getState().ordinal())
+            .description("熔断器状态：0=CLOSED，1=HALF_OPEN，2=OPEN")
+            .tag("channel", channel().name())
+            .tag("model", model)
+            .register(meterRegistry);
+        return breaker;
+    }
+}
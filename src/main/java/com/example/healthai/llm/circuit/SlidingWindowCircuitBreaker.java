@@ -0,0 +1,158 @@
+package com.example.healthai.llm.circuit;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * 基于最近 N 次调用的计数滑动窗口熔断器。
+ * <ul>
+ *     <li>CLOSED：窗口内调用数达到最小值且失败率或慢调用率超过阈值时打开；</li>
+ *     <li>OPEN：拒绝所有调用，等待 openDuration 后进入 HALF_OPEN；</li>
+ *     <li>HALF_OPEN：放行有限个探测请求，全部成功则关闭，任一失败重新打开。</li>
+ * </ul>
+ */
+public class SlidingWindowCircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private static final byte SUCCESS = 0;
+    private static final byte SLOW = 1;
+    private static final byte FAILURE = 2;
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallThresholdNanos;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+    private final LongSupplier nanoClock;
+
+    private final byte[] window;
+    private int windowIndex;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+    private int probesSucceeded;
+
+    public SlidingWindowCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                                       double slowCallRateThreshold, Duration slowCallThreshold,
+                                       Duration openDuration, int halfOpenProbes) {
+        this(windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold, slowCallThreshold,
+            openDuration, halfOpenProbes, System::nanoTime);
+    }
+
+    SlidingWindowCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                                double slowCallRateThreshold, Duration slowCallThreshold,
+                                Duration openDuration, int halfOpenProbes, LongSupplier nanoClock) {
+        this.window = new byte[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallThresholdNanos = slowCallThreshold.toNanos();
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+        this.nanoClock = nanoClock;
+    }
+
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openDurationNanos) {
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+            probesSucceeded = 0;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probesInFlight + probesSucceeded >= halfOpenProbes) {
+                    yield false;
+                }
+                probesInFlight++;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess(long latencyNanos) {
+        boolean slow = latencyNanos > slowCallThresholdNanos;
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (slow) {
+                transitionToOpen();
+            } else if (++probesSucceeded >= halfOpenProbes) {
+                transitionToClosed();
+            }
+            return;
+        }
+        record(slow ? SLOW : SUCCESS);
+    }
+
+    public synchronized void onError() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            transitionToOpen();
+            return;
+        }
+        record(FAILURE);
+    }
+
+    /**
+     * 已获得许可但调用因与后端健康无关的原因结束，只归还半开探测名额。
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(byte outcome) {
+        if (state != State.CLOSED) {
+            return;
+        }
+        if (recorded == window.length) {
+            byte evicted = window[windowIndex];
+            if (evicted == FAILURE) {
+                failures--;
+            } else if (evicted == SLOW) {
+                slowCalls--;
+            }
+        } else {
+            recorded++;
+        }
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % window.length;
+        if (outcome == FAILURE) {
+            failures++;
+        } else if (outcome == SLOW) {
+            slowCalls++;
+        }
+        if (recorded >= minimumCalls
+            && (failures * 100.0 / recorded >= failureRateThreshold
+                || slowCalls * 100.0 / recorded >= slowCallRateThreshold)) {
+            transitionToOpen();
+        }
+    }
+
+    private void transitionToOpen() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+    }
+
+    private void transitionToClosed() {
+        state = State.CLOSED;
+        windowIndex = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
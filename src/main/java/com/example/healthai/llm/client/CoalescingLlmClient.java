@@ -0,0 +1,136 @@
+package com.example.healthai.llm.client;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.llm.cache.LlmRequestKey;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 单飞（single-flight）装饰器：相同指纹的请求在途时，后来者等待首个请求的结果，而不是再发起一次推理。
+ * 流式调用的跟随者在首个请求结束后一次性收到完整内容。
+ */
+public class CoalescingLlmClient implements LlmClient {
+
+    private static final Logger log = LoggerFactory.getLogger(CoalescingLlmClient.class);
+
+    private final LlmClient delegate;
+    private final int maxWaiters;
+    private final Duration waitTimeout;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCalls;
+
+    public CoalescingLlmClient(LlmClient delegate, int maxWaiters, Duration waitTimeout, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.maxWaiters = maxWaiters;
+        this.waitTimeout = waitTimeout;
+        String channel = delegate.channel().name();
+        this.coalescedCalls = Counter.builder("healthai.llm.coalesced")
+            .description("合并到在途相同请求的调用次数")
+            .tag("channel", channel)
+            .register(meterRegistry);
+        Gauge.builder("healthai.llm.inflight.keys", inFlight, ConcurrentMap::size)
+            .description("在途的不同请求指纹数")
+            .tag("channel", channel)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public PromptChannel channel() {
+        return delegate.channel();
+    }
+
+    @Override
+    public LlmResponse generate(LlmRequest request) {
+        return execute(request, () -> delegate.generate(request), null);
+    }
+
+    @Override
+    public LlmResponse stream(LlmRequest request, Consumer<String> tokenConsumer) {
+        return execute(request, () -> delegate.stream(request, tokenConsumer), tokenConsumer);
+    }
+
+    private LlmResponse execute(LlmRequest request, Supplier<LlmResponse> call, Consumer<String> followerConsumer) {
+        String key = LlmRequestKey.of(channel(), request);
+        InFlight leader = new InFlight();
+        InFlight existing = inFlight.putIfAbsent(key, leader);
+        if (existing == null) {
+            return lead(key, leader, call);
+        }
+        if (existing.waiters.incrementAndGet() > maxWaiters) {
+            existing.waiters.decrementAndGet();
+            log.debug("相同请求等待者已达上限 {}，独立发起调用", maxWaiters);
+            return call.get();
+        }
+        coalescedCalls.increment();
+        LlmResponse response;
+        try {
+            response = await(existing);
+        } catch (BusinessException e) {
+            // 首个请求因对冲落败被取消，结果与本调用无关，改为独立发起
+            if (e.getErrorCode() != ErrorCode.LLM_CALL_CANCELLED || LlmCallCancellation.isCurrentCancelled()) {
+                throw e;
+            }
+            log.debug("合并的首个请求已被取消，独立发起调用");
+            return call.get();
+        }
+        if (followerConsumer != null) {
+            followerConsumer.accept(response.getContent());
+        }
+        return response;
+    }
+
+    private LlmResponse lead(String key, InFlight leader, Supplier<LlmResponse> call) {
+        try {
+            LlmResponse response = call.get();
+            leader.future.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            leader.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, leader);
+        }
+    }
+
+    private LlmResponse await(InFlight existing) {
+        try {
+            return existing.future.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new BusinessException(ErrorCode.LLM_TIMEOUT, "等待相同请求结果超时", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "等待相同请求结果被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "大模型调用失败", e.getCause());
+        } finally {
+            existing.waiters.decrementAndGet();
+        }
+    }
+
+    private static final class InFlight {
+
+        private final CompletableFuture<LlmResponse> future = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.healthai.llm.client;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.apache.hc.core5.concurrent.Cancellable;
+
+/**
+ * 绑定在调用线程上的取消范围。范围内由 LLM 请求工厂创建的 HTTP 请求都会登记在这里，
+ * {@link #cancel()} 时逐个 abort：阻塞在 socket 读上的调用立即失败，连接被丢弃而不是一直占用到读超时，
+ * 外层的并发额度也随之释放。线程中断做不到这一点，经典 HttpClient 的阻塞读不响应中断。
+ */
+public final class LlmCallCancellation {
+
+    private static final ThreadLocal<LlmCallCancellation> CURRENT = new ThreadLocal<>();
+
+    private final Set<Cancellable> requests = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    /**
+     * 在当前线程上以本范围执行调用，结束后恢复原来的范围。
+     */
+    public <T> T call(Supplier<T> task) {
+        LlmCallCancellation previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        requests.forEach(Cancellable::cancel);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 当前线程所在的范围是否已被取消；取消引起的失败不应再重试，也不应计入限流与熔断统计。
+     */
+    public static boolean isCurrentCancelled() {
+        LlmCallCancellation scope = CURRENT.get();
+        return scope != null && scope.cancelled;
+    }
+
+    /**
+     * 由请求工厂在创建 HTTP 请求时调用；范围已取消时请求直接 abort，不会再发出。
+     */
+    public static void register(Cancellable request) {
+        LlmCallCancellation scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        scope.requests.add(request);
+        if (scope.cancelled) {
+            request.cancel();
+        }
+    }
+
+    /**
+     * 脱离当前范围执行，用于替多个调用方发出的共享请求（如微批），避免一个调用方取消时波及其他调用方。
+     */
+    public static <T> T detached(Supplier<T> task) {
+        LlmCallCancellation previous = CURRENT.get();
+        CURRENT.remove();
+        try {
+            return task.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    private static void restore(LlmCallCancellation previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
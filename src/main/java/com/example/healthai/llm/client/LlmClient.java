@@ -1,5 +1,7 @@
 package com.example.healthai.llm.client;
 
+import java.util.function.Consumer;
+
 import com.example.healthai.prompt.domain.PromptChannel;
 
 public interface LlmClient {
@@ -7,4 +9,14 @@ public interface LlmClient {
     PromptChannel channel();
 
     LlmResponse generate(LlmRequest request);
+
+    /**
+     * 流式生成：每收到一段增量文本即回调 {@code tokenConsumer}，结束后返回汇总结果。
+     * 默认实现退化为一次性生成，不支持流式的渠道无需覆盖。
+     */
+    default LlmResponse stream(LlmRequest request, Consumer<String> tokenConsumer) {
+        LlmResponse response = generate(request);
+        tokenConsumer.accept(response.getContent());
+        return response;
+    }
 }
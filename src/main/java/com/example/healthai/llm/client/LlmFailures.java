@@ -0,0 +1,38 @@
+package com.example.healthai.llm.client;
+
+import org.springframework.http.HttpStatusCode;
+
+import com.example.healthai.common.exception.ErrorCode;
+
+/**
+ * 大模型调用失败的分类。客户端按 HTTP 状态码选择错误码，限流、熔断与渠道切换据此判断失败是否与后端健康有关。
+ */
+public final class LlmFailures {
+
+    private LlmFailures() {
+    }
+
+    /**
+     * 429 与 5xx 说明后端过载或故障，映射为 {@link ErrorCode#LLM_CALL_FAILED}；
+     * 其余 4xx 是请求本身的问题，映射为 {@link ErrorCode#LLM_CALL_INVALID}。
+     */
+    public static ErrorCode forStatus(HttpStatusCode status) {
+        return status.value() == 429 || status.is5xxServerError() ? ErrorCode.LLM_CALL_FAILED : ErrorCode.LLM_CALL_INVALID;
+    }
+
+    /**
+     * 超时、429 与 5xx。请求被拒、模型未配置、返回为空等失败与后端负载无关。
+     */
+    public static boolean isBackendFailure(ErrorCode errorCode) {
+        return errorCode == ErrorCode.LLM_TIMEOUT || errorCode == ErrorCode.LLM_CALL_FAILED;
+    }
+
+    /**
+     * 后端失败以及本地熔断、限流拒绝时切换渠道；请求被拒绝或返回无效时换渠道也无济于事，直接失败。
+     */
+    public static boolean isFailoverEligible(ErrorCode errorCode) {
+        return isBackendFailure(errorCode)
+            || errorCode == ErrorCode.LLM_CIRCUIT_OPEN
+            || errorCode == ErrorCode.LLM_OVERLOADED;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.healthai.llm.client;
 
+import java.util.List;
 import java.util.Map;
 
 import lombok.Builder;
@@ -14,4 +15,9 @@ public class LlmRequest {
     private final Map<String, Object> options;
     private final Integer maxTokens;
     private final Double temperature;
+
+    /**
+     * 上一轮 Ollama 返回的 context token 序列，携带时模型直接续接，不再重新评估历史对话。
+     */
+    private final List<Integer> context;
 }
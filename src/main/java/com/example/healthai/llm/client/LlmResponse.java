@@ -1,6 +1,7 @@
 package com.example.healthai.llm.client;
 
 import java.time.Duration;
+import java.util.List;
 
 import lombok.Builder;
 import lombok.Getter;
@@ -14,4 +15,9 @@ public class LlmResponse {
     private final Integer completionTokens;
     private final Duration latency;
     private final String model;
+
+    /**
+     * Ollama 在生成结束时返回的对话 context，可用于下一轮续接。
+     */
+    private final List<Integer> context;
 }
@@ -1,10 +1,18 @@
 package com.example.healthai.llm.client.http;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,21 +27,47 @@ import org.springframework.web.client.RestClientResponseException;
 import com.example.healthai.common.exception.BusinessException;
 import com.example.healthai.common.exception.ErrorCode;
 import com.example.healthai.llm.client.LlmClient;
+import com.example.healthai.llm.client.LlmFailures;
 import com.example.healthai.llm.client.LlmRequest;
 import com.example.healthai.llm.client.LlmResponse;
 import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.llm.retry.LlmRetryPolicy;
 import com.example.healthai.prompt.domain.PromptChannel;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
-@RequiredArgsConstructor
 public class HttpApiLlmClient implements LlmClient {
 
     private static final Logger log = LoggerFactory.getLogger(HttpApiLlmClient.class);
+    private static final String SSE_DATA_PREFIX = "data:";
+    private static final String SSE_DONE = "[DONE]";
 
     private final RestClient restClient;
     private final LlmProperties.HttpApiProperties properties;
+    private final ObjectMapper objectMapper;
+    private final LlmRetryPolicy retryPolicy;
+    private final MicroBatcher<BatchKey, String, LlmResponse> batcher;
+
+    public HttpApiLlmClient(RestClient restClient, LlmProperties.HttpApiProperties properties, ObjectMapper objectMapper,
+                            LlmRetryPolicy retryPolicy, MeterRegistry meterRegistry) {
+        this.restClient = restClient;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.retryPolicy = retryPolicy;
+        LlmProperties.BatchingProperties batching = properties.getBatching();
+        this.batcher = batching != null && batching.isEnabled()
+            ? new MicroBatcher<>(batching.getWindow(), batching.getMaxBatchSize(), this::sendBatch, meterRegistry,
+                PromptChannel.HTTP_API.name())
+            : null;
+    }
 
     @Override
     public PromptChannel channel() {
@@ -42,93 +76,247 @@ public class HttpApiLlmClient implements LlmClient {
 
     @Override
     public LlmResponse generate(LlmRequest request) {
-        if (!StringUtils.hasText(properties.getModel()) && !StringUtils.hasText(request.getModel())) {
-            throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "未配置 HTTP API 模型");
+        String model = resolveModel(request);
+
+        try {
+            if (batcher != null) {
+                BatchKey key = new BatchKey(model, request.getMaxTokens(), request.getTemperature(), request.getOptions());
+                LlmResponse response = batcher.submit(key, request.getPrompt());
+                if (response == null) {
+                    throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "HTTP 模型返回为空");
+                }
+                return response;
+            }
+            HttpCompletionRequest payload = new HttpCompletionRequest(model, request.getPrompt(), request.getMaxTokens(),
+                request.getTemperature(), request.getOptions(), null);
+            return retryPolicy.execute(channel(), maxRetries(), () -> doGenerate(payload, model));
+        } catch (ResourceAccessException ex) {
+            log.warn("[HTTP LLM] 调用超时", ex);
+            throw new BusinessException(ErrorCode.LLM_TIMEOUT, "HTTP 模型响应超时", ex);
+        } catch (RestClientResponseException ex) {
+            log.error("[HTTP LLM] 调用失败: status={} body={}", ex.getStatusCode(), ex.getResponseBodyAsString(), ex);
+            throw new BusinessException(LlmFailures.forStatus(ex.getStatusCode()), "HTTP 模型调用失败: " + ex.getStatusText(), ex);
+        } catch (RestClientException ex) {
+            log.warn("[HTTP LLM] 调用异常", ex);
+            throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "HTTP 模型调用异常", ex);
+        }
+    }
+
+    private LlmResponse doGenerate(HttpCompletionRequest payload, String model) {
+        Instant start = Instant.now();
+        HttpCompletionResponse response = restClient.post()
+            .uri(properties.getCompletionPath())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(payload)
+            .retrieve()
+            .body(HttpCompletionResponse.class);
+
+        String content = extractContent(response);
+        if (!StringUtils.hasText(content)) {
+            throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "HTTP 模型返回为空");
         }
 
-        String model = StringUtils.hasText(request.getModel()) ? request.getModel() : properties.getModel();
+        Duration latency = Duration.between(start, Instant.now());
+        Integer promptTokens = response != null && response.getUsage() != null ? response.getUsage().getPromptTokens() : null;
+        Integer completionTokens = response != null && response.getUsage() != null ? response.getUsage().getCompletionTokens() : null;
+
+        return LlmResponse.builder()
+            .content(content)
+            .promptTokens(promptTokens)
+            .completionTokens(completionTokens)
+            .latency(latency)
+            .model(model)
+            .build();
+    }
+
+    /**
+     * 发送一批参数相同的请求，返回值按 prompts 顺序排列；单条请求沿用普通格式，以保留准确的 usage。
+     * 批量响应的 usage 是整批合计，无法拆分到单条请求，因此批量结果不带 token 计数。
+     */
+    private List<LlmResponse> sendBatch(BatchKey key, List<String> prompts) {
+        if (prompts.size() == 1) {
+            HttpCompletionRequest payload = new HttpCompletionRequest(key.model(), prompts.get(0), key.maxTokens(),
+                key.temperature(), key.options(), null);
+            return List.of(retryPolicy.execute(channel(), maxRetries(), () -> doGenerate(payload, key.model())));
+        }
+        HttpCompletionRequest payload = new HttpCompletionRequest(key.model(), prompts, key.maxTokens(),
+            key.temperature(), key.options(), null);
+        return retryPolicy.execute(channel(), maxRetries(), () -> doGenerateBatch(payload, key.model(), prompts.size()));
+    }
+
+    private List<LlmResponse> doGenerateBatch(HttpCompletionRequest payload, String model, int size) {
+        Instant start = Instant.now();
+        HttpCompletionResponse response = restClient.post()
+            .uri(properties.getCompletionPath())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(payload)
+            .retrieve()
+            .body(HttpCompletionResponse.class);
+        if (response == null || CollectionUtils.isEmpty(response.getChoices())) {
+            throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "HTTP 模型返回为空");
+        }
+
+        Duration latency = Duration.between(start, Instant.now());
+        LlmResponse[] results = new LlmResponse[size];
+        List<HttpCompletionResponse.Choice> choices = response.getChoices();
+        for (int i = 0; i < choices.size(); i++) {
+            HttpCompletionResponse.Choice choice = choices.get(i);
+            int index = choice != null && choice.getIndex() != null ? choice.getIndex() : i;
+            String content = contentOf(choice);
+            if (index < 0 || index >= size || !StringUtils.hasText(content)) {
+                continue;
+            }
+            results[index] = LlmResponse.builder()
+                .content(content)
+                .latency(latency)
+                .model(model)
+                .build();
+        }
+        return Arrays.asList(results);
+    }
 
+    @Override
+    public LlmResponse stream(LlmRequest request, Consumer<String> tokenConsumer) {
+        String model = resolveModel(request);
         HttpCompletionRequest payload = new HttpCompletionRequest(model, request.getPrompt(), request.getMaxTokens(),
-            request.getTemperature(), request.getOptions());
-
-        RestClientException lastException = null;
-        int attempts = properties.getMaxRetries() != null && properties.getMaxRetries() > 0 ? properties.getMaxRetries() : 1;
-
-        for (int i = 0; i < attempts; i++) {
-            Instant start = Instant.now();
-            try {
-                HttpCompletionResponse response = restClient.post()
-                    .uri(properties.getCompletionPath())
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(payload)
-                    .retrieve()
-                    .body(HttpCompletionResponse.class);
-
-                String content = extractContent(response);
-                if (!StringUtils.hasText(content)) {
-                    throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "HTTP 模型返回为空");
-                }
+            request.getTemperature(), request.getOptions(), Boolean.TRUE);
+        AtomicBoolean emitted = new AtomicBoolean();
+        Consumer<String> trackingConsumer = token -> {
+            emitted.set(true);
+            tokenConsumer.accept(token);
+        };
+        Instant start = Instant.now();
+        try {
+            StreamResult result = retryPolicy.execute(channel(), maxRetries(), () -> restClient.post()
+                .uri(properties.getCompletionPath())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_JSON)
+                .body(payload)
+                .exchange((clientRequest, clientResponse) -> {
+                    if (clientResponse.getStatusCode().isError()) {
+                        throw new RestClientResponseException("HTTP LLM stream failed", clientResponse.getStatusCode(),
+                            clientResponse.getStatusText(), clientResponse.getHeaders(),
+                            clientResponse.getBody().readAllBytes(), StandardCharsets.UTF_8);
+                    }
+                    return readStream(clientResponse.getBody(), trackingConsumer);
+                }), () -> !emitted.get());
+
+            if (result == null || !StringUtils.hasText(result.content())) {
+                throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "HTTP 模型返回为空");
+            }
+            HttpCompletionResponse.Usage usage = result.usage();
+            return LlmResponse.builder()
+                .content(result.content())
+                .promptTokens(usage != null ? usage.getPromptTokens() : null)
+                .completionTokens(usage != null ? usage.getCompletionTokens() : null)
+                .latency(Duration.between(start, Instant.now()))
+                .model(model)
+                .build();
+        } catch (ResourceAccessException ex) {
+            log.warn("[HTTP LLM] 流式调用超时", ex);
+            throw new BusinessException(ErrorCode.LLM_TIMEOUT, "HTTP 模型响应超时", ex);
+        } catch (RestClientResponseException ex) {
+            log.error("[HTTP LLM] 流式调用失败: status={} body={}", ex.getStatusCode(), ex.getResponseBodyAsString(), ex);
+            throw new BusinessException(LlmFailures.forStatus(ex.getStatusCode()), "HTTP 模型调用失败: " + ex.getStatusText(), ex);
+        } catch (RestClientException ex) {
+            log.warn("[HTTP LLM] 流式调用异常", ex);
+            throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "HTTP 模型调用异常", ex);
+        }
+    }
 
-                Duration latency = Duration.between(start, Instant.now());
-                Integer promptTokens = response != null && response.getUsage() != null ? response.getUsage().getPromptTokens() : null;
-                Integer completionTokens = response != null && response.getUsage() != null ? response.getUsage().getCompletionTokens() : null;
-
-                return LlmResponse.builder()
-                    .content(content)
-                    .promptTokens(promptTokens)
-                    .completionTokens(completionTokens)
-                    .latency(latency)
-                    .model(model)
-                    .build();
-            } catch (ResourceAccessException ex) {
-                lastException = ex;
-                log.warn("[HTTP LLM] 调用超时 (attempt={})", i + 1, ex);
-                if (i == attempts - 1) {
-                    throw new BusinessException(ErrorCode.LLM_TIMEOUT, "HTTP 模型响应超时", ex);
+    private int maxRetries() {
+        return properties.getMaxRetries() != null ? Math.max(0, properties.getMaxRetries()) : 0;
+    }
+
+    /**
+     * 解析 OpenAI 兼容的 SSE 流：每个 {@code data:} 行为一个增量 chunk，以 {@code [DONE]} 结束。
+     */
+    private StreamResult readStream(InputStream body, Consumer<String> tokenConsumer) throws IOException {
+        StringBuilder content = new StringBuilder();
+        HttpCompletionResponse.Usage usage = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith(SSE_DATA_PREFIX)) {
+                    continue;
+                }
+                String data = line.substring(SSE_DATA_PREFIX.length()).trim();
+                if (SSE_DONE.equals(data)) {
+                    break;
                 }
-            } catch (RestClientResponseException ex) {
-                log.error("[HTTP LLM] 调用失败: status={} body={}", ex.getStatusCode(), ex.getResponseBodyAsString(), ex);
-                throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "HTTP 模型调用失败: " + ex.getStatusText(), ex);
-            } catch (RestClientException ex) {
-                lastException = ex;
-                log.warn("[HTTP LLM] 调用异常 (attempt={})", i + 1, ex);
-                if (i == attempts - 1) {
-                    throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "HTTP 模型调用异常", ex);
+                if (data.isEmpty()) {
+                    continue;
+                }
+                HttpCompletionResponse chunk = objectMapper.readValue(data, HttpCompletionResponse.class);
+                String token = extractContent(chunk);
+                if (StringUtils.hasLength(token)) {
+                    content.append(token);
+                    tokenConsumer.accept(token);
+                }
+                if (chunk.getUsage() != null) {
+                    usage = chunk.getUsage();
                 }
             }
         }
+        return new StreamResult(content.toString(), usage);
+    }
 
-        throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "HTTP 模型调用失败", lastException);
+    private String resolveModel(LlmRequest request) {
+        if (!StringUtils.hasText(properties.getModel()) && !StringUtils.hasText(request.getModel())) {
+            throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "未配置 HTTP API 模型");
+        }
+        return StringUtils.hasText(request.getModel()) ? request.getModel() : properties.getModel();
     }
 
     private String extractContent(HttpCompletionResponse response) {
         if (response == null || CollectionUtils.isEmpty(response.getChoices())) {
             return null;
         }
-        HttpCompletionResponse.Choice first = response.getChoices().get(0);
+        return contentOf(response.getChoices().get(0));
+    }
+
+    private String contentOf(HttpCompletionResponse.Choice first) {
         if (first == null) {
             return null;
         }
-        if (StringUtils.hasText(first.getText())) {
+        if (StringUtils.hasLength(first.getText())) {
             return first.getText();
         }
+        if (first.getDelta() != null) {
+            return first.getDelta().get("content");
+        }
         return first.getMessage() != null ? first.getMessage().get("content") : null;
     }
 
+    private record StreamResult(String content, HttpCompletionResponse.Usage usage) {
+    }
+
+    /**
+     * 只有模型与生成参数完全一致的请求才能放在同一批中。
+     */
+    private record BatchKey(String model, Integer maxTokens, Double temperature, Map<String, Object> options) {
+    }
+
     @RequiredArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
     private static class HttpCompletionRequest {
 
         private final String model;
-        private final String prompt;
+        /**
+         * 单条请求为字符串，微批请求为字符串数组。
+         */
+        private final Object prompt;
         private final Integer maxTokens;
         private final Double temperature;
         private final Map<String, Object> options;
+        private final Boolean stream;
 
         public String getModel() {
             return model;
         }
 
-        public String getPrompt() {
+        public Object getPrompt() {
             return prompt;
         }
 
@@ -143,22 +331,32 @@ public class HttpApiLlmClient implements LlmClient {
         public Map<String, Object> getOptions() {
             return options == null ? Collections.emptyMap() : options;
         }
+
+        public Boolean getStream() {
+            return stream;
+        }
     }
 
     @Getter
+    @JsonIgnoreProperties(ignoreUnknown = true)
     private static class HttpCompletionResponse {
 
         private List<Choice> choices;
         private Usage usage;
 
         @Getter
+        @JsonIgnoreProperties(ignoreUnknown = true)
         private static class Choice {
 
+            private Integer index;
             private String text;
             private Map<String, String> message;
+            private Map<String, String> delta;
         }
 
         @Getter
+        @JsonIgnoreProperties(ignoreUnknown = true)
+        @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
         private static class Usage {
 
             private Integer promptTokens;
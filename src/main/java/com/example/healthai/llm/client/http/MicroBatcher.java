@@ -0,0 +1,131 @@
+package com.example.healthai.llm.client.http;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.llm.client.LlmCallCancellation;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 将同一批次键下的并发请求在短时间窗口内合成一批发送：第一个到达的调用方作为 leader，
+ * 等待窗口结束或批次装满后在自己的线程中发送整批请求，其余调用方阻塞等待结果，不额外占用线程。
+ *
+ * @param <K> 批次键，只有批次级参数完全一致的请求才能合批
+ * @param <T> 单个请求
+ * @param <R> 单个结果，发送方按请求顺序返回
+ */
+final class MicroBatcher<K, T, R> {
+
+    private final Duration window;
+    private final int maxBatchSize;
+    private final BiFunction<K, List<T>, List<R>> sender;
+    private final DistributionSummary batchSize;
+    private final Timer windowWait;
+    private final Object lock = new Object();
+    private final Map<K, Batch<T, R>> open = new HashMap<>();
+
+    MicroBatcher(Duration window, int maxBatchSize, BiFunction<K, List<T>, List<R>> sender,
+                 MeterRegistry meterRegistry, String channel) {
+        this.window = window;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.sender = sender;
+        this.batchSize = DistributionSummary.builder("healthai.llm.batch.size")
+            .description("每次发送的批次包含的请求数")
+            .tag("channel", channel)
+            .serviceLevelObjectives(1, 2, 4, 8, 16, 32)
+            .register(meterRegistry);
+        this.windowWait = Timer.builder("healthai.llm.batch.window")
+            .description("批次从开启到发送的等待时间")
+            .tag("channel", channel)
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return 发送方为该请求返回的结果，可能为 null
+     */
+    R submit(K key, T item) {
+        Batch<T, R> batch;
+        int slot;
+        boolean leader;
+        synchronized (lock) {
+            batch = open.get(key);
+            leader = batch == null;
+            if (leader) {
+                batch = new Batch<>();
+                open.put(key, batch);
+            }
+            slot = batch.items.size();
+            batch.items.add(item);
+            if (batch.items.size() >= maxBatchSize) {
+                open.remove(key);
+                batch.full.countDown();
+            }
+        }
+        if (leader) {
+            long start = System.nanoTime();
+            awaitWindow(batch);
+            List<T> items;
+            synchronized (lock) {
+                open.remove(key, batch);
+                items = List.copyOf(batch.items);
+            }
+            windowWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            dispatch(key, batch, items);
+        }
+        return batch.result(slot);
+    }
+
+    private void awaitWindow(Batch<T, R> batch) {
+        try {
+            batch.full.await(window.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch(K key, Batch<T, R> batch, List<T> items) {
+        batchSize.record(items.size());
+        try {
+            // 整批请求代表所有调用方发出，不随首个调用方的对冲取消而中止
+            batch.results.complete(LlmCallCancellation.detached(() -> sender.apply(key, items)));
+        } catch (RuntimeException | Error e) {
+            batch.results.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static final class Batch<T, R> {
+
+        private final List<T> items = new ArrayList<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+        private final CompletableFuture<List<R>> results = new CompletableFuture<>();
+
+        private R result(int slot) {
+            try {
+                List<R> values = results.get();
+                return slot < values.size() ? values.get(slot) : null;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "批量调用失败", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "等待批量调用结果时被中断", e);
+            }
+        }
+    }
+}
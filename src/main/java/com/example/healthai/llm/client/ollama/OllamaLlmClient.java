@@ -1,8 +1,16 @@
 package com.example.healthai.llm.client.ollama;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,11 +24,20 @@ import org.springframework.web.client.RestClientResponseException;
 import com.example.healthai.common.exception.BusinessException;
 import com.example.healthai.common.exception.ErrorCode;
 import com.example.healthai.llm.client.LlmClient;
+import com.example.healthai.llm.client.LlmFailures;
 import com.example.healthai.llm.client.LlmRequest;
 import com.example.healthai.llm.client.LlmResponse;
 import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.llm.retry.LlmRetryPolicy;
+import com.example.healthai.llm.warmup.ModelWarmthTracker;
 import com.example.healthai.prompt.domain.PromptChannel;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
@@ -30,72 +47,189 @@ public class OllamaLlmClient implements LlmClient {
 
     private final RestClient restClient;
     private final LlmProperties.OllamaProperties properties;
+    private final ObjectMapper objectMapper;
+    private final LlmRetryPolicy retryPolicy;
+    private final ModelWarmthTracker warmthTracker;
 
-    public OllamaLlmClient(RestClient restClient, LlmProperties.OllamaProperties properties) {
+    public OllamaLlmClient(RestClient restClient, LlmProperties.OllamaProperties properties, ObjectMapper objectMapper,
+                           LlmRetryPolicy retryPolicy, ModelWarmthTracker warmthTracker) {
         this.restClient = restClient;
         this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.retryPolicy = retryPolicy;
+        this.warmthTracker = warmthTracker;
     }
 
     @Override
     public PromptChannel channel() {
         return PromptChannel.OLLAMA;
     }
+
     @Override
     public LlmResponse generate(LlmRequest request) {
+        String model = resolveModel(request);
+        OllamaRequest payload = new OllamaRequest(model, request.getPrompt(), request.getOptions(), request.getMaxTokens(),
+            request.getTemperature(), request.getContext(), keepAliveSeconds(model), false);
+        try {
+            return retryPolicy.execute(channel(), maxRetries(), () -> doGenerate(payload, model));
+        } catch (ResourceAccessException ex) {
+            log.warn("[Ollama] 调用超时", ex);
+            throw new BusinessException(ErrorCode.LLM_TIMEOUT, "Ollama 响应超时", ex);
+        } catch (RestClientResponseException ex) {
+            log.error("[Ollama] 调用失败: status={} body={}", ex.getStatusCode(), ex.getResponseBodyAsString(), ex);
+            throw new BusinessException(LlmFailures.forStatus(ex.getStatusCode()), "Ollama 调用失败: " + ex.getStatusText(), ex);
+        } catch (RestClientException ex) {
+            log.warn("[Ollama] 调用异常", ex);
+            throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "Ollama 调用异常", ex);
+        }
+    }
 
-        String model = StringUtils.hasText(request.getModel()) ? request.getModel() : properties.getModel();
-        if (!StringUtils.hasText(model)) {
-            throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "未配置 Ollama 模型");
+    private LlmResponse doGenerate(OllamaRequest payload, String model) {
+        Instant start = Instant.now();
+        OllamaResponse response = restClient.post()
+            .uri("/api/generate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(payload)
+            .retrieve()
+            .body(OllamaResponse.class);
+
+        if (response == null || !StringUtils.hasText(response.getResponse())) {
+            throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "Ollama 返回结果为空");
         }
 
-        OllamaRequest payload = new OllamaRequest(model, request.getPrompt(), request.getOptions(), request.getMaxTokens(), request.getTemperature());
-        RestClientException lastException = null;
-        int attempts = properties.getMaxRetries() != null && properties.getMaxRetries() > 0 ? properties.getMaxRetries() : 1;
+        Duration latency = Duration.between(start, Instant.now());
+        warmthTracker.recordCall(model, response.loadDuration());
+        return LlmResponse.builder()
+            .content(response.getResponse())
+            .promptTokens(response.getPromptEvalCount())
+            .completionTokens(response.getEvalCount())
+            .latency(latency)
+            .model(StringUtils.hasText(response.getModel()) ? response.getModel() : model)
+            .context(response.getContext())
+            .build();
+    }
 
-        for (int i = 0; i < attempts; i++) {
-            Instant start = Instant.now();
-            try {
-                OllamaResponse response = restClient.post()
-                    .uri("/api/generate")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(payload)
-                    .retrieve()
-                    .body(OllamaResponse.class);
+    @Override
+    public LlmResponse stream(LlmRequest request, Consumer<String> tokenConsumer) {
+        String model = resolveModel(request);
+        OllamaRequest payload = new OllamaRequest(model, request.getPrompt(), request.getOptions(), request.getMaxTokens(),
+            request.getTemperature(), request.getContext(), keepAliveSeconds(model), true);
+        AtomicBoolean emitted = new AtomicBoolean();
+        Consumer<String> trackingConsumer = token -> {
+            emitted.set(true);
+            tokenConsumer.accept(token);
+        };
+        Instant start = Instant.now();
+        try {
+            OllamaResponse last = retryPolicy.execute(channel(), maxRetries(), () -> restClient.post()
+                .uri("/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(payload)
+                .exchange((clientRequest, clientResponse) -> {
+                    if (clientResponse.getStatusCode().isError()) {
+                        throw new RestClientResponseException("Ollama stream failed", clientResponse.getStatusCode(),
+                            clientResponse.getStatusText(), clientResponse.getHeaders(),
+                            clientResponse.getBody().readAllBytes(), StandardCharsets.UTF_8);
+                    }
+                    return readStream(clientResponse.getBody(), trackingConsumer);
+                }), () -> !emitted.get());
 
-                if (response == null || !StringUtils.hasText(response.getResponse())) {
-                    throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "Ollama 返回结果为空");
-                }
+            if (last == null || !StringUtils.hasText(last.getResponse())) {
+                throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "Ollama 返回结果为空");
+            }
+            warmthTracker.recordCall(model, last.loadDuration());
+            return LlmResponse.builder()
+                .content(last.getResponse())
+                .promptTokens(last.getPromptEvalCount())
+                .completionTokens(last.getEvalCount())
+                .latency(Duration.between(start, Instant.now()))
+                .model(StringUtils.hasText(last.getModel()) ? last.getModel() : model)
+                .context(last.getContext())
+                .build();
+        } catch (ResourceAccessException ex) {
+            log.warn("[Ollama] 流式调用超时", ex);
+            throw new BusinessException(ErrorCode.LLM_TIMEOUT, "Ollama 响应超时", ex);
+        } catch (RestClientResponseException ex) {
+            log.error("[Ollama] 流式调用失败: status={} body={}", ex.getStatusCode(), ex.getResponseBodyAsString(), ex);
+            throw new BusinessException(LlmFailures.forStatus(ex.getStatusCode()), "Ollama 调用失败: " + ex.getStatusText(), ex);
+        } catch (RestClientException ex) {
+            log.warn("[Ollama] 流式调用异常", ex);
+            throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "Ollama 调用异常", ex);
+        }
+    }
+
+    /**
+     * 只加载模型、不生成内容的空请求（无 prompt），同时按配置续期 keep_alive，返回本次加载耗时。
+     * 用于启动预热与低流量时保温，不经过重试与调度。
+     */
+    public Duration warmUp(String model) {
+        Instant start = Instant.now();
+        OllamaResponse response = restClient.post()
+            .uri("/api/generate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new OllamaRequest(model, null, null, null, null, null, keepAliveSeconds(model), false))
+            .retrieve()
+            .body(OllamaResponse.class);
+        warmthTracker.recordWarmup(model);
+        Duration loadDuration = response != null ? response.loadDuration() : null;
+        return loadDuration != null ? loadDuration : Duration.between(start, Instant.now());
+    }
+
+    /**
+     * Ollama 的 keep_alive 接受秒数，负数表示常驻。
+     */
+    private Long keepAliveSeconds(String model) {
+        Duration keepAlive = properties.resolveKeepAlive(model);
+        if (keepAlive == null) {
+            return null;
+        }
+        return keepAlive.isNegative() ? -1L : keepAlive.toSeconds();
+    }
 
-                Duration latency = Duration.between(start, Instant.now());
-                return LlmResponse.builder()
-                    .content(response.getResponse())
-                    .promptTokens(response.getPromptEvalCount())
-                    .completionTokens(response.getEvalCount())
-                    .latency(latency)
-                    .model(StringUtils.hasText(response.getModel()) ? response.getModel() : model)
-                    .build();
-            } catch (ResourceAccessException ex) {
-                lastException = ex;
-                log.warn("[Ollama] 调用超时 (attempt={})", i + 1, ex);
-                if (i == attempts - 1) {
-                    throw new BusinessException(ErrorCode.LLM_TIMEOUT, "Ollama 响应超时", ex);
+    private int maxRetries() {
+        return properties.getMaxRetries() != null ? Math.max(0, properties.getMaxRetries()) : 0;
+    }
+
+    /**
+     * Ollama 流式接口按行返回 JSON，每行携带一段增量文本，最后一行 done=true 时附带 token 统计与 context。
+     * 返回值中的 response 为累计全文。
+     */
+    private OllamaResponse readStream(InputStream body, Consumer<String> tokenConsumer) throws IOException {
+        StringBuilder content = new StringBuilder();
+        OllamaResponse last = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                OllamaResponse chunk = objectMapper.readValue(line, OllamaResponse.class);
+                if (StringUtils.hasLength(chunk.getResponse())) {
+                    content.append(chunk.getResponse());
+                    tokenConsumer.accept(chunk.getResponse());
                 }
-            } catch (RestClientResponseException ex) {
-                log.error("[Ollama] 调用失败: status={} body={}", ex.getStatusCode(), ex.getResponseBodyAsString(), ex);
-                throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "Ollama 调用失败: " + ex.getStatusText(), ex);
-            } catch (RestClientException ex) {
-                lastException = ex;
-                log.warn("[Ollama] 调用异常 (attempt={})", i + 1, ex);
-                if (i == attempts - 1) {
-                    throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "Ollama 调用异常", ex);
+                last = chunk;
+                if (chunk.isDone()) {
+                    break;
                 }
             }
         }
+        if (last != null) {
+            last.response = content.toString();
+        }
+        return last;
+    }
 
-        throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "Ollama 调用失败", lastException);
+    private String resolveModel(LlmRequest request) {
+        String model = StringUtils.hasText(request.getModel()) ? request.getModel() : properties.getModel();
+        if (!StringUtils.hasText(model)) {
+            throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "未配置 Ollama 模型");
+        }
+        return model;
     }
 
     @RequiredArgsConstructor
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
     private static class OllamaRequest {
 
         private final String model;
@@ -103,15 +237,14 @@ public class OllamaLlmClient implements LlmClient {
         private final Map<String, Object> options;
         private final Integer maxTokens;
         private final Double temperature;
+        private final List<Integer> context;
+        private final Long keepAlive;
+        private final boolean stream;
 
         public String getModel() {
             return model;
         }
 
-        public String getPrompt() {
-            return prompt;
-        }
-
         public Map<String, Object> getOptions() {
             return options;
         }
@@ -123,14 +256,45 @@ public class OllamaLlmClient implements LlmClient {
         public Double getTemperature() {
             return temperature;
         }
+
+        @JsonInclude(JsonInclude.Include.NON_EMPTY)
+        public List<Integer> getContext() {
+            return context;
+        }
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getPrompt() {
+            return prompt;
+        }
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public Long getKeepAlive() {
+            return keepAlive;
+        }
+
+        public boolean isStream() {
+            return stream;
+        }
     }
 
     @Getter
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
     private static class OllamaResponse {
 
         private String response;
         private String model;
+        private boolean done;
         private Integer promptEvalCount;
         private Integer evalCount;
+        private List<Integer> context;
+        /**
+         * 模型加载耗时（纳秒），模型已驻留时接近 0。
+         */
+        private Long loadDuration;
+
+        private Duration loadDuration() {
+            return loadDuration == null ? null : Duration.ofNanos(loadDuration);
+        }
     }
 }
@@ -1,9 +1,16 @@
 package com.example.healthai.llm.config;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import com.example.healthai.llm.schedule.LlmPriority;
+import com.example.healthai.prompt.domain.ComplexityClass;
 import com.example.healthai.prompt.domain.PromptChannel;
 
 import lombok.Getter;
@@ -15,8 +22,24 @@ import lombok.Setter;
 public class LlmProperties {
 
     private PromptChannel primaryChannel = PromptChannel.OLLAMA;
+    /**
+     * 当前渠道熔断或调用失败时，是否自动切换到另一渠道（使用该渠道的默认模型）。
+     */
+    private boolean failoverEnabled = true;
     private OllamaProperties ollama = new OllamaProperties();
     private HttpApiProperties http = new HttpApiProperties();
+    private PoolProperties pool = new PoolProperties();
+    private ResponseCacheProperties responseCache = new ResponseCacheProperties();
+    private CoalescingProperties coalescing = new CoalescingProperties();
+    private LimiterProperties limiter = new LimiterProperties();
+    private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+    private LatencyProperties latency = new LatencyProperties();
+    private HedgingProperties hedging = new HedgingProperties();
+    private RetryProperties retry = new RetryProperties();
+    private ExtraCallBudgetProperties extraCallBudget = new ExtraCallBudgetProperties();
+    private SchedulerProperties scheduler = new SchedulerProperties();
+    private WarmupProperties warmup = new WarmupProperties();
+    private RoutingProperties routing = new RoutingProperties();
 
     @Getter
     @Setter
@@ -25,8 +48,26 @@ public class LlmProperties {
         private boolean enabled = true;
         private String baseUrl = "http://localhost:11434";
         private String model = "llama3";
+        /**
+         * 读超时（等待响应数据的最长时间），建连超时由 {@link PoolProperties#getConnectTimeout()} 控制。
+         */
         private Duration timeout = Duration.ofSeconds(60);
+        /**
+         * 首次调用失败后的最大重试次数，退避与额度见 {@link RetryProperties}。
+         */
         private Integer maxRetries = 1;
+        /**
+         * 模型在 Ollama 中驻留的时长（keep_alive），为空时使用 Ollama 服务端默认值，负数表示常驻。
+         */
+        private Duration keepAlive;
+        /**
+         * 按模型覆盖 keep_alive，大模型加载慢时可单独设置更长的驻留时间。
+         */
+        private Map<String, Duration> modelKeepAlive = new HashMap<>();
+
+        public Duration resolveKeepAlive(String model) {
+            return modelKeepAlive.getOrDefault(model, keepAlive);
+        }
     }
 
     @Getter
@@ -38,7 +79,265 @@ public class LlmProperties {
         private String apiKey;
         private String completionPath = "/v1/completions";
         private String model;
+        /**
+         * 读超时（等待响应数据的最长时间），建连超时由 {@link PoolProperties#getConnectTimeout()} 控制。
+         */
         private Duration timeout = Duration.ofSeconds(60);
+        /**
+         * 首次调用失败后的最大重试次数，退避与额度见 {@link RetryProperties}。
+         */
         private Integer maxRetries = 1;
+        private BatchingProperties batching = new BatchingProperties();
+    }
+
+    /**
+     * HTTP API 微批：后端支持一次请求携带多个 prompt（OpenAI 兼容的 prompt 数组）时，
+     * 将窗口内模型与生成参数相同的非流式请求合并发送。
+     */
+    @Getter
+    @Setter
+    public static class BatchingProperties {
+
+        private boolean enabled = false;
+        /**
+         * 第一个请求到达后等待同批请求的最长时间，建议 5~20ms。
+         */
+        private Duration window = Duration.ofMillis(10);
+        private int maxBatchSize = 8;
+    }
+
+    /**
+     * Ollama 与 HTTP API 渠道共享的连接池配置。
+     */
+    @Getter
+    @Setter
+    public static class PoolProperties {
+
+        private int maxConnections = 50;
+        private int maxConnectionsPerRoute = 20;
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration connectionRequestTimeout = Duration.ofSeconds(10);
+        private Duration idleEviction = Duration.ofSeconds(30);
+        private Duration timeToLive = Duration.ofMinutes(5);
+        private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    }
+
+    /**
+     * 响应缓存全局开关与容量，是否缓存由模板的 response_cache_enabled 决定。
+     */
+    @Getter
+    @Setter
+    public static class ResponseCacheProperties {
+
+        private boolean enabled = true;
+        private long localMaximumSize = 1000;
+        private Duration localTtl = Duration.ofMinutes(10);
+        /**
+         * 模板未配置 TTL 时使用的默认值，同时作为 Redis 层的过期时间。
+         */
+        private Duration defaultTtl = Duration.ofHours(1);
+        private boolean redisEnabled = true;
+        private String keyPrefix = "healthai:llm:response:";
+    }
+
+    /**
+     * 相同在途请求合并配置。
+     */
+    @Getter
+    @Setter
+    public static class CoalescingProperties {
+
+        private boolean enabled = true;
+        /**
+         * 单个在途请求允许挂靠的最大等待者数，超出后独立发起调用。
+         */
+        private int maxWaiters = 32;
+        private Duration waitTimeout = Duration.ofSeconds(90);
+    }
+
+    /**
+     * 每个渠道独立的 AIMD 自适应并发上限。
+     */
+    @Getter
+    @Setter
+    public static class LimiterProperties {
+
+        private boolean enabled = true;
+        private int initialLimit = 8;
+        private int minLimit = 1;
+        private int maxLimit = 64;
+        private double backoffRatio = 0.9;
+        /**
+         * 单次调用耗时超过该值即视为拥塞，收缩上限。
+         */
+        private Duration latencyThreshold = Duration.ofSeconds(30);
+    }
+
+    /**
+     * 按 渠道 + 模型 的熔断配置，比率单位为百分比。
+     */
+    @Getter
+    @Setter
+    public static class CircuitBreakerProperties {
+
+        private boolean enabled = true;
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 50;
+        private double slowCallRateThreshold = 80;
+        private Duration slowCallThreshold = Duration.ofSeconds(20);
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int halfOpenProbes = 2;
+    }
+
+    /**
+     * 调用耗时统计窗口，供对冲与路由使用。
+     */
+    @Getter
+    @Setter
+    public static class LatencyProperties {
+
+        private int windowSize = 200;
+        /**
+         * 样本数不足时不给出分位数估计。
+         */
+        private int minSamples = 20;
+    }
+
+    /**
+     * 对冲调用配置，是否对冲及触发分位数由模板的 hedge_percentile 决定。
+     */
+    @Getter
+    @Setter
+    public static class HedgingProperties {
+
+        private boolean enabled = true;
+        /**
+         * 分位数估计不可用（样本不足）时使用的对冲延迟。
+         */
+        private Duration defaultDelay = Duration.ofSeconds(10);
+        private int corePoolSize = 8;
+        private int maxPoolSize = 32;
+    }
+
+    /**
+     * 两个渠道共用的重试退避与全局重试额度。
+     */
+    @Getter
+    @Setter
+    public static class RetryProperties {
+
+        private Duration initialBackoff = Duration.ofMillis(200);
+        private Duration maxBackoff = Duration.ofSeconds(5);
+        /**
+         * 服务端要求等待超过该时长时不再重试，直接失败。
+         */
+        private Duration maxRetryAfter = Duration.ofSeconds(10);
+    }
+
+    /**
+     * 重试与对冲共用的额外调用额度。每次实际发出的调用（含对冲请求本身）存入 ratio 个令牌，每次重试或对冲消耗 1 个，
+     * 因此额外调用数长期不超过基础调用数的 ratio / (1 - ratio) 倍，另加 burst 的突发量；ratio=0.1 时约为 11%。
+     */
+    @Getter
+    @Setter
+    public static class ExtraCallBudgetProperties {
+
+        private double ratio = 0.1;
+        private double burst = 10;
+    }
+
+    /**
+     * 调用调度：全局并发放行数与各请求类别的权重、队列深度、最长排队时间。
+     */
+    @Getter
+    @Setter
+    public static class SchedulerProperties {
+
+        private boolean enabled = true;
+        private int maxConcurrent = 16;
+        private Map<LlmPriority, PriorityClassProperties> classes = defaultClasses();
+
+        private static Map<LlmPriority, PriorityClassProperties> defaultClasses() {
+            Map<LlmPriority, PriorityClassProperties> classes = new EnumMap<>(LlmPriority.class);
+            classes.put(LlmPriority.DOCTOR_INTERACTIVE, new PriorityClassProperties(8, 50, Duration.ofSeconds(15)));
+            classes.put(LlmPriority.PATIENT_TRIAGE, new PriorityClassProperties(4, 200, Duration.ofSeconds(60)));
+            classes.put(LlmPriority.BATCH, new PriorityClassProperties(1, 1000, Duration.ofMinutes(10)));
+            return classes;
+        }
+    }
+
+    /**
+     * Ollama 模型预热：启动后预加载启用模板引用的模型，低流量时定期发送空请求续期 keep_alive。
+     */
+    @Getter
+    @Setter
+    public static class WarmupProperties {
+
+        private boolean enabled = false;
+        /**
+         * 除模板引用的模型外额外预热的模型。
+         */
+        private List<String> models = new ArrayList<>();
+        private Duration pingInterval = Duration.ofMinutes(2);
+        /**
+         * 模型空闲超过该时长才发送保温请求，应小于 keep_alive。
+         */
+        private Duration idleThreshold = Duration.ofMinutes(3);
+        /**
+         * Ollama 返回的 load_duration 超过该值时视为冷启动。
+         */
+        private Duration coldLoadThreshold = Duration.ofMillis(500);
+    }
+
+    /**
+     * 模型阶梯路由：按由小到大的顺序配置同一渠道的模型，选择第一个能容纳提示词长度与模板复杂度、且当前延迟达标的模型。
+     * 模板指定了阶梯之外的模型时不参与路由。
+     */
+    @Getter
+    @Setter
+    public static class RoutingProperties {
+
+        private boolean enabled = false;
+        /**
+         * 判断模型当前延迟所用的分位数（0-100）。
+         */
+        private double latencyPercentile = 90;
+        private List<ModelRungProperties> ladder = new ArrayList<>();
+    }
+
+    @Getter
+    @Setter
+    public static class ModelRungProperties {
+
+        private PromptChannel channel = PromptChannel.OLLAMA;
+        private String model;
+        /**
+         * 可容纳的提示词估算 token 数上限，为空表示不限。
+         */
+        private Integer maxPromptTokens;
+        private ComplexityClass maxComplexity = ComplexityClass.COMPLEX;
+        /**
+         * 该模型延迟分位数超过此值时跳到下一级，为空表示不按延迟跳级。
+         */
+        private Duration maxLatency;
+    }
+
+    @Getter
+    @Setter
+    public static class PriorityClassProperties {
+
+        private int weight;
+        private int maxDepth;
+        private Duration maxWait;
+
+        public PriorityClassProperties() {
+        }
+
+        public PriorityClassProperties(int weight, int maxDepth, Duration maxWait) {
+            this.weight = weight;
+            this.maxDepth = maxDepth;
+            this.maxWait = maxWait;
+        }
     }
 }
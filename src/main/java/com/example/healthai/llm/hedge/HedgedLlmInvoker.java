@@ -0,0 +1,154 @@
+package com.example.healthai.llm.hedge;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.llm.client.LlmCallCancellation;
+import com.example.healthai.llm.client.LlmClient;
+import com.example.healthai.llm.client.LlmRequest;
+import com.example.healthai.llm.client.LlmResponse;
+import com.example.healthai.llm.stats.RatioBudget;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 对冲调用：主请求在 {@code hedgeDelay} 内未返回时向备选渠道/模型再发一次，先成功者胜出。
+ * 落败一方通过 {@link LlmCallCancellation} abort 在途 HTTP 请求，立即释放连接与并发额度，并中断执行线程以结束重试退避；
+ * 微批发送的共享请求不会被 abort，落败方会占用额度直到该批返回。
+ * 对冲次数与重试共用同一个 {@link RatioBudget}（extra-call-budget）；存入由每次实际发出的调用在重试策略中完成，这里只消耗。
+ */
+@Component
+public class HedgedLlmInvoker {
+
+    private static final Logger log = LoggerFactory.getLogger(HedgedLlmInvoker.class);
+
+    private final Executor executor;
+    private final RatioBudget budget;
+    private final Counter candidates;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+    private final Counter budgetExhausted;
+
+    public HedgedLlmInvoker(@Qualifier("llmHedgeExecutor") Executor executor,
+                            @Qualifier("llmExtraCallBudget") RatioBudget budget,
+                            MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.budget = budget;
+        this.candidates = outcomeCounter(meterRegistry, "candidate");
+        this.hedgesSent = outcomeCounter(meterRegistry, "sent");
+        this.hedgesWon = outcomeCounter(meterRegistry, "won");
+        this.budgetExhausted = outcomeCounter(meterRegistry, "budget_exhausted");
+    }
+
+    public HedgedResponse invoke(LlmClient primaryClient, LlmRequest primaryRequest,
+                                 LlmClient hedgeClient, LlmRequest hedgeRequest,
+                                 Duration hedgeDelay) {
+        candidates.increment();
+        CompletionService<HedgedResponse> completion = new ExecutorCompletionService<>(executor);
+        LlmCallCancellation primaryScope = new LlmCallCancellation();
+        LlmCallCancellation hedgeScope = new LlmCallCancellation();
+        Future<HedgedResponse> primary;
+        try {
+            primary = completion.submit(() -> primaryScope.call(
+                () -> new HedgedResponse(primaryClient.generate(primaryRequest), false)));
+        } catch (RejectedExecutionException e) {
+            log.debug("对冲线程池已满，直接调用主渠道");
+            return new HedgedResponse(primaryClient.generate(primaryRequest), false);
+        }
+
+        Future<HedgedResponse> hedge = null;
+        try {
+            Future<HedgedResponse> first = completion.poll(hedgeDelay.toMillis(), TimeUnit.MILLISECONDS);
+            if (first != null) {
+                return unwrap(first);
+            }
+            hedge = submitHedge(completion, hedgeScope, hedgeClient, hedgeRequest);
+            if (hedge == null) {
+                return unwrap(primary);
+            }
+            first = completion.take();
+            try {
+                HedgedResponse winner = unwrap(first);
+                if (winner.hedgeWon()) {
+                    hedgesWon.increment();
+                }
+                return winner;
+            } catch (BusinessException e) {
+                // 先结束的一方失败，等待另一方
+                log.debug("对冲中先返回的请求失败，等待另一方: {}", e.getMessage());
+                HedgedResponse winner = unwrap(completion.take());
+                if (winner.hedgeWon()) {
+                    hedgesWon.increment();
+                }
+                return winner;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "大模型调用被中断", e);
+        } finally {
+            cancelIfRunning(primary, primaryScope);
+            if (hedge != null) {
+                cancelIfRunning(hedge, hedgeScope);
+            }
+        }
+    }
+
+    private void cancelIfRunning(Future<HedgedResponse> future, LlmCallCancellation scope) {
+        if (!future.isDone()) {
+            scope.cancel();
+            future.cancel(true);
+        }
+    }
+
+    private Future<HedgedResponse> submitHedge(CompletionService<HedgedResponse> completion, LlmCallCancellation scope,
+                                               LlmClient hedgeClient, LlmRequest hedgeRequest) {
+        if (!budget.tryWithdraw()) {
+            budgetExhausted.increment();
+            return null;
+        }
+        try {
+            Future<HedgedResponse> hedge = completion.submit(() -> scope.call(
+                () -> new HedgedResponse(hedgeClient.generate(hedgeRequest), true)));
+            hedgesSent.increment();
+            return hedge;
+        } catch (RejectedExecutionException e) {
+            log.debug("对冲线程池已满，放弃对冲");
+            return null;
+        }
+    }
+
+    private HedgedResponse unwrap(Future<HedgedResponse> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "大模型调用失败", e.getCause());
+        }
+    }
+
+    private static Counter outcomeCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("healthai.llm.hedge")
+            .description("对冲请求统计")
+            .tag("outcome", outcome)
+            .register(registry);
+    }
+
+    public record HedgedResponse(LlmResponse response, boolean hedgeWon) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.healthai.llm.limit;
+
+import java.time.Duration;
+
+/**
+ * AIMD（加性增、乘性减）并发上限：请求成功且上限确实被用到一半以上时上限 +1，
+ * 出现超时、过载类失败或耗时超过阈值时上限按比例收缩。超过上限的请求立即拒绝。
+ */
+public class AimdConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private double limit;
+    private int inflight;
+
+    public AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                                  Duration latencyThreshold) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inflight >= (int) limit) {
+            return false;
+        }
+        inflight++;
+        return true;
+    }
+
+    /**
+     * 请求正常结束：耗时超过阈值视为拥塞信号。
+     */
+    public synchronized void onSuccess(long latencyNanos) {
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (inflight * 2 >= (int) limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+        inflight--;
+    }
+
+    /**
+     * 超时或后端过载导致的失败，收缩上限。
+     */
+    public synchronized void onDropped() {
+        decrease();
+        inflight--;
+    }
+
+    /**
+     * 与负载无关的失败（如参数错误），只释放占用不调整上限。
+     */
+    public synchronized void onIgnored() {
+        inflight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInflight() {
+        return inflight;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.healthai.llm.limit;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.llm.client.LlmClient;
+import com.example.healthai.llm.client.LlmFailures;
+import com.example.healthai.llm.client.LlmRequest;
+import com.example.healthai.llm.client.LlmResponse;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 渠道级舱壁：超过自适应并发上限的调用直接以 {@link ErrorCode#LLM_OVERLOADED} 拒绝，
+ * 避免后端变慢时请求堆积到读超时。
+ */
+public class ConcurrencyLimitedLlmClient implements LlmClient {
+
+    private final LlmClient delegate;
+    private final AimdConcurrencyLimiter limiter;
+    private final Counter rejected;
+
+    public ConcurrencyLimitedLlmClient(LlmClient delegate, AimdConcurrencyLimiter limiter, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+        String channel = delegate.channel().name();
+        Gauge.builder("healthai.llm.concurrency.limit", limiter, AimdConcurrencyLimiter::getLimit)
+            .description("渠道当前自适应并发上限")
+            .tag("channel", channel)
+            .register(meterRegistry);
+        Gauge.builder("healthai.llm.concurrency.inflight", limiter, AimdConcurrencyLimiter::getInflight)
+            .description("渠道当前在途调用数")
+            .tag("channel", channel)
+            .register(meterRegistry);
+        this.rejected = Counter.builder("healthai.llm.concurrency.rejected")
+            .description("因超过并发上限被拒绝的调用数")
+            .tag("channel", channel)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public PromptChannel channel() {
+        return delegate.channel();
+    }
+
+    @Override
+    public LlmResponse generate(LlmRequest request) {
+        return execute(() -> delegate.generate(request));
+    }
+
+    @Override
+    public LlmResponse stream(LlmRequest request, Consumer<String> tokenConsumer) {
+        return execute(() -> delegate.stream(request, tokenConsumer));
+    }
+
+    private LlmResponse execute(Supplier<LlmResponse> call) {
+        if (!limiter.tryAcquire()) {
+            rejected.increment();
+            throw new BusinessException(ErrorCode.LLM_OVERLOADED, "大模型渠道 " + channel() + " 并发已达上限");
+        }
+        long start = System.nanoTime();
+        try {
+            LlmResponse response = call.get();
+            limiter.onSuccess(System.nanoTime() - start);
+            return response;
+        } catch (BusinessException e) {
+            if (isLoadRelated(e.getErrorCode())) {
+                limiter.onDropped();
+            } else {
+                limiter.onIgnored();
+            }
+            throw e;
+        } catch (RuntimeException | Error e) {
+            limiter.onIgnored();
+            throw e;
+        }
+    }
+
+    /**
+     * 只有超时、429、5xx 以及下游的过载拒绝才收缩上限；4xx、模型未配置、返回为空与负载无关，
+     * 若也计为丢弃，一批参数错误的请求就能把渠道并发压到下限。
+     */
+    private boolean isLoadRelated(ErrorCode errorCode) {
+        return LlmFailures.isBackendFailure(errorCode) || errorCode == ErrorCode.LLM_OVERLOADED;
+    }
+}
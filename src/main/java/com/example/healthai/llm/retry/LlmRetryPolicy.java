@@ -0,0 +1,155 @@
+package com.example.healthai.llm.retry;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.llm.client.LlmCallCancellation;
+import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.llm.stats.RatioBudget;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 大模型客户端共用的重试策略：
+ * <ul>
+ *     <li>仅重试超时/连接异常以及 429、502、503、504，其余 4xx/5xx 直接失败；</li>
+ *     <li>退避采用 decorrelated jitter：{@code sleep = min(cap, random(base, prev * 3))}，服务端给出 Retry-After 时取两者较大值；</li>
+ *     <li>重试消耗与对冲共用的 {@link RatioBudget}（extra-call-budget），保证重试加对冲不会在过载时成倍放大流量。</li>
+ * </ul>
+ * 最后一次失败的原始异常原样抛出，由各客户端映射为业务异常；所在范围已被取消（对冲落败）时抛出
+ * {@link ErrorCode#LLM_CALL_CANCELLED}，限流与熔断不把它计为失败。
+ */
+public class LlmRetryPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmRetryPolicy.class);
+
+    private final LlmProperties.RetryProperties properties;
+    private final RatioBudget budget;
+    private final MeterRegistry meterRegistry;
+    private final Sleeper sleeper;
+
+    public LlmRetryPolicy(LlmProperties.RetryProperties properties, RatioBudget budget, MeterRegistry meterRegistry) {
+        this(properties, budget, meterRegistry, Thread::sleep);
+    }
+
+    LlmRetryPolicy(LlmProperties.RetryProperties properties, RatioBudget budget, MeterRegistry meterRegistry,
+                   Sleeper sleeper) {
+        this.properties = properties;
+        this.budget = budget;
+        this.meterRegistry = meterRegistry;
+        this.sleeper = sleeper;
+    }
+
+    public <T> T execute(PromptChannel channel, int maxRetries, Supplier<T> attempt) {
+        return execute(channel, maxRetries, attempt, () -> true);
+    }
+
+    /**
+     * @param retryAllowed 每次失败后额外判断是否还能重试，例如流式调用已经向调用方输出过内容时不可重试
+     */
+    public <T> T execute(PromptChannel channel, int maxRetries, Supplier<T> attempt, BooleanSupplier retryAllowed) {
+        budget.deposit();
+        long previousSleepMillis = properties.getInitialBackoff().toMillis();
+        for (int retry = 0; ; retry++) {
+            try {
+                return attempt.get();
+            } catch (RestClientException ex) {
+                if (LlmCallCancellation.isCurrentCancelled()) {
+                    throw new BusinessException(ErrorCode.LLM_CALL_CANCELLED, "大模型调用已取消", ex);
+                }
+                Duration retryAfter = retryAfter(ex);
+                if (retry >= maxRetries || !isRetryable(ex) || !retryAllowed.getAsBoolean()
+                    || (retryAfter != null && retryAfter.compareTo(properties.getMaxRetryAfter()) > 0)) {
+                    throw ex;
+                }
+                if (!budget.tryWithdraw()) {
+                    record(channel, "budget_exhausted");
+                    log.warn("[{}] 重试额度已用尽，放弃重试", channel);
+                    throw ex;
+                }
+                long sleepMillis = nextBackoff(previousSleepMillis);
+                if (retryAfter != null) {
+                    sleepMillis = Math.max(sleepMillis, retryAfter.toMillis());
+                }
+                previousSleepMillis = sleepMillis;
+                record(channel, "retried");
+                log.warn("[{}] 调用失败，{} ms 后第 {} 次重试: {}", channel, sleepMillis, retry + 1, ex.getMessage());
+                try {
+                    sleeper.sleep(sleepMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    boolean isRetryable(RestClientException ex) {
+        if (ex instanceof ResourceAccessException) {
+            return true;
+        }
+        if (ex instanceof RestClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            return status == 429 || status == 502 || status == 503 || status == 504;
+        }
+        return false;
+    }
+
+    private long nextBackoff(long previousSleepMillis) {
+        long base = properties.getInitialBackoff().toMillis();
+        long upper = Math.max(base + 1, previousSleepMillis * 3);
+        long jittered = ThreadLocalRandom.current().nextLong(base, upper);
+        return Math.min(properties.getMaxBackoff().toMillis(), jittered);
+    }
+
+    /**
+     * 支持秒数与 HTTP-date 两种 Retry-After 格式。
+     */
+    static Duration retryAfter(RestClientException ex) {
+        if (!(ex instanceof RestClientResponseException responseException) || responseException.getResponseHeaders() == null) {
+            return null;
+        }
+        String value = responseException.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException ignored) {
+            // 非数字时按 HTTP-date 解析
+        }
+        try {
+            Duration delay = Duration.between(ZonedDateTime.now(),
+                ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+            return delay.isNegative() ? Duration.ZERO : delay;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private void record(PromptChannel channel, String outcome) {
+        meterRegistry.counter("healthai.llm.retry", "channel", channel.name(), "outcome", outcome).increment();
+    }
+
+    @FunctionalInterface
+    interface Sleeper {
+
+        void sleep(long millis) throws InterruptedException;
+    }
+}
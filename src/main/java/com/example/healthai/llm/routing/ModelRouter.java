@@ -0,0 +1,95 @@
+package com.example.healthai.llm.routing;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.llm.stats.LatencyTracker;
+import com.example.healthai.llm.token.TokenEstimator;
+import com.example.healthai.prompt.domain.ComplexityClass;
+import com.example.healthai.prompt.domain.PromptChannel;
+import com.example.healthai.prompt.domain.PromptTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 在配置的模型阶梯中选择模型：由小到大找到第一个提示词长度与模板复杂度都在其能力范围内的模型，
+ * 当前延迟分位数超标时跳到下一级；没有合适的级别时使用最大的模型。
+ */
+@Component
+public class ModelRouter {
+
+    private final LlmProperties.RoutingProperties properties;
+    private final LatencyTracker latencyTracker;
+    private final TokenEstimator tokenEstimator;
+    private final MeterRegistry meterRegistry;
+
+    public ModelRouter(LlmProperties llmProperties, LatencyTracker latencyTracker, TokenEstimator tokenEstimator,
+                       MeterRegistry meterRegistry) {
+        this.properties = llmProperties.getRouting();
+        this.latencyTracker = latencyTracker;
+        this.tokenEstimator = tokenEstimator;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @return 未启用路由、该渠道没有阶梯或模板固定了阶梯外的模型时返回空
+     */
+    public Optional<String> route(PromptChannel channel, PromptTemplate template, String renderedPrompt) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        List<LlmProperties.ModelRungProperties> ladder = properties.getLadder().stream()
+            .filter(rung -> rung.getChannel() == channel && StringUtils.hasText(rung.getModel()))
+            .toList();
+        if (ladder.isEmpty() || pinnedOutsideLadder(template, ladder)) {
+            return Optional.empty();
+        }
+
+        int promptTokens = tokenEstimator.estimate(renderedPrompt);
+        ComplexityClass complexity = template.getComplexityClass() != null ? template.getComplexityClass() : ComplexityClass.STANDARD;
+        boolean skippedForLatency = false;
+        for (LlmProperties.ModelRungProperties rung : ladder) {
+            if (!fits(rung, promptTokens, complexity)) {
+                continue;
+            }
+            if (tooSlow(channel, rung)) {
+                skippedForLatency = true;
+                continue;
+            }
+            return Optional.of(record(template, channel, rung.getModel(), skippedForLatency ? "latency" : "fit"));
+        }
+        String largest = ladder.get(ladder.size() - 1).getModel();
+        return Optional.of(record(template, channel, largest, "fallback"));
+    }
+
+    private boolean pinnedOutsideLadder(PromptTemplate template, List<LlmProperties.ModelRungProperties> ladder) {
+        String pinned = template.getModelName();
+        return StringUtils.hasText(pinned) && ladder.stream().noneMatch(rung -> rung.getModel().equals(pinned));
+    }
+
+    private boolean fits(LlmProperties.ModelRungProperties rung, int promptTokens, ComplexityClass complexity) {
+        boolean sizeFits = rung.getMaxPromptTokens() == null || promptTokens <= rung.getMaxPromptTokens();
+        return sizeFits && complexity.compareTo(rung.getMaxComplexity()) <= 0;
+    }
+
+    private boolean tooSlow(PromptChannel channel, LlmProperties.ModelRungProperties rung) {
+        Duration maxLatency = rung.getMaxLatency();
+        if (maxLatency == null) {
+            return false;
+        }
+        return latencyTracker.percentile(channel, rung.getModel(), properties.getLatencyPercentile())
+            .map(latency -> latency.compareTo(maxLatency) > 0)
+            .orElse(false);
+    }
+
+    private String record(PromptTemplate template, PromptChannel channel, String model, String reason) {
+        meterRegistry.counter("healthai.llm.route",
+            "template", template.getCode(), "channel", channel.name(), "model", model, "reason", reason).increment();
+        return model;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.healthai.llm.schedule;
+
+/**
+ * 大模型调用的请求类别，调度时按类别权重加权公平排队。
+ */
+public enum LlmPriority {
+
+    /**
+     * 医生发起的交互式分析。
+     */
+    DOCTOR_INTERACTIVE,
+
+    /**
+     * 患者提交问诊时的初始分诊与追问。
+     */
+    PATIENT_TRIAGE,
+
+    /**
+     * 批量回填、重新生成等后台任务。
+     */
+    BATCH
+}
@@ -0,0 +1,242 @@
+package com.example.healthai.llm.schedule;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.llm.config.LlmProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 大模型调用前的调度阶段：同时放行的调用数受 max-concurrent 限制，超出部分按请求类别加权公平排队（WFQ）。
+ * <ul>
+ *     <li>每个类别维护自己的虚拟完成时间，权重越大推进越慢，出队越靠前，但低权重类别不会被饿死；</li>
+ *     <li>类别队列达到 max-depth 时直接拒绝；</li>
+ *     <li>排队超过截止时间的请求被丢弃，不再占用后端。</li>
+ * </ul>
+ */
+@Component
+public class LlmRequestScheduler {
+
+    private final LlmProperties.SchedulerProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<LlmPriority, Deque<Ticket>> queues = new EnumMap<>(LlmPriority.class);
+    private final Map<LlmPriority, Double> lastFinishTags = new EnumMap<>(LlmPriority.class);
+    private final Map<LlmPriority, Timer> waitTimers = new EnumMap<>(LlmPriority.class);
+    private final Map<LlmPriority, Counter> rejectedCounters = new EnumMap<>(LlmPriority.class);
+    private final Map<LlmPriority, Counter> expiredCounters = new EnumMap<>(LlmPriority.class);
+    private double virtualTime;
+    private int running;
+
+    public LlmRequestScheduler(LlmProperties llmProperties, MeterRegistry meterRegistry) {
+        this.properties = llmProperties.getScheduler();
+        for (LlmPriority priority : LlmPriority.values()) {
+            Deque<Ticket> queue = new ArrayDeque<>();
+            queues.put(priority, queue);
+            lastFinishTags.put(priority, 0d);
+            String tag = priority.name();
+            waitTimers.put(priority, Timer.builder("healthai.llm.queue.wait")
+                .description("大模型调用排队等待时长")
+                .tag("priority", tag)
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(meterRegistry));
+            rejectedCounters.put(priority, droppedCounter(meterRegistry, tag, "queue_full"));
+            expiredCounters.put(priority, droppedCounter(meterRegistry, tag, "deadline"));
+            Gauge.builder("healthai.llm.queue.depth", queue, this::size)
+                .description("各类别排队中的请求数")
+                .tag("priority", tag)
+                .register(meterRegistry);
+        }
+        Gauge.builder("healthai.llm.queue.running", this, LlmRequestScheduler::getRunning)
+            .description("已放行执行中的大模型调用数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @param maxWait 允许的最长排队时间，为空时使用该类别的默认值
+     */
+    public <T> T execute(LlmPriority priority, Duration maxWait, Supplier<T> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        LlmPriority resolved = priority != null ? priority : LlmPriority.PATIENT_TRIAGE;
+        Duration wait = maxWait != null ? maxWait : properties.getClasses().get(resolved).getMaxWait();
+        acquire(resolved, wait);
+        try {
+            return call.get();
+        } finally {
+            release();
+        }
+    }
+
+    private void acquire(LlmPriority priority, Duration maxWait) {
+        long enqueuedAt = System.nanoTime();
+        Ticket ticket;
+        lock.lock();
+        try {
+            if (running < properties.getMaxConcurrent() && isEmpty()) {
+                running++;
+                waitTimers.get(priority).record(0, TimeUnit.NANOSECONDS);
+                return;
+            }
+            Deque<Ticket> queue = queues.get(priority);
+            if (queue.size() >= properties.getClasses().get(priority).getMaxDepth()) {
+                rejectedCounters.get(priority).increment();
+                throw new BusinessException(ErrorCode.LLM_OVERLOADED, "大模型调用排队已满: " + priority);
+            }
+            double weight = Math.max(1, properties.getClasses().get(priority).getWeight());
+            double start = Math.max(virtualTime, lastFinishTags.get(priority));
+            double finish = start + 1.0 / weight;
+            lastFinishTags.put(priority, finish);
+            ticket = new Ticket(priority, start, finish, enqueuedAt + maxWait.toNanos());
+            queue.addLast(ticket);
+        } finally {
+            lock.unlock();
+        }
+        awaitGrant(ticket, maxWait);
+        waitTimers.get(priority).record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private void awaitGrant(Ticket ticket, Duration maxWait) {
+        try {
+            ticket.granted.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            lock.lock();
+            try {
+                // 超时与放行并发发生时以放行为准
+                if (!ticket.granted.isDone()) {
+                    if (queues.get(ticket.priority).remove(ticket)) {
+                        expiredCounters.get(ticket.priority).increment();
+                    }
+                    throw new BusinessException(ErrorCode.LLM_TIMEOUT, "大模型调用排队超时: " + ticket.priority, e);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(ticket);
+            throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "大模型调用排队被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void abandon(Ticket ticket) {
+        lock.lock();
+        try {
+            if (!queues.get(ticket.priority).remove(ticket) && ticket.granted.isDone()) {
+                releaseLocked();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            releaseLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseLocked() {
+        running--;
+        while (running < properties.getMaxConcurrent()) {
+            Ticket next = pollNext();
+            if (next == null) {
+                return;
+            }
+            running++;
+            virtualTime = Math.max(virtualTime, next.startTag);
+            next.granted.complete(null);
+        }
+    }
+
+    /**
+     * 取虚拟完成时间最小的队首请求，顺带丢弃已过截止时间的请求。
+     */
+    private Ticket pollNext() {
+        long now = System.nanoTime();
+        Ticket best = null;
+        for (Map.Entry<LlmPriority, Deque<Ticket>> entry : queues.entrySet()) {
+            Deque<Ticket> queue = entry.getValue();
+            while (!queue.isEmpty() && queue.peekFirst().deadlineNanos - now < 0) {
+                queue.pollFirst();
+                expiredCounters.get(entry.getKey()).increment();
+            }
+            Ticket head = queue.peekFirst();
+            if (head != null && (best == null || head.finishTag < best.finishTag)) {
+                best = head;
+            }
+        }
+        if (best != null) {
+            queues.get(best.priority).pollFirst();
+        }
+        return best;
+    }
+
+    private boolean isEmpty() {
+        return queues.values().stream().allMatch(Deque::isEmpty);
+    }
+
+    private double size(Deque<Ticket> queue) {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int getRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Counter droppedCounter(MeterRegistry registry, String priority, String reason) {
+        return Counter.builder("healthai.llm.queue.dropped")
+            .description("排队阶段被拒绝或丢弃的请求数")
+            .tag("priority", priority)
+            .tag("reason", reason)
+            .register(registry);
+    }
+
+    private static final class Ticket {
+
+        private final LlmPriority priority;
+        private final double startTag;
+        private final double finishTag;
+        private final long deadlineNanos;
+        private final CompletableFuture<Void> granted = new CompletableFuture<>();
+
+        private Ticket(LlmPriority priority, double startTag, double finishTag, long deadlineNanos) {
+            this.priority = priority;
+            this.startTag = startTag;
+            this.finishTag = finishTag;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
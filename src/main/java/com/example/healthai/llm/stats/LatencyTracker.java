@@ -0,0 +1,81 @@
+package com.example.healthai.llm.stats;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Component;
+
+import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+/**
+ * 按 渠道 + 模型 记录最近若干次成功调用的耗时，用于对冲延迟与路由决策的分位数估计。
+ */
+@Component
+public class LatencyTracker {
+
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final int windowSize;
+    private final int minSamples;
+
+    public LatencyTracker(LlmProperties properties) {
+        this.windowSize = properties.getLatency().getWindowSize();
+        this.minSamples = properties.getLatency().getMinSamples();
+    }
+
+    public void record(PromptChannel channel, String model, Duration latency) {
+        if (latency == null) {
+            return;
+        }
+        windows.computeIfAbsent(key(channel, model), k -> new Window(windowSize)).add(latency.toNanos());
+    }
+
+    /**
+     * @param percentile 0-100
+     * @return 样本不足 minSamples 时返回空
+     */
+    public Optional<Duration> percentile(PromptChannel channel, String model, double percentile) {
+        Window window = windows.get(key(channel, model));
+        if (window == null) {
+            return Optional.empty();
+        }
+        long[] samples = window.snapshot();
+        if (samples.length < minSamples) {
+            return Optional.empty();
+        }
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(percentile / 100.0 * samples.length) - 1;
+        index = Math.max(0, Math.min(samples.length - 1, index));
+        return Optional.of(Duration.ofNanos(samples[index]));
+    }
+
+    private static String key(PromptChannel channel, String model) {
+        return channel + "/" + model;
+    }
+
+    private static final class Window {
+
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        private Window(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        private synchronized void add(long value) {
+            samples[next] = value;
+            next = (next + 1) % samples.length;
+            if (size < samples.length) {
+                size++;
+            }
+        }
+
+        private synchronized long[] snapshot() {
+            return Arrays.copyOf(samples, size);
+        }
+    }
+}
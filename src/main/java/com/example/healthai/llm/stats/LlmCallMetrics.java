@@ -0,0 +1,122 @@
+package com.example.healthai.llm.stats;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 大模型调用各阶段的耗时与 token 指标，按 渠道 / 模型 / 模板 / 结果 打标签，以直方图形式经 Prometheus 导出：
+ * 提示词渲染、调度排队、流式首 token、调用总耗时、prompt/completion token 数与生成速率。
+ * 对照渲染与排队耗时、首 token 与总耗时，可以区分慢请求来自本服务、网络还是模型本身。
+ */
+@Component
+public class LlmCallMetrics {
+
+    public static final String OUTCOME_SUCCESS = "success";
+
+    private static final Duration MIN_EXPECTED_LATENCY = Duration.ofMillis(5);
+    private static final Duration MAX_EXPECTED_LATENCY = Duration.ofMinutes(2);
+
+    private final MeterRegistry meterRegistry;
+
+    public LlmCallMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 模板渲染、token 预算截断与模型路由的耗时。
+     */
+    public void recordRender(String template, long nanos) {
+        timer("healthai.llm.prompt.render", "提示词渲染耗时", Tags.of("template", tag(template)), Duration.ofMillis(1))
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordQueueWait(PromptChannel channel, String model, String template, long nanos) {
+        timer("healthai.llm.call.queue", "调度排队耗时", tags(channel, model, template), MIN_EXPECTED_LATENCY)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 仅流式调用：从发起调用到收到第一段内容的耗时。
+     */
+    public void recordFirstToken(PromptChannel channel, String model, String template, long nanos) {
+        timer("healthai.llm.call.first_token", "流式调用首 token 耗时", tags(channel, model, template), MIN_EXPECTED_LATENCY)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param firstTokenNanos 流式调用的首 token 耗时，非流式调用为 null；用于从生成速率中扣除首 token 前的等待
+     */
+    public void recordSuccess(PromptChannel channel, String model, String template, Duration latency,
+                              Integer promptTokens, Integer completionTokens, Long firstTokenNanos) {
+        Tags tags = tags(channel, model, template);
+        if (latency != null) {
+            callTimer(tags, OUTCOME_SUCCESS).record(latency);
+        }
+        if (promptTokens != null) {
+            tokenSummary(tags, "prompt").record(promptTokens);
+        }
+        if (completionTokens != null) {
+            tokenSummary(tags, "completion").record(completionTokens);
+            long generationNanos = latency == null ? 0 : latency.toNanos() - (firstTokenNanos == null ? 0 : firstTokenNanos);
+            if (completionTokens > 0 && generationNanos > 0) {
+                DistributionSummary.builder("healthai.llm.call.token_rate")
+                    .description("每秒生成的 completion token 数")
+                    .baseUnit("tokens_per_second")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(1000.0)
+                    .register(meterRegistry)
+                    .record(completionTokens * 1_000_000_000.0 / generationNanos);
+            }
+        }
+    }
+
+    public void recordFailure(PromptChannel channel, String model, String template, ErrorCode errorCode, long nanos) {
+        callTimer(tags(channel, model, template), errorCode == null ? "error" : errorCode.name().toLowerCase())
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer callTimer(Tags tags, String outcome) {
+        return timer("healthai.llm.call", "大模型调用总耗时", tags.and("outcome", outcome), MIN_EXPECTED_LATENCY);
+    }
+
+    private DistributionSummary tokenSummary(Tags tags, String type) {
+        return DistributionSummary.builder("healthai.llm.call.tokens")
+            .description("单次调用的 token 数")
+            .baseUnit("tokens")
+            .tags(tags.and("type", type))
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1.0)
+            .maximumExpectedValue(32768.0)
+            .register(meterRegistry);
+    }
+
+    private Timer timer(String name, String description, Tags tags, Duration minExpected) {
+        return Timer.builder(name)
+            .description(description)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(minExpected)
+            .maximumExpectedValue(MAX_EXPECTED_LATENCY)
+            .register(meterRegistry);
+    }
+
+    private static Tags tags(PromptChannel channel, String model, String template) {
+        return Tags.of("channel", channel == null ? "unknown" : channel.name(), "model", tag(model), "template", tag(template));
+    }
+
+    private static String tag(String value) {
+        return value == null || value.isBlank() ? "unknown" : value;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.healthai.llm.stats;
+
+/**
+ * 按基础流量比例发放额度的令牌桶：每个基础请求存入 {@code ratio} 个令牌，每次额外调用（对冲、重试）消耗 1 个，
+ * 从而保证额外调用数长期不超过基础流量的 ratio 倍；{@code maxTokens} 限制突发。
+ */
+public class RatioBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    public RatioBudget(double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    public synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.healthai.llm.token;
+
+/**
+ * 按 BPE 分词器的常见切分规律近似计数，无需加载词表：
+ * 汉字/假名/谚文每字 1 个 token；字母串每 4 个字符约 1 个 token（前导单空格并入单词）；
+ * 数字每 3 位 1 个 token；标点与其他符号每个 1 个 token；包含换行或多个空格的空白串计 1 个 token。
+ * 与真实分词结果的系统性偏差由 {@link TokenCalibrator} 按模型校准。
+ */
+public class BpeApproximateTokenEstimator implements TokenEstimator {
+
+    @Override
+    public int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int tokens = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (isIdeographic(codePoint)) {
+                tokens++;
+                i += Character.charCount(codePoint);
+            } else if (Character.isLetter(codePoint)) {
+                int letters = 0;
+                while (i < length) {
+                    int next = text.codePointAt(i);
+                    if (!Character.isLetter(next) || isIdeographic(next)) {
+                        break;
+                    }
+                    letters++;
+                    i += Character.charCount(next);
+                }
+                tokens += (letters + 3) / 4;
+            } else if (Character.isDigit(codePoint)) {
+                int start = i;
+                while (i < length && Character.isDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens += (i - start + 2) / 3;
+            } else if (Character.isWhitespace(codePoint)) {
+                int start = i;
+                boolean newline = false;
+                while (i < length && Character.isWhitespace(text.charAt(i))) {
+                    newline |= text.charAt(i) == '\n';
+                    i++;
+                }
+                if (newline || i - start > 1) {
+                    tokens++;
+                }
+            } else {
+                tokens++;
+                i += Character.charCount(codePoint);
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isIdeographic(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.healthai.llm.token;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 按模型校准 {@link TokenEstimator} 的估算值：以模型返回的实际 promptTokens 与估算值之比做指数滑动平均，
+ * 估算时乘以该比例。不同模型分词器不同，比例分别维护。
+ */
+@Component
+public class TokenCalibrator {
+
+    private static final double SMOOTHING = 0.1;
+    private static final double MIN_RATIO = 0.25;
+    private static final double MAX_RATIO = 4.0;
+
+    private final TokenEstimator estimator;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, Ratio> ratios = new ConcurrentHashMap<>();
+
+    public TokenCalibrator(TokenEstimator estimator, MeterRegistry meterRegistry) {
+        this.estimator = estimator;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public TokenEstimator estimator() {
+        return estimator;
+    }
+
+    /**
+     * 校准后的估算值。
+     */
+    public int estimate(String model, String text) {
+        return calibrate(model, estimator.estimate(text));
+    }
+
+    public int calibrate(String model, int rawEstimate) {
+        return (int) Math.ceil(rawEstimate * ratio(model));
+    }
+
+    public double ratio(String model) {
+        Ratio ratio = model == null ? null : ratios.get(model);
+        return ratio == null ? 1.0 : ratio.value;
+    }
+
+    /**
+     * 记录一次实际调用：rawEstimate 为未校准的估算值，actual 为模型返回的 promptTokens。
+     */
+    public void record(String model, int rawEstimate, Integer actual) {
+        if (model == null || actual == null || actual <= 0 || rawEstimate <= 0) {
+            return;
+        }
+        summary(model, "estimated").record(calibrate(model, rawEstimate));
+        summary(model, "actual").record(actual);
+        double sample = Math.max(MIN_RATIO, Math.min(MAX_RATIO, (double) actual / rawEstimate));
+        ratios.computeIfAbsent(model, this::register).update(sample);
+    }
+
+    private Ratio register(String model) {
+        Ratio ratio = new Ratio();
+        Gauge.builder("healthai.llm.token.calibration", ratio, r -> r.value)
+            .description("实际 promptTokens 与本地估算值之比")
+            .tag("model", model)
+            .register(meterRegistry);
+        return ratio;
+    }
+
+    private DistributionSummary summary(String model, String source) {
+        return DistributionSummary.builder("healthai.llm.prompt.tokens")
+            .description("提示词 token 数：本地估算与模型实际计数")
+            .tag("model", model)
+            .tag("source", source)
+            .register(meterRegistry);
+    }
+
+    private static final class Ratio {
+
+        private volatile double value = 1.0;
+        private boolean initialized;
+
+        private synchronized void update(double sample) {
+            value = initialized ? value + SMOOTHING * (sample - value) : sample;
+            initialized = true;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.healthai.llm.token;
+
+/**
+ * 提示词 token 数估算。默认实现为本地近似计数，可替换为与模型一致的真实分词器。
+ */
+public interface TokenEstimator {
+
+    int estimate(String text);
+
+    /**
+     * 截取 text 的开头部分，使其估算 token 数不超过 maxTokens。
+     */
+    default String truncate(String text, int maxTokens) {
+        if (text == null || maxTokens <= 0) {
+            return "";
+        }
+        if (estimate(text) <= maxTokens) {
+            return text;
+        }
+        int low = 0;
+        int high = text.codePointCount(0, text.length());
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            String prefix = text.substring(0, text.offsetByCodePoints(0, mid));
+            if (estimate(prefix) <= maxTokens) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return text.substring(0, text.offsetByCodePoints(0, low));
+    }
+}
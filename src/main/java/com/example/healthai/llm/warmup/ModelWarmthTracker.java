@@ -0,0 +1,79 @@
+package com.example.healthai.llm.warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.healthai.llm.config.LlmProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 根据 Ollama 返回的 load_duration 判断每次调用命中的是已加载（warm）还是需要加载（cold）的模型，
+ * 并记录各模型最近一次被访问的时间，供保温任务判断是否空闲。
+ */
+@Component
+public class ModelWarmthTracker {
+
+    private static final String METRIC_NAME = "healthai.llm.model.load";
+
+    private final MeterRegistry meterRegistry;
+    private final long coldThresholdNanos;
+    private final LongSupplier clock;
+    private final ConcurrentMap<String, Long> lastTouched = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ModelWarmthTracker(LlmProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    ModelWarmthTracker(LlmProperties properties, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.meterRegistry = meterRegistry;
+        this.coldThresholdNanos = properties.getWarmup().getColdLoadThreshold().toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * 业务调用完成后记录，loadDuration 为空（服务端未返回）时只刷新访问时间。
+     */
+    public void recordCall(String model, Duration loadDuration) {
+        touch(model);
+        if (loadDuration == null) {
+            return;
+        }
+        boolean cold = loadDuration.toNanos() > coldThresholdNanos;
+        counter(model, cold ? "cold" : "warm").increment();
+    }
+
+    /**
+     * 预热或保温请求完成后记录，不计入业务调用的冷热命中统计。
+     */
+    public void recordWarmup(String model) {
+        touch(model);
+    }
+
+    public Duration idleFor(String model) {
+        Long touched = lastTouched.get(model);
+        if (touched == null) {
+            return Duration.ofNanos(Long.MAX_VALUE);
+        }
+        return Duration.ofNanos(clock.getAsLong() - touched);
+    }
+
+    private void touch(String model) {
+        lastTouched.put(model, clock.getAsLong());
+    }
+
+    private Counter counter(String model, String state) {
+        return Counter.builder(METRIC_NAME)
+            .description("大模型调用命中已加载/未加载模型的次数")
+            .tag("model", model)
+            .tag("state", state)
+            .register(meterRegistry);
+    }
+}
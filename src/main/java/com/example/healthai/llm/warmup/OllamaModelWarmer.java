@@ -0,0 +1,125 @@
+package com.example.healthai.llm.warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.StringUtils;
+
+import com.example.healthai.llm.client.ollama.OllamaLlmClient;
+import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.prompt.domain.PromptChannel;
+import com.example.healthai.prompt.domain.PromptTemplate;
+import com.example.healthai.prompt.mapper.PromptTemplateMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 应用就绪后预加载启用模板引用的 Ollama 模型，之后定期检查：模型空闲超过 idleThreshold 时发送空请求续期 keep_alive，
+ * 流量充足时业务调用本身即可保持模型驻留，不额外发送请求。
+ */
+public class OllamaModelWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaModelWarmer.class);
+
+    private final OllamaLlmClient client;
+    private final PromptTemplateMapper promptTemplateMapper;
+    private final LlmProperties properties;
+    private final ModelWarmthTracker warmthTracker;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    public OllamaModelWarmer(OllamaLlmClient client,
+                             PromptTemplateMapper promptTemplateMapper,
+                             LlmProperties properties,
+                             ModelWarmthTracker warmthTracker,
+                             MeterRegistry meterRegistry) {
+        this.client = client;
+        this.promptTemplateMapper = promptTemplateMapper;
+        this.properties = properties;
+        this.warmthTracker = warmthTracker;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(1);
+        this.scheduler.setThreadNamePrefix("llm-warmup-");
+        this.scheduler.setDaemon(true);
+        this.scheduler.initialize();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Duration interval = properties.getWarmup().getPingInterval();
+        scheduler.execute(this::preload);
+        scheduler.scheduleWithFixedDelay(this::keepWarm, Instant.now().plus(interval), interval);
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    void preload() {
+        for (String model : resolveModels()) {
+            warmUp(model, "preload");
+        }
+    }
+
+    void keepWarm() {
+        Duration idleThreshold = properties.getWarmup().getIdleThreshold();
+        for (String model : resolveModels()) {
+            if (warmthTracker.idleFor(model).compareTo(idleThreshold) >= 0) {
+                warmUp(model, "keepalive");
+            }
+        }
+    }
+
+    /**
+     * 启用模板（含对冲目标）引用的 Ollama 模型、Ollama 为主渠道时的默认模型、路由阶梯中的模型，以及额外配置的模型。
+     */
+    Set<String> resolveModels() {
+        String defaultModel = properties.getOllama().getModel();
+        PromptChannel primary = properties.getPrimaryChannel();
+        Set<String> models = new LinkedHashSet<>();
+        if (primary == PromptChannel.OLLAMA && StringUtils.hasText(defaultModel)) {
+            models.add(defaultModel);
+        }
+        try {
+            for (PromptTemplate template : promptTemplateMapper.findAllActive()) {
+                PromptChannel channel = template.getChannel() != null ? template.getChannel() : primary;
+                if (channel == PromptChannel.OLLAMA) {
+                    models.add(StringUtils.hasText(template.getModelName()) ? template.getModelName() : defaultModel);
+                }
+                PromptChannel hedgeChannel = template.getHedgeChannel() != null ? template.getHedgeChannel() : channel;
+                if (hedgeChannel == PromptChannel.OLLAMA && StringUtils.hasText(template.getHedgeModel())) {
+                    models.add(template.getHedgeModel());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("读取提示词模板失败，仅预热配置的模型", e);
+        }
+        if (properties.getRouting().isEnabled()) {
+            properties.getRouting().getLadder().stream()
+                .filter(rung -> rung.getChannel() == PromptChannel.OLLAMA)
+                .forEach(rung -> models.add(rung.getModel()));
+        }
+        models.addAll(properties.getWarmup().getModels());
+        models.removeIf(model -> !StringUtils.hasText(model));
+        return models;
+    }
+
+    private void warmUp(String model, String type) {
+        try {
+            Duration loadDuration = client.warmUp(model);
+            meterRegistry.timer("healthai.llm.warmup", "model", model, "type", type, "result", "success").record(loadDuration);
+            log.info("Ollama 模型 {} 预热完成({})，加载耗时 {} ms", model, type, loadDuration.toMillis());
+        } catch (RuntimeException e) {
+            meterRegistry.timer("healthai.llm.warmup", "model", model, "type", type, "result", "failure").record(Duration.ZERO);
+            log.warn("Ollama 模型 {} 预热失败({})", model, type, e);
+        }
+    }
+}
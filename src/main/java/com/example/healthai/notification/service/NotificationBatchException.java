@@ -0,0 +1,18 @@
+package com.example.healthai.notification.service;
+
+/**
+ * 批量处理通知时某条事件失败。{@link #getFailedIndex()} 为该事件在传入列表中的下标，之前的事件均已处理完毕。
+ */
+public class NotificationBatchException extends RuntimeException {
+
+    private final int failedIndex;
+
+    public NotificationBatchException(int failedIndex, Throwable cause) {
+        super("第 " + failedIndex + " 条通知事件处理失败: " + cause.getMessage(), cause);
+        this.failedIndex = failedIndex;
+    }
+
+    public int getFailedIndex() {
+        return failedIndex;
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.healthai.notification.service;
 
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -28,4 +32,28 @@ public class NotificationService {
             alertingService.notifyConsultationFailure(payload);
         }
     }
+
+    /**
+     * 批量消费时按批汇总日志，失败事件按顺序逐条告警。某条告警失败时抛出 {@link NotificationBatchException}，
+     * 调用方据下标只重试该条及之后的事件，已发出的告警不会重复。
+     */
+    public void handleConsultationEvents(List<ConsultationEventPayload> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> countsByType = new TreeMap<>();
+        for (int i = 0; i < payloads.size(); i++) {
+            ConsultationEventPayload payload = payloads.get(i);
+            countsByType.merge(String.valueOf(payload.eventType()), 1, Integer::sum);
+            if ("FAILED".equalsIgnoreCase(payload.status())) {
+                try {
+                    alertingService.notifyConsultationFailure(payload);
+                } catch (RuntimeException e) {
+                    log.warn("[Notification] consultation failure alert failed index={} id={}", i, payload.consultationId());
+                    throw new NotificationBatchException(i, e);
+                }
+            }
+        }
+        log.info("[Notification] consultation events received count={} types={}", payloads.size(), countsByType);
+    }
 }
@@ -41,9 +41,12 @@ public class PrescriptionController {
         @RequestParam(required = false) Long doctorId,
         @RequestParam(required = false) String status,
         @RequestParam(defaultValue = "0") int page,
-        @RequestParam(defaultValue = "20") int size
+        @RequestParam(defaultValue = "20") int size,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "true") boolean includeTotal
     ) {
-        return ApiResponse.success(prescriptionService.search(consultationId, patientId, doctorId, status, page, size));
+        return ApiResponse.success(prescriptionService.search(consultationId, patientId, doctorId, status, page, size, cursor,
+            includeTotal));
     }
 
     @GetMapping("/{id}")
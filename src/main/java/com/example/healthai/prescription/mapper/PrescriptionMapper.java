@@ -23,6 +23,17 @@ public interface PrescriptionMapper {
                                @Param("limit") Integer limit,
                                @Param("offset") Integer offset);
 
+    /**
+     * 键集分页：返回 (created_at, id) 严格小于游标的记录。
+     */
+    List<Prescription> searchAfter(@Param("consultationId") Long consultationId,
+                                   @Param("patientId") Long patientId,
+                                   @Param("doctorId") Long doctorId,
+                                   @Param("status") PrescriptionStatus status,
+                                   @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                   @Param("cursorId") long cursorId,
+                                   @Param("limit") int limit);
+
     long count(@Param("consultationId") Long consultationId,
                @Param("patientId") Long patientId,
                @Param("doctorId") Long doctorId,
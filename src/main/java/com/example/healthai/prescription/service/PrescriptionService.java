@@ -18,6 +18,7 @@ import org.springframework.util.StringUtils;
 
 import com.example.healthai.audit.AuditConstants;
 import com.example.healthai.audit.service.AuditTrailService;
+import com.example.healthai.common.api.PageCursor;
 import com.example.healthai.common.api.PageResponse;
 import com.example.healthai.common.exception.BusinessException;
 import com.example.healthai.common.exception.ErrorCode;
@@ -156,20 +157,32 @@ public class PrescriptionService {
                                                                              Long doctorId,
                                                                              String status,
                                                                              int page,
-                                                                             int size) {
+                                                                             int size,
+                                                                             String cursor,
+                                                                             boolean includeTotal) {
         int safePage = Math.max(page, 0);
         int safeSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
-        int offset = safePage * safeSize;
+        PageCursor after = PageCursor.decode(cursor);
 
         PrescriptionStatus statusFilter = parseStatus(status);
 
-        List<PrescriptionListResponse.PrescriptionSummary> items = prescriptionMapper.search(consultationId, patientId, doctorId, statusFilter, safeSize, offset)
-            .stream()
+        // 传入游标时按 (created_at, id) 键集翻页，忽略 page；多取一条用于判断是否还有下一页
+        List<Prescription> fetched = after != null
+            ? prescriptionMapper.searchAfter(consultationId, patientId, doctorId, statusFilter, after.timestamp(), after.id(), safeSize + 1)
+            : prescriptionMapper.search(consultationId, patientId, doctorId, statusFilter, safeSize + 1, safePage * safeSize);
+        boolean hasMore = fetched.size() > safeSize;
+        List<Prescription> prescriptions = hasMore ? fetched.subList(0, safeSize) : fetched;
+        List<PrescriptionListResponse.PrescriptionSummary> items = prescriptions.stream()
             .map(this::toSummary)
             .toList();
-        long total = prescriptionMapper.count(consultationId, patientId, doctorId, statusFilter);
+        Long total = includeTotal ? prescriptionMapper.count(consultationId, patientId, doctorId, statusFilter) : null;
 
-        return new PageResponse<>(items, total, safePage, safeSize);
+        String nextCursor = null;
+        if (hasMore) {
+            Prescription last = prescriptions.get(prescriptions.size() - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new PageResponse<>(items, total, safePage, safeSize, nextCursor);
     }
 
     @Transactional
@@ -0,0 +1,105 @@
+package com.example.healthai.prompt.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.example.healthai.prompt.domain.PromptTemplate;
+
+/**
+ * 预编译的提示词模板：内容在加载时按占位符切分为字面量与变量名交替的片段，
+ * 默认变量也只解析一次，渲染时单次拼接即可完成，无需正则扫描。
+ */
+public final class CompiledPromptTemplate {
+
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{(.*?)}}", Pattern.DOTALL);
+
+    private final PromptTemplate template;
+    private final String[] literals;
+    private final String[] variableNames;
+    private final Map<String, Object> defaults;
+    private final int literalLength;
+
+    private CompiledPromptTemplate(PromptTemplate template, String[] literals, String[] variableNames,
+                                   Map<String, Object> defaults) {
+        this.template = template;
+        this.literals = literals;
+        this.variableNames = variableNames;
+        this.defaults = defaults;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static CompiledPromptTemplate compile(PromptTemplate template, Map<String, Object> defaults) {
+        String content = template.getContent() == null ? "" : template.getContent();
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(content);
+        int position = 0;
+        while (matcher.find()) {
+            literals.add(content.substring(position, matcher.start()));
+            names.add(matcher.group(1).trim());
+            position = matcher.end();
+        }
+        literals.add(content.substring(position));
+        return new CompiledPromptTemplate(template,
+            literals.toArray(String[]::new),
+            names.toArray(String[]::new),
+            // 模板 variables JSON 允许 null 值（如 {"history": null}），Map.copyOf 不接受 null
+            defaults == null ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(defaults)));
+    }
+
+    /**
+     * 调用方变量优先于模板默认变量，缺失或为 null 的变量渲染为空串。
+     */
+    public String render(Map<String, Object> variables) {
+        Map<String, Object> overrides = variables == null ? Collections.emptyMap() : variables;
+        StringBuilder builder = new StringBuilder(literalLength + variableNames.length * 32);
+        for (int i = 0; i < variableNames.length; i++) {
+            builder.append(literals[i]);
+            String name = variableNames[i];
+            Object value = resolve(name, overrides);
+            if (value != null) {
+                builder.append(value);
+            }
+        }
+        builder.append(literals[literals.length - 1]);
+        return builder.toString();
+    }
+
+    public Object resolve(String name, Map<String, Object> variables) {
+        return variables != null && variables.containsKey(name) ? variables.get(name) : defaults.get(name);
+    }
+
+    /**
+     * 变量在模板中出现的次数，截断变量时按出现次数折算节省的 token。
+     */
+    public int occurrences(String name) {
+        int count = 0;
+        for (String variableName : variableNames) {
+            if (variableName.equals(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public PromptTemplate getTemplate() {
+        return template;
+    }
+
+    public Map<String, Object> getDefaults() {
+        return defaults;
+    }
+
+    public List<String> getVariableNames() {
+        return List.of(variableNames);
+    }
+}
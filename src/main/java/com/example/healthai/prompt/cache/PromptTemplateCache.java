@@ -0,0 +1,81 @@
+package com.example.healthai.prompt.cache;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.example.healthai.common.cache.CacheEvictionBroadcaster;
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.prompt.config.PromptProperties;
+import com.example.healthai.prompt.domain.PromptTemplate;
+import com.example.healthai.prompt.mapper.PromptTemplateMapper;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * 按模板 code 缓存当前生效版本的 {@link CompiledPromptTemplate}，命中时热路径上不再访问数据库。
+ * 模板在管理端变更后通过 {@link #evict(String)} 失效，并广播到其他节点。
+ */
+@Component
+public class PromptTemplateCache {
+
+    static final String CACHE_NAME = "prompt-template";
+
+    private final PromptTemplateMapper templateMapper;
+    private final ObjectMapper objectMapper;
+    private final CacheEvictionBroadcaster broadcaster;
+    private final Cache<String, CompiledPromptTemplate> cache;
+
+    public PromptTemplateCache(PromptTemplateMapper templateMapper,
+                               ObjectMapper objectMapper,
+                               CacheEvictionBroadcaster broadcaster,
+                               PromptProperties properties) {
+        this.templateMapper = templateMapper;
+        this.objectMapper = objectMapper;
+        this.broadcaster = broadcaster;
+        PromptProperties.TemplateCacheProperties cacheProperties = properties.getTemplateCache();
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(cacheProperties.getMaximumSize())
+            .expireAfterWrite(cacheProperties.getExpireAfterWrite())
+            .build();
+        broadcaster.register(CACHE_NAME, cache::invalidate);
+    }
+
+    public CompiledPromptTemplate get(String code) {
+        CompiledPromptTemplate compiled = cache.get(code, this::load);
+        if (compiled == null) {
+            throw new BusinessException(ErrorCode.PROMPT_TEMPLATE_NOT_FOUND, "未找到提示词模板: " + code);
+        }
+        return compiled;
+    }
+
+    public void evict(String code) {
+        if (StringUtils.hasText(code)) {
+            broadcaster.evict(CACHE_NAME, code);
+        }
+    }
+
+    private CompiledPromptTemplate load(String code) {
+        return templateMapper.findActiveByCode(code)
+            .map(template -> CompiledPromptTemplate.compile(template, parseDefaults(template)))
+            .orElse(null);
+    }
+
+    private Map<String, Object> parseDefaults(PromptTemplate template) {
+        if (!StringUtils.hasText(template.getVariables())) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(template.getVariables(), new TypeReference<>() {
+            });
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.PROMPT_RENDER_FAILED, "模板变量解析失败", e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.healthai.prompt.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PromptProperties.class)
+public class PromptConfiguration {
+}
@@ -0,0 +1,27 @@
+package com.example.healthai.prompt.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "healthai.prompt")
+public class PromptProperties {
+
+    private TemplateCacheProperties templateCache = new TemplateCacheProperties();
+
+    @Getter
+    @Setter
+    public static class TemplateCacheProperties {
+
+        private long maximumSize = 500;
+        /**
+         * 兜底过期时间，正常情况下依赖管理端修改触发的主动失效。
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(30);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.healthai.prompt.domain;
+
+/**
+ * 模板对应任务的复杂度，模型路由据此限定可用模型的下限。
+ */
+public enum ComplexityClass {
+    SIMPLE,
+    STANDARD,
+    COMPLEX
+}
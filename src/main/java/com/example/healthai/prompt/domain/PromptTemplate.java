@@ -25,6 +25,26 @@ public class PromptTemplate extends BaseEntity {
     private String content;
     private String variables;
     private boolean enabled;
+    private boolean responseCacheEnabled;
+    private Integer responseCacheTtlSeconds;
+    /**
+     * 对冲触发分位数（如 90 表示 p90），为空表示不对冲。
+     */
+    private Double hedgePercentile;
+    private PromptChannel hedgeChannel;
+    private String hedgeModel;
+    /**
+     * 为空时按 STANDARD 参与模型路由。
+     */
+    private ComplexityClass complexityClass;
+    /**
+     * 渲染后提示词的 token 上限，为空表示不限制。
+     */
+    private Integer tokenBudget;
+    /**
+     * 超出预算时可截断的变量，逗号分隔，排在前面的优先级最低、最先截断；未列出的变量不截断。
+     */
+    private String variablePriorities;
 
     public boolean isActive() {
         return enabled;
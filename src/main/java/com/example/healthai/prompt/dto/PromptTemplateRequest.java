@@ -1,10 +1,15 @@
 package com.example.healthai.prompt.dto;
 
+import java.util.List;
 import java.util.Map;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 
+import com.example.healthai.prompt.domain.ComplexityClass;
 import com.example.healthai.prompt.domain.PromptChannel;
 
 public record PromptTemplateRequest(
@@ -16,6 +21,14 @@ public record PromptTemplateRequest(
         String description,
         @NotBlank String content,
         Map<String, Object> variables,
-        Boolean enabled
+        Boolean enabled,
+        Boolean responseCacheEnabled,
+        @Positive Integer responseCacheTtlSeconds,
+        @DecimalMin("1") @DecimalMax("99.9") Double hedgePercentile,
+        PromptChannel hedgeChannel,
+        String hedgeModel,
+        ComplexityClass complexityClass,
+        @Positive Integer tokenBudget,
+        List<String> variablePriorities
 ) {
 }
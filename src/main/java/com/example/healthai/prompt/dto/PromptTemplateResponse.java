@@ -1,8 +1,10 @@
 package com.example.healthai.prompt.dto;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
+import com.example.healthai.prompt.domain.ComplexityClass;
 import com.example.healthai.prompt.domain.PromptChannel;
 
 public record PromptTemplateResponse(
@@ -16,6 +18,14 @@ public record PromptTemplateResponse(
         String content,
         Map<String, Object> variables,
         boolean enabled,
+        boolean responseCacheEnabled,
+        Integer responseCacheTtlSeconds,
+        Double hedgePercentile,
+        PromptChannel hedgeChannel,
+        String hedgeModel,
+        ComplexityClass complexityClass,
+        Integer tokenBudget,
+        List<String> variablePriorities,
         LocalDateTime createdAt,
         LocalDateTime updatedAt
 ) {
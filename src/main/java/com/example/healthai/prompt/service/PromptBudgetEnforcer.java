@@ -0,0 +1,122 @@
+package com.example.healthai.prompt.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.example.healthai.llm.token.TokenCalibrator;
+import com.example.healthai.llm.token.TokenEstimator;
+import com.example.healthai.prompt.cache.CompiledPromptTemplate;
+import com.example.healthai.prompt.domain.PromptTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 按模板的 token_budget 渲染提示词：超出预算时按 variable_priorities 从低优先级变量开始截断，
+ * 文本保留开头部分，列表（如附件）保留前若干项，并注明已省略。截断全部可截断变量后仍超预算时照常下发并记录。
+ */
+@Component
+public class PromptBudgetEnforcer {
+
+    private static final Logger log = LoggerFactory.getLogger(PromptBudgetEnforcer.class);
+    private static final String TRUNCATED_MARK = "…（已截断）";
+
+    private final TokenCalibrator calibrator;
+    private final MeterRegistry meterRegistry;
+
+    public PromptBudgetEnforcer(TokenCalibrator calibrator, MeterRegistry meterRegistry) {
+        this.calibrator = calibrator;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param model 用于选择校准比例的模型
+     */
+    public BudgetedPrompt render(CompiledPromptTemplate compiled, Map<String, Object> variables, String model) {
+        TokenEstimator estimator = calibrator.estimator();
+        PromptTemplate template = compiled.getTemplate();
+        String prompt = compiled.render(variables);
+        int rawTokens = estimator.estimate(prompt);
+        Integer budget = template.getTokenBudget();
+        if (budget == null || calibrator.calibrate(model, rawTokens) <= budget) {
+            return new BudgetedPrompt(prompt, rawTokens);
+        }
+
+        int overflow = rawTokens - (int) Math.floor(budget / calibrator.ratio(model));
+        Map<String, Object> adjusted = variables == null ? new HashMap<>() : new HashMap<>(variables);
+        for (String name : priorities(template)) {
+            if (overflow <= 0) {
+                break;
+            }
+            int occurrences = compiled.occurrences(name);
+            Object value = compiled.resolve(name, adjusted);
+            if (occurrences == 0 || value == null) {
+                continue;
+            }
+            int tokens = estimator.estimate(value.toString());
+            int keep = Math.max(0, tokens - (overflow + occurrences - 1) / occurrences);
+            Object shortened = shorten(value, keep, estimator);
+            overflow -= (tokens - estimator.estimate(shortened.toString())) * occurrences;
+            adjusted.put(name, shortened);
+            meterRegistry.counter("healthai.llm.prompt.truncated", "template", template.getCode(), "variable", name).increment();
+        }
+
+        prompt = compiled.render(adjusted);
+        rawTokens = estimator.estimate(prompt);
+        if (calibrator.calibrate(model, rawTokens) > budget) {
+            log.warn("提示词模板 {} 截断后仍超出 token 预算: estimated={} budget={}", template.getCode(),
+                calibrator.calibrate(model, rawTokens), budget);
+            meterRegistry.counter("healthai.llm.prompt.over_budget", "template", template.getCode()).increment();
+        }
+        return new BudgetedPrompt(prompt, rawTokens);
+    }
+
+    private Object shorten(Object value, int keepTokens, TokenEstimator estimator) {
+        if (value instanceof Collection<?> items) {
+            // 预留省略说明与括号的开销
+            int available = keepTokens - estimator.estimate(omittedMark(items.size())) - 2;
+            List<Object> kept = new ArrayList<>();
+            int used = 0;
+            for (Object item : items) {
+                int itemTokens = estimator.estimate(String.valueOf(item)) + 1;
+                if (used + itemTokens > available) {
+                    break;
+                }
+                used += itemTokens;
+                kept.add(item);
+            }
+            if (kept.size() < items.size()) {
+                kept.add(omittedMark(items.size() - kept.size()));
+            }
+            return kept;
+        }
+        String text = value.toString();
+        int available = keepTokens - estimator.estimate(TRUNCATED_MARK);
+        return available > 0 ? estimator.truncate(text, available) + TRUNCATED_MARK : TRUNCATED_MARK;
+    }
+
+    private static String omittedMark(int count) {
+        return "（另有 " + count + " 项已省略）";
+    }
+
+    private List<String> priorities(PromptTemplate template) {
+        String priorities = template.getVariablePriorities();
+        if (!StringUtils.hasText(priorities)) {
+            return List.of();
+        }
+        return List.of(StringUtils.tokenizeToStringArray(priorities, ","));
+    }
+
+    /**
+     * @param rawTokens 未经校准的估算 token 数，调用完成后与实际值对比用于校准
+     */
+    public record BudgetedPrompt(String prompt, int rawTokens) {
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.healthai.prompt.service;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
+import com.example.healthai.llm.schedule.LlmPriority;
 import com.example.healthai.prompt.domain.PromptChannel;
 
 import lombok.Builder;
@@ -24,4 +27,17 @@ public class PromptExecutionCommand {
 
     @Builder.Default
     private Map<String, Object> options = Collections.emptyMap();
+
+    @Builder.Default
+    private LlmPriority priority = LlmPriority.PATIENT_TRIAGE;
+
+    /**
+     * 调度排队的最长等待时间，为空时使用请求类别的默认值。
+     */
+    private Duration maxQueueWait;
+
+    /**
+     * 上一轮生成返回的对话 context，携带时提示词只需包含本轮新增内容。
+     */
+    private List<Integer> context;
 }
@@ -1,5 +1,7 @@
 package com.example.healthai.prompt.service;
 
+import java.util.List;
+
 import com.example.healthai.prompt.domain.PromptChannel;
 
 import lombok.Builder;
@@ -16,4 +18,9 @@ public class PromptResult {
     private final Integer completionTokens;
     private final Long latencyMs;
     private final String content;
+
+    /**
+     * 模型返回的对话 context（目前仅 Ollama 提供），用于多轮追问时续接。
+     */
+    private final List<Integer> context;
 }
@@ -1,117 +1,324 @@
 package com.example.healthai.prompt.service;
 
-import java.io.IOException;
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import com.example.healthai.common.exception.BusinessException;
 import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.llm.cache.LlmRequestKey;
+import com.example.healthai.llm.cache.LlmResponseCache;
 import com.example.healthai.llm.client.LlmClient;
+import com.example.healthai.llm.client.LlmFailures;
 import com.example.healthai.llm.client.LlmRequest;
 import com.example.healthai.llm.client.LlmResponse;
 import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.llm.hedge.HedgedLlmInvoker;
+import com.example.healthai.llm.routing.ModelRouter;
+import com.example.healthai.llm.schedule.LlmRequestScheduler;
 import com.example.healthai.llm.service.LlmClientRegistry;
+import com.example.healthai.llm.stats.LatencyTracker;
+import com.example.healthai.llm.stats.LlmCallMetrics;
+import com.example.healthai.llm.token.TokenCalibrator;
+import com.example.healthai.prompt.cache.CompiledPromptTemplate;
+import com.example.healthai.prompt.cache.PromptTemplateCache;
 import com.example.healthai.prompt.domain.PromptChannel;
 import com.example.healthai.prompt.domain.PromptTemplate;
-import com.example.healthai.prompt.mapper.PromptTemplateMapper;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Service
 public class PromptService {
 
-    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{(.*?)}}", Pattern.DOTALL);
+    private static final Logger log = LoggerFactory.getLogger(PromptService.class);
     private static final String DEFAULT_CONSULTATION_TEMPLATE_CODE = "consult.initial";
 
-    private final PromptTemplateMapper templateMapper;
+    private final PromptTemplateCache templateCache;
     private final LlmClientRegistry clientRegistry;
     private final LlmProperties properties;
-    private final ObjectMapper objectMapper;
+    private final LlmResponseCache responseCache;
+    private final LatencyTracker latencyTracker;
+    private final HedgedLlmInvoker hedgedInvoker;
+    private final LlmRequestScheduler scheduler;
+    private final ModelRouter modelRouter;
+    private final PromptBudgetEnforcer budgetEnforcer;
+    private final TokenCalibrator tokenCalibrator;
+    private final LlmCallMetrics callMetrics;
+    private final MeterRegistry meterRegistry;
 
-    public PromptService(PromptTemplateMapper templateMapper,
+    public PromptService(PromptTemplateCache templateCache,
                          LlmClientRegistry clientRegistry,
                          LlmProperties properties,
-                         ObjectMapper objectMapper) {
-        this.templateMapper = templateMapper;
+                         LlmResponseCache responseCache,
+                         LatencyTracker latencyTracker,
+                         HedgedLlmInvoker hedgedInvoker,
+                         LlmRequestScheduler scheduler,
+                         ModelRouter modelRouter,
+                         PromptBudgetEnforcer budgetEnforcer,
+                         TokenCalibrator tokenCalibrator,
+                         LlmCallMetrics callMetrics,
+                         MeterRegistry meterRegistry) {
+        this.templateCache = templateCache;
         this.clientRegistry = clientRegistry;
         this.properties = properties;
-        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.latencyTracker = latencyTracker;
+        this.hedgedInvoker = hedgedInvoker;
+        this.scheduler = scheduler;
+        this.modelRouter = modelRouter;
+        this.budgetEnforcer = budgetEnforcer;
+        this.tokenCalibrator = tokenCalibrator;
+        this.callMetrics = callMetrics;
+        this.meterRegistry = meterRegistry;
     }
 
     public PromptResult executeConsultationPrompt(PromptExecutionCommand command) {
+        PreparedPrompt prepared = prepare(command);
+        Optional<LlmResponse> cached = lookupCachedResponse(prepared);
+        if (cached.isPresent()) {
+            return toResult(prepared, cached.get());
+        }
+        return schedule(command, prepared, () -> generate(prepared));
+    }
+
+    /**
+     * 与 {@link #executeConsultationPrompt} 使用相同的模板与渠道解析，但以流式方式逐段回调生成内容。
+     */
+    public PromptResult streamConsultationPrompt(PromptExecutionCommand command, Consumer<String> tokenConsumer) {
+        PreparedPrompt prepared = prepare(command);
+        Optional<LlmResponse> cached = lookupCachedResponse(prepared);
+        if (cached.isPresent()) {
+            tokenConsumer.accept(cached.get().getContent());
+            return toResult(prepared, cached.get());
+        }
+        return schedule(command, prepared, () -> stream(prepared, tokenConsumer));
+    }
+
+    /**
+     * 经调度器执行并记录排队耗时；失败时的耗时从开始执行算起，未能出队的从提交算起。
+     */
+    private PromptResult schedule(PromptExecutionCommand command, PreparedPrompt prepared, Supplier<PromptResult> call) {
+        String templateCode = prepared.template().getCode();
+        AtomicLong startedAt = new AtomicLong(System.nanoTime());
+        long submittedAt = startedAt.get();
+        try {
+            return scheduler.execute(command.getPriority(), command.getMaxQueueWait(), () -> {
+                startedAt.set(System.nanoTime());
+                callMetrics.recordQueueWait(prepared.channel(), prepared.request().getModel(), templateCode,
+                    startedAt.get() - submittedAt);
+                return call.get();
+            });
+        } catch (BusinessException e) {
+            callMetrics.recordFailure(prepared.channel(), prepared.request().getModel(), templateCode, e.getErrorCode(),
+                System.nanoTime() - startedAt.get());
+            throw e;
+        }
+    }
+
+    private PromptResult generate(PreparedPrompt prepared) {
+        LlmResponse response;
+        PreparedPrompt answered = prepared;
+        try {
+            Optional<PreparedPrompt> hedge = hedgeTarget(prepared);
+            if (hedge.isPresent()) {
+                HedgedLlmInvoker.HedgedResponse hedged = hedgedInvoker.invoke(
+                    prepared.client(), prepared.request(), hedge.get().client(), hedge.get().request(), hedgeDelay(prepared));
+                response = hedged.response();
+                answered = hedged.hedgeWon() ? hedge.get() : prepared;
+            } else {
+                response = prepared.client().generate(prepared.request());
+            }
+        } catch (BusinessException e) {
+            answered = failover(prepared, e).orElseThrow(() -> e);
+            response = answered.client().generate(answered.request());
+        }
+        return complete(answered, response, null);
+    }
+
+    private PromptResult stream(PreparedPrompt prepared, Consumer<String> tokenConsumer) {
+        FirstTokenWatch watch = new FirstTokenWatch(tokenConsumer);
+        LlmResponse response;
+        try {
+            response = prepared.client().stream(prepared.request(), watch);
+        } catch (BusinessException e) {
+            // 已经向调用方输出过内容时不再切换渠道，避免拼接两个模型的结果
+            if (watch.emitted()) {
+                throw e;
+            }
+            PreparedPrompt fallback = failover(prepared, e).orElseThrow(() -> e);
+            FirstTokenWatch fallbackWatch = new FirstTokenWatch(tokenConsumer);
+            return complete(fallback, fallback.client().stream(fallback.request(), fallbackWatch), fallbackWatch.elapsedNanos());
+        }
+        return complete(prepared, response, watch.elapsedNanos());
+    }
+
+    private PreparedPrompt prepare(PromptExecutionCommand command) {
+        long startedAt = System.nanoTime();
         String templateCode = StringUtils.hasText(command.getTemplateCode())
             ? command.getTemplateCode()
             : DEFAULT_CONSULTATION_TEMPLATE_CODE;
 
-        PromptTemplate template = templateMapper.findActiveByCode(templateCode)
-            .orElseThrow(() -> new BusinessException(ErrorCode.PROMPT_TEMPLATE_NOT_FOUND, "未找到提示词模板: " + templateCode));
+        CompiledPromptTemplate compiled = templateCache.get(templateCode);
+        PromptTemplate template = compiled.getTemplate();
 
-        Map<String, Object> variables = mergeVariables(template, command.getVariables());
-        String renderedPrompt = renderTemplate(template.getContent(), variables);
+        PromptChannel requestedChannel = command.getChannelOverride() != null ? command.getChannelOverride() : template.getChannel();
+        LlmClient client = resolveClient(requestedChannel);
+        PromptChannel channel = client.channel();
 
-        PromptChannel channel = command.getChannelOverride() != null ? command.getChannelOverride() : template.getChannel();
-        LlmClient client = resolveClient(channel);
+        // 预算按路由前的模型校准，路由基于截断后的提示词
+        String baseModel = determineModel(template, command.getModelOverride(), channel);
+        PromptBudgetEnforcer.BudgetedPrompt budgeted = budgetEnforcer.render(compiled, command.getVariables(), baseModel);
+        String renderedPrompt = budgeted.prompt();
+        String model = StringUtils.hasText(command.getModelOverride())
+            ? baseModel
+            : modelRouter.route(channel, template, renderedPrompt).orElse(baseModel);
 
-        String model = determineModel(template, command.getModelOverride(), channel);
-
-        LlmResponse response = client.generate(LlmRequest.builder()
+        LlmRequest request = LlmRequest.builder()
             .model(model)
             .prompt(renderedPrompt)
             .options(command.getOptions())
             .maxTokens(command.getMaxTokens())
             .temperature(command.getTemperature())
-            .build());
-
-        return PromptResult.builder()
-            .prompt(renderedPrompt)
-            .channel(channel)
-            .model(response.getModel())
-            .promptTokens(response.getPromptTokens())
-            .completionTokens(response.getCompletionTokens())
-            .latencyMs(extractLatency(response.getLatency()))
-            .content(response.getContent())
+            .context(command.getContext())
             .build();
+        String cacheKey = template.isResponseCacheEnabled() && responseCache.isEnabled() && request.getContext() == null
+            ? LlmRequestKey.of(channel, request)
+            : null;
+        callMetrics.recordRender(templateCode, System.nanoTime() - startedAt);
+        return new PreparedPrompt(template, renderedPrompt, channel, client, request, cacheKey, resolveCacheTtl(template),
+            budgeted.rawTokens());
     }
 
-    private Map<String, Object> mergeVariables(PromptTemplate template, Map<String, Object> commandVariables) {
-        Map<String, Object> merged = new HashMap<>();
-        if (StringUtils.hasText(template.getVariables())) {
-            try {
-                Map<String, Object> templateVars = objectMapper.readValue(template.getVariables(), new TypeReference<>() {
-                });
-                merged.putAll(templateVars);
-            } catch (IOException e) {
-                throw new BusinessException(ErrorCode.PROMPT_RENDER_FAILED, "模板变量解析失败", e);
-            }
+    /**
+     * @param firstTokenNanos 流式调用的首 token 耗时，非流式调用为 null
+     */
+    private PromptResult complete(PreparedPrompt answered, LlmResponse response, Long firstTokenNanos) {
+        latencyTracker.record(answered.channel(), answered.request().getModel(), response.getLatency());
+        String model = response.getModel() != null ? response.getModel() : answered.request().getModel();
+        String templateCode = answered.template().getCode();
+        if (firstTokenNanos != null) {
+            callMetrics.recordFirstToken(answered.channel(), model, templateCode, firstTokenNanos);
         }
-        if (commandVariables != null) {
-            merged.putAll(commandVariables);
+        callMetrics.recordSuccess(answered.channel(), model, templateCode, response.getLatency(),
+            response.getPromptTokens(), response.getCompletionTokens(), firstTokenNanos);
+        // 续接 context 时模型只评估本轮新增内容，实际计数与估算不可比
+        if (!hasContext(answered)) {
+            tokenCalibrator.record(model, answered.estimatedTokens(), response.getPromptTokens());
         }
-        return merged;
+        cacheResponse(answered, response);
+        return toResult(answered, response);
     }
 
-    private String renderTemplate(String content, Map<String, Object> variables) {
-        if (!StringUtils.hasText(content)) {
-            return "";
+    /**
+     * 模板配置了 hedge_percentile 时的对冲目标：优先模板指定的渠道/模型，未指定渠道但指定了模型时使用同一渠道，
+     * 都未指定时使用另一渠道的默认模型。与主请求完全相同的目标没有意义（还会被在途合并），不对冲。
+     * 携带对话 context 的请求只对原模型有效，同样不对冲。
+     */
+    private Optional<PreparedPrompt> hedgeTarget(PreparedPrompt prepared) {
+        PromptTemplate template = prepared.template();
+        if (!properties.getHedging().isEnabled() || template.getHedgePercentile() == null || hasContext(prepared)) {
+            return Optional.empty();
+        }
+        boolean hasHedgeModel = StringUtils.hasText(template.getHedgeModel());
+        PromptChannel channel = template.getHedgeChannel() != null
+            ? template.getHedgeChannel()
+            : hasHedgeModel ? prepared.channel() : alternate(prepared.channel());
+        LlmClient client = clientRegistry.getClient(channel);
+        if (client == null) {
+            return Optional.empty();
         }
-        Matcher matcher = PLACEHOLDER_PATTERN.matcher(content);
-        StringBuffer buffer = new StringBuffer();
-        while (matcher.find()) {
-            String key = matcher.group(1).trim();
-            Object replacement = variables.getOrDefault(key, "");
-            String replacementStr = replacement == null ? "" : replacement.toString();
-            matcher.appendReplacement(buffer, Matcher.quoteReplacement(replacementStr));
+        String model = hasHedgeModel ? template.getHedgeModel() : defaultModel(channel);
+        if (channel == prepared.channel() && Objects.equals(model, prepared.request().getModel())) {
+            return Optional.empty();
+        }
+        return Optional.of(retarget(prepared, channel, client, model));
+    }
+
+    private Duration hedgeDelay(PreparedPrompt prepared) {
+        return latencyTracker.percentile(prepared.channel(), prepared.request().getModel(),
+                prepared.template().getHedgePercentile())
+            .orElse(properties.getHedging().getDefaultDelay());
+    }
+
+    /**
+     * 当前渠道熔断、过载、超时或返回 429/5xx 时切换到另一渠道，使用该渠道配置的默认模型；失败切换的结果不写入响应缓存。
+     * 携带 context 的请求提示词只包含本轮内容，换模型后语义不完整，交由调用方以完整历史重试。
+     */
+    private Optional<PreparedPrompt> failover(PreparedPrompt prepared, BusinessException cause) {
+        if (!properties.isFailoverEnabled() || !LlmFailures.isFailoverEligible(cause.getErrorCode()) || hasContext(prepared)) {
+            return Optional.empty();
+        }
+        PromptChannel alternate = alternate(prepared.channel());
+        LlmClient client = clientRegistry.getClient(alternate);
+        if (client == null) {
+            return Optional.empty();
+        }
+        log.warn("大模型渠道 {} 不可用({})，切换到 {}", prepared.channel(), cause.getErrorCode(), alternate);
+        meterRegistry.counter("healthai.llm.failover",
+            "from", prepared.channel().name(), "to", alternate.name(), "reason", cause.getErrorCode().name()).increment();
+        return Optional.of(retarget(prepared, alternate, client, defaultModel(alternate)));
+    }
+
+    /**
+     * 以相同提示词与参数改投到其他渠道/模型，结果不写入响应缓存。
+     */
+    private PreparedPrompt retarget(PreparedPrompt prepared, PromptChannel channel, LlmClient client, String model) {
+        LlmRequest original = prepared.request();
+        LlmRequest request = LlmRequest.builder()
+            .model(model)
+            .prompt(original.getPrompt())
+            .options(original.getOptions())
+            .maxTokens(original.getMaxTokens())
+            .temperature(original.getTemperature())
+            .build();
+        return new PreparedPrompt(prepared.template(), prepared.renderedPrompt(), channel, client, request, null, null,
+            prepared.estimatedTokens());
+    }
+
+    private boolean hasContext(PreparedPrompt prepared) {
+        return prepared.request().getContext() != null;
+    }
+
+    private PromptChannel alternate(PromptChannel channel) {
+        return channel == PromptChannel.OLLAMA ? PromptChannel.HTTP_API : PromptChannel.OLLAMA;
+    }
+
+    private Optional<LlmResponse> lookupCachedResponse(PreparedPrompt prepared) {
+        return prepared.cacheKey() == null ? Optional.empty() : responseCache.get(prepared.cacheKey());
+    }
+
+    private void cacheResponse(PreparedPrompt prepared, LlmResponse response) {
+        if (prepared.cacheKey() != null) {
+            responseCache.put(prepared.cacheKey(), response, prepared.cacheTtl());
         }
-        matcher.appendTail(buffer);
-        return buffer.toString();
+    }
+
+    private Duration resolveCacheTtl(PromptTemplate template) {
+        Integer ttlSeconds = template.getResponseCacheTtlSeconds();
+        return ttlSeconds != null && ttlSeconds > 0
+            ? Duration.ofSeconds(ttlSeconds)
+            : properties.getResponseCache().getDefaultTtl();
+    }
+
+    private PromptResult toResult(PreparedPrompt prepared, LlmResponse response) {
+        return PromptResult.builder()
+            .prompt(prepared.renderedPrompt())
+            .channel(prepared.channel())
+            .model(response.getModel())
+            .promptTokens(response.getPromptTokens())
+            .completionTokens(response.getCompletionTokens())
+            .latencyMs(extractLatency(response.getLatency()))
+            .content(response.getContent())
+            .context(response.getContext())
+            .build();
     }
 
     private LlmClient resolveClient(PromptChannel channel) {
@@ -124,6 +331,9 @@ public class PromptService {
         return client;
     }
 
+    /**
+     * 优先级：调用方指定 > 模型阶梯路由 > 模板配置 > 渠道默认模型；此处不含路由。
+     */
     private String determineModel(PromptTemplate template, String override, PromptChannel channel) {
         if (StringUtils.hasText(override)) {
             return override;
@@ -131,7 +341,11 @@ public class PromptService {
         if (StringUtils.hasText(template.getModelName())) {
             return template.getModelName();
         }
-        return switch (channel != null ? channel : properties.getPrimaryChannel()) {
+        return defaultModel(channel != null ? channel : properties.getPrimaryChannel());
+    }
+
+    private String defaultModel(PromptChannel channel) {
+        return switch (channel) {
             case OLLAMA -> properties.getOllama().getModel();
             case HTTP_API -> properties.getHttp().getModel();
         };
@@ -140,4 +354,38 @@ public class PromptService {
     private Long extractLatency(Duration latency) {
         return latency == null ? null : latency.toMillis();
     }
+
+    /**
+     * 透传流式内容，同时记录是否已输出以及首段内容到达的耗时。
+     */
+    private static final class FirstTokenWatch implements Consumer<String> {
+
+        private final Consumer<String> delegate;
+        private final long startedAt = System.nanoTime();
+        private volatile long firstTokenNanos = -1;
+
+        private FirstTokenWatch(Consumer<String> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void accept(String token) {
+            if (firstTokenNanos < 0) {
+                firstTokenNanos = System.nanoTime() - startedAt;
+            }
+            delegate.accept(token);
+        }
+
+        private boolean emitted() {
+            return firstTokenNanos >= 0;
+        }
+
+        private Long elapsedNanos() {
+            return firstTokenNanos < 0 ? null : firstTokenNanos;
+        }
+    }
+
+    private record PreparedPrompt(PromptTemplate template, String renderedPrompt, PromptChannel channel, LlmClient client, LlmRequest request,
+                                  String cacheKey, Duration cacheTtl, int estimatedTokens) {
+    }
 }
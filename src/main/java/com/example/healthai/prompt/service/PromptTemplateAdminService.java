@@ -3,12 +3,15 @@ package com.example.healthai.prompt.service;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import com.example.healthai.common.exception.BusinessException;
 import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.prompt.cache.PromptTemplateCache;
 import com.example.healthai.prompt.domain.PromptTemplate;
 import com.example.healthai.prompt.dto.PromptTemplateRequest;
 import com.example.healthai.prompt.dto.PromptTemplateResponse;
@@ -28,10 +31,14 @@ public class PromptTemplateAdminService {
 
     private final PromptTemplateMapper promptTemplateMapper;
     private final ObjectMapper objectMapper;
+    private final PromptTemplateCache promptTemplateCache;
 
-    public PromptTemplateAdminService(PromptTemplateMapper promptTemplateMapper, ObjectMapper objectMapper) {
+    public PromptTemplateAdminService(PromptTemplateMapper promptTemplateMapper,
+                                      ObjectMapper objectMapper,
+                                      PromptTemplateCache promptTemplateCache) {
         this.promptTemplateMapper = promptTemplateMapper;
         this.objectMapper = objectMapper;
+        this.promptTemplateCache = promptTemplateCache;
     }
 
     @Transactional(readOnly = true)
@@ -65,10 +72,19 @@ public class PromptTemplateAdminService {
             .content(request.content())
             .variables(serializeVariables(request))
             .enabled(request.enabled() == null || request.enabled())
+            .responseCacheEnabled(Boolean.TRUE.equals(request.responseCacheEnabled()))
+            .responseCacheTtlSeconds(request.responseCacheTtlSeconds())
+            .hedgePercentile(request.hedgePercentile())
+            .hedgeChannel(request.hedgeChannel())
+            .hedgeModel(request.hedgeModel())
+            .complexityClass(request.complexityClass())
+            .tokenBudget(request.tokenBudget())
+            .variablePriorities(joinPriorities(request.variablePriorities()))
             .createdAt(now)
             .updatedAt(now)
             .build();
         promptTemplateMapper.insert(template);
+        promptTemplateCache.evict(template.getCode());
         return toResponse(template);
     }
 
@@ -86,8 +102,19 @@ public class PromptTemplateAdminService {
         if (request.enabled() != null) {
             existing.setEnabled(request.enabled());
         }
+        if (request.responseCacheEnabled() != null) {
+            existing.setResponseCacheEnabled(request.responseCacheEnabled());
+        }
+        existing.setResponseCacheTtlSeconds(request.responseCacheTtlSeconds());
+        existing.setHedgePercentile(request.hedgePercentile());
+        existing.setHedgeChannel(request.hedgeChannel());
+        existing.setHedgeModel(request.hedgeModel());
+        existing.setComplexityClass(request.complexityClass());
+        existing.setTokenBudget(request.tokenBudget());
+        existing.setVariablePriorities(joinPriorities(request.variablePriorities()));
         existing.setUpdatedAt(LocalDateTime.now());
         promptTemplateMapper.update(existing);
+        promptTemplateCache.evict(existing.getCode());
         return toResponse(existing);
     }
 
@@ -103,6 +130,7 @@ public class PromptTemplateAdminService {
         existing.setEnabled(enabled);
         existing.setUpdatedAt(LocalDateTime.now());
         promptTemplateMapper.update(existing);
+        promptTemplateCache.evict(existing.getCode());
         return toResponse(existing);
     }
 
@@ -118,11 +146,35 @@ public class PromptTemplateAdminService {
             template.getContent(),
             deserializeVariables(template.getVariables()),
             template.isEnabled(),
+            template.isResponseCacheEnabled(),
+            template.getResponseCacheTtlSeconds(),
+            template.getHedgePercentile(),
+            template.getHedgeChannel(),
+            template.getHedgeModel(),
+            template.getComplexityClass(),
+            template.getTokenBudget(),
+            splitPriorities(template.getVariablePriorities()),
             template.getCreatedAt(),
             template.getUpdatedAt()
         );
     }
 
+    private String joinPriorities(List<String> priorities) {
+        if (priorities == null || priorities.isEmpty()) {
+            return null;
+        }
+        return priorities.stream()
+            .filter(StringUtils::hasText)
+            .map(String::trim)
+            .collect(Collectors.joining(","));
+    }
+
+    private List<String> splitPriorities(String priorities) {
+        return StringUtils.hasText(priorities)
+            ? List.of(StringUtils.commaDelimitedListToStringArray(priorities))
+            : List.of();
+    }
+
     private String serializeVariables(PromptTemplateRequest request) {
         if (request.variables() == null) {
             return null;
@@ -0,0 +1,2 @@
+ALTER TABLE prompt_templates ADD COLUMN response_cache_enabled TINYINT(1) NOT NULL DEFAULT 0;
+ALTER TABLE prompt_templates ADD COLUMN response_cache_ttl_seconds INT NULL;
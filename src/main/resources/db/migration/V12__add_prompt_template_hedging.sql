@@ -0,0 +1,3 @@
+ALTER TABLE prompt_templates ADD COLUMN hedge_percentile DECIMAL(5,2) NULL;
+ALTER TABLE prompt_templates ADD COLUMN hedge_channel ENUM('OLLAMA','HTTP_API') NULL;
+ALTER TABLE prompt_templates ADD COLUMN hedge_model VARCHAR(128) NULL;
@@ -0,0 +1 @@
+ALTER TABLE prompt_templates ADD COLUMN complexity_class ENUM('SIMPLE','STANDARD','COMPLEX') NULL;
@@ -0,0 +1,2 @@
+ALTER TABLE prompt_templates ADD COLUMN token_budget INT NULL;
+ALTER TABLE prompt_templates ADD COLUMN variable_priorities VARCHAR(512) NULL;
@@ -0,0 +1,4 @@
+-- 同一问诊内 sequence_no 唯一，并发追加消息时由唯一约束兜底。
+-- 先建唯一索引再删除原普通索引，保证外键 fk_consultation_messages_consultation 始终有可用索引。
+CREATE UNIQUE INDEX uniq_consultation_messages_consultation_seq ON consultation_messages (consultation_id, sequence_no);
+DROP INDEX idx_consultation_messages_consultation_seq ON consultation_messages;
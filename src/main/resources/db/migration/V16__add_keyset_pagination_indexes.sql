@@ -0,0 +1,11 @@
+-- 列表接口按 (created_at, id) / (occurred_at, id) 倒序做键集分页，过滤列在前、排序列在后，避免深分页时的大偏移扫描。
+CREATE INDEX idx_consultations_user_created ON consultations (user_id, created_at, id);
+CREATE INDEX idx_consultations_doctor_created ON consultations (doctor_id, created_at, id);
+
+CREATE INDEX idx_prescriptions_created ON prescriptions (created_at, id);
+CREATE INDEX idx_prescriptions_patient_created ON prescriptions (patient_id, created_at, id);
+CREATE INDEX idx_prescriptions_doctor_created ON prescriptions (doctor_id, created_at, id);
+
+CREATE INDEX idx_audit_occurred ON audit_events (occurred_at, id);
+CREATE INDEX idx_audit_actor_occurred ON audit_events (actor_id, occurred_at, id);
+CREATE INDEX idx_audit_resource_occurred ON audit_events (resource_type, occurred_at, id);
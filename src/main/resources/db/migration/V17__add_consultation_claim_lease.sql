@@ -0,0 +1,6 @@
+-- 医生工作队列：领取 AI_REVIEWED 问诊时写入 doctor_id 与租约到期时间，到期未复核的问诊由后台任务退回队列。
+ALTER TABLE consultations ADD COLUMN claim_expires_at TIMESTAMP NULL;
+
+-- 领取查询 status = 'AI_REVIEWED' AND doctor_id IS NULL ORDER BY created_at 直接走索引有序扫描，配合 SKIP LOCKED 无需排序与回表过滤。
+CREATE INDEX idx_consultations_status_doctor_created ON consultations (status, doctor_id, created_at);
+CREATE INDEX idx_consultations_claim_expires ON consultations (claim_expires_at);
@@ -0,0 +1,11 @@
+-- 问诊领域事件发件箱：与业务数据同一事务写入，由中继批量投递 Kafka 成功后删除，保证事件与数据同生共死。
+CREATE TABLE consultation_outbox (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    consultation_id BIGINT NOT NULL,
+    topic VARCHAR(255) NOT NULL,
+    event_type VARCHAR(64) NOT NULL,
+    payload TEXT NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    last_error VARCHAR(512) NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,12 @@
+-- 发件箱重试退避：投递失败的事件在 next_attempt_at 之前不再被取出；重试次数耗尽后写入 parked_at 搁置，等待人工处理。
+ALTER TABLE consultation_outbox ADD COLUMN next_attempt_at TIMESTAMP NULL;
+ALTER TABLE consultation_outbox ADD COLUMN parked_at TIMESTAMP NULL;
+
+CREATE INDEX idx_consultation_outbox_parked ON consultation_outbox (parked_at, id);
+
+-- 中继互斥锁：每批投递前在同一事务中锁住这一行，多实例部署时同一时刻只有一个中继在投递，保持事件的写入顺序。
+CREATE TABLE consultation_outbox_lock (
+    name VARCHAR(64) PRIMARY KEY
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO consultation_outbox_lock (name) VALUES ('relay');
@@ -65,6 +65,7 @@ public abstract class AbstractIntegrationTest {
         resetTable("prescriptions", "id");
         resetTable("medicines", "id");
         resetTable("audit_events", "id");
+        resetTable("consultation_outbox", "id");
         resetTable("consultation_messages", "id");
         resetTable("consultations", "id");
         resetTable("prompt_templates", "id");
@@ -6,6 +6,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -71,6 +73,40 @@ class AuditEventAdminControllerTest extends AbstractIntegrationTest {
         assertThat(actorFiltered.path("content").get(0).path("actorId").asLong()).isEqualTo(101L);
     }
 
+    @Test
+    void shouldPageAuditEventsByCursorAcrossIdenticalTimestamps() throws Exception {
+        LocalDateTime occurredAt = LocalDateTime.of(2024, 1, 1, 9, 0);
+        for (long actor = 1; actor <= 5; actor++) {
+            insertEvent(occurredAt, actor, AuditConstants.RESOURCE_CONSULTATION, AuditConstants.ACTION_CONSULT_CREATED);
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/v1/admin/audit-events")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("resourceType", AuditConstants.RESOURCE_CONSULTATION)
+                .param("size", "2")
+                .param("includeTotal", "false");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode data = objectMapper.readTree(mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString())
+                .path("data");
+            data.path("content").forEach(event -> seen.add(event.path("id").asLong()));
+            cursor = data.path("nextCursor").isNull() ? null : data.path("nextCursor").asText();
+            pages++;
+        } while (cursor != null && pages < 10);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).containsExactly(5L, 4L, 3L, 2L, 1L);
+    }
+
     private void insertEvent(LocalDateTime occurredAt,
                              Long actorId,
                              String resourceType,
@@ -0,0 +1,27 @@
+package com.example.healthai.common.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.healthai.common.exception.BusinessException;
+
+class PageCursorTest {
+
+    @Test
+    void shouldRoundTripEncodedCursor() {
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2024, 5, 1, 8, 30, 15, 123_000_000), 42L);
+
+        assertThat(PageCursor.decode(cursor.encode())).isEqualTo(cursor);
+        assertThat(PageCursor.decode(" ")).isNull();
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThatThrownBy(() -> PageCursor.decode("not-a-cursor"))
+            .isInstanceOf(BusinessException.class);
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.healthai.config;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
@@ -15,6 +17,7 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 
 import com.example.healthai.audit.service.AuditTrailService;
 import com.example.healthai.prompt.service.PromptExecutionCommand;
@@ -75,6 +78,34 @@ public class TestRedisConfiguration {
 
         when(template.delete(anyString())).thenAnswer(invocation -> store.remove(invocation.getArgument(0)) != null);
 
+        when(valueOperations.multiGet(anyCollection())).thenAnswer(invocation -> {
+            java.util.List<String> result = new java.util.ArrayList<>();
+            for (String key : (java.util.Collection<String>) invocation.getArgument(0)) {
+                StoredValue stored = store.get(key);
+                result.add(stored == null || stored.isExpired() ? null : stored.value());
+            }
+            return result;
+        });
+
+        when(valueOperations.increment(anyString())).thenAnswer(invocation -> {
+            StoredValue updated = store.compute(invocation.getArgument(0), (key, stored) -> StoredValue.of(
+                String.valueOf(stored == null || stored.isExpired() ? 1 : Long.parseLong(stored.value()) + 1), null));
+            return Long.parseLong(updated.value());
+        });
+
+        // 问诊详情缓存的条件写脚本：KEYS[2] 版本与 ARGV[1] 一致时写入 KEYS[1]
+        when(template.execute(any(RedisScript.class), anyList(), any(), any(), any())).thenAnswer(invocation -> {
+            java.util.List<String> keys = invocation.getArgument(1);
+            StoredValue version = store.get(keys.get(1));
+            String current = version == null || version.isExpired() ? "0" : version.value();
+            if (!current.equals(invocation.getArgument(2))) {
+                return 0L;
+            }
+            String ttlMillis = invocation.getArgument(4);
+            store.put(keys.get(0), StoredValue.of(invocation.getArgument(3), Duration.ofMillis(Long.parseLong(ttlMillis))));
+            return 1L;
+        });
+
         return template;
     }
 
@@ -0,0 +1,149 @@
+package com.example.healthai.consult.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import com.example.healthai.common.cache.CacheBroadcastProperties;
+import com.example.healthai.common.cache.CacheEvictionBroadcaster;
+import com.example.healthai.consult.config.ConsultationCacheProperties;
+import com.example.healthai.consult.dto.ConsultationDetailResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConsultationDetailCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final ConsultationDetailCache cache = newCache();
+
+    @Test
+    void shouldServeRepeatedReadsFromCacheUntilEvicted() {
+        cache.get(1L, () -> load("DRAFT"));
+        ConsultationDetailResponse cached = cache.get(1L, () -> load("AI_REVIEWED"));
+        cache.evict(1L);
+        ConsultationDetailResponse reloaded = cache.get(1L, () -> load("AI_REVIEWED"));
+
+        assertThat(cached.status()).isEqualTo("DRAFT");
+        assertThat(reloaded.status()).isEqualTo("AI_REVIEWED");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldNotFillWithSnapshotLoadedAcrossEviction() {
+        cache.get(1L, () -> {
+            ConsultationDetailResponse stale = load("DRAFT");
+            cache.evict(1L);
+            return stale;
+        });
+        ConsultationDetailResponse next = cache.get(1L, () -> load("AI_REVIEWED"));
+
+        assertThat(next.status()).isEqualTo("AI_REVIEWED");
+    }
+
+    @Test
+    void shouldNotWriteBackSnapshotLoadedBeforeAnotherNodeEvicted() {
+        // 两个节点共享一个 Redis、未开启广播：B 回源读到 DRAFT，A 提交 AI 结果并失效后 B 才写回
+        Map<String, String> redis = new ConcurrentHashMap<>();
+        ConsultationDetailCache nodeA = newCache(sharedRedis(redis));
+        ConsultationDetailCache nodeB = newCache(sharedRedis(redis));
+
+        ConsultationDetailResponse staleOnB = nodeB.get(1L, () -> {
+            ConsultationDetailResponse stale = load("DRAFT");
+            nodeA.evict(1L);
+            return stale;
+        });
+
+        assertThat(staleOnB.status()).isEqualTo("DRAFT");
+        assertThat(redis).doesNotContainKey("healthai:consult:detail:1");
+        assertThat(nodeA.get(1L, () -> load("AI_REVIEWED")).status()).isEqualTo("AI_REVIEWED");
+        // B 没有回填本地缓存，下一次读取命中 A 写入 Redis 的新数据
+        assertThat(nodeB.get(1L, () -> load("DRAFT")).status()).isEqualTo("AI_REVIEWED");
+    }
+
+    @Test
+    void shouldShareSnapshotThroughRedisWhenNothingChanged() {
+        Map<String, String> redis = new ConcurrentHashMap<>();
+        ConsultationDetailCache nodeA = newCache(sharedRedis(redis));
+        ConsultationDetailCache nodeB = newCache(sharedRedis(redis));
+
+        nodeA.get(1L, () -> load("AI_REVIEWED"));
+        ConsultationDetailResponse fromRedis = nodeB.get(1L, () -> load("DRAFT"));
+
+        assertThat(fromRedis.status()).isEqualTo("AI_REVIEWED");
+        assertThat(loads).hasValue(1);
+    }
+
+    private ConsultationDetailResponse load(String status) {
+        loads.incrementAndGet();
+        return new ConsultationDetailResponse(1L, 10L, null, "发热", null, null, status, null, null, null,
+            null, null, null, List.of());
+    }
+
+    private static ConsultationDetailCache newCache() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ConsultationCacheProperties properties = new ConsultationCacheProperties();
+        properties.setRedisEnabled(false);
+        CacheEvictionBroadcaster broadcaster = new CacheEvictionBroadcaster(redisTemplate, new CacheBroadcastProperties());
+        return new ConsultationDetailCache(redisTemplate, new ObjectMapper(), broadcaster, properties, new SimpleMeterRegistry());
+    }
+
+    private static ConsultationDetailCache newCache(StringRedisTemplate redisTemplate) {
+        // 广播默认关闭，每个节点只失效自己的本地缓存与 Redis
+        CacheEvictionBroadcaster broadcaster = new CacheEvictionBroadcaster(redisTemplate, new CacheBroadcastProperties());
+        return new ConsultationDetailCache(redisTemplate, new ObjectMapper(), broadcaster, new ConsultationCacheProperties(),
+            new SimpleMeterRegistry());
+    }
+
+    /**
+     * 以 Map 模拟共享 Redis，条件写脚本按其语义在 Java 中执行。
+     */
+    @SuppressWarnings("unchecked")
+    private static StringRedisTemplate sharedRedis(Map<String, String> store) {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(template.opsForValue()).thenReturn(values);
+        when(values.multiGet(anyCollection())).thenAnswer(invocation -> {
+            List<String> result = new ArrayList<>();
+            for (String key : (Collection<String>) invocation.getArgument(0)) {
+                result.add(store.get(key));
+            }
+            return result;
+        });
+        when(values.get(anyString())).thenAnswer(invocation -> store.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> store.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(values).set(anyString(), anyString(), any(Duration.class));
+        when(values.increment(anyString())).thenAnswer(invocation -> Long.parseLong(store.merge(invocation.getArgument(0), "1",
+            (current, one) -> String.valueOf(Long.parseLong(current) + 1))));
+        when(template.delete(anyString())).thenAnswer(invocation -> store.remove(invocation.<String>getArgument(0)) != null);
+        when(template.execute(eq(ConsultationDetailCache.WRITE_IF_UNCHANGED), anyList(), any(), any(), any()))
+            .thenAnswer(invocation -> {
+                List<String> keys = invocation.getArgument(1);
+                String expected = invocation.getArgument(2);
+                if (!store.getOrDefault(keys.get(1), "0").equals(expected)) {
+                    return 0L;
+                }
+                store.put(keys.get(0), invocation.getArgument(3));
+                return 1L;
+            });
+        return template;
+    }
+}
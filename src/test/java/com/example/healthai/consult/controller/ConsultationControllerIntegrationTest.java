@@ -2,19 +2,27 @@ package com.example.healthai.consult.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,18 +30,27 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
+import org.springframework.test.web.servlet.MvcResult;
 
 import com.example.healthai.AbstractIntegrationTest;
+import com.example.healthai.audit.AuditConstants;
+import com.example.healthai.audit.service.AuditTrailService;
 import com.example.healthai.auth.domain.User;
 import com.example.healthai.auth.domain.UserType;
+import com.example.healthai.common.exception.ErrorCode;
 import com.example.healthai.consult.config.ConsultationKafkaProperties;
 import com.example.healthai.consult.domain.Consultation;
 import com.example.healthai.consult.domain.ConsultationMessage;
 import com.example.healthai.consult.domain.ConsultationMessageRole;
 import com.example.healthai.consult.domain.ConsultationStatus;
 import com.example.healthai.consult.event.ConsultationEventPayload;
+import com.example.healthai.consult.event.ConsultationOutboxRelay;
 import com.example.healthai.consult.mapper.ConsultationMapper;
 import com.example.healthai.consult.mapper.ConsultationMessageMapper;
+import com.example.healthai.consult.service.ConsultationService;
+import com.example.healthai.prompt.service.PromptExecutionCommand;
+import com.example.healthai.prompt.service.PromptResult;
+import com.example.healthai.prompt.service.PromptService;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.concurrent.CompletableFuture;
@@ -50,6 +67,18 @@ class ConsultationControllerIntegrationTest extends AbstractIntegrationTest {
     @Autowired
     private ConsultationKafkaProperties kafkaProperties;
 
+    @Autowired
+    private PromptService promptService;
+
+    @Autowired
+    private ConsultationOutboxRelay outboxRelay;
+
+    @Autowired
+    private ConsultationService consultationService;
+
+    @Autowired
+    private AuditTrailService auditTrailService;
+
     @MockBean
     private KafkaTemplate<String, ConsultationEventPayload> kafkaTemplate;
 
@@ -57,7 +86,7 @@ class ConsultationControllerIntegrationTest extends AbstractIntegrationTest {
     void setupKafkaTemplate() {
         reset(kafkaTemplate);
         CompletableFuture<SendResult<String, ConsultationEventPayload>> future = CompletableFuture.completedFuture(null);
-        doReturn(future).when(kafkaTemplate).send(anyString(), anyString(), any(ConsultationEventPayload.class));
+        doReturn(future).when(kafkaTemplate).send(any(ProducerRecord.class));
     }
 
     @Test
@@ -77,9 +106,10 @@ class ConsultationControllerIntegrationTest extends AbstractIntegrationTest {
             .getContentAsString());
 
         assertThat(response.path("data").path("status").asText()).isEqualTo(ConsultationStatus.AI_REVIEWED.name());
-        ArgumentCaptor<String> topicCaptor = ArgumentCaptor.forClass(String.class);
-        verify(kafkaTemplate, times(2)).send(topicCaptor.capture(), anyString(), any(ConsultationEventPayload.class));
-        assertThat(topicCaptor.getAllValues()).containsExactly(
+        outboxRelay.relayOnce();
+        ArgumentCaptor<ProducerRecord<String, ConsultationEventPayload>> recordCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(recordCaptor.capture());
+        assertThat(recordCaptor.getAllValues()).extracting(ProducerRecord::topic).containsExactly(
             kafkaProperties.getCreatedTopic(),
             kafkaProperties.getAiReviewedTopic()
         );
@@ -134,8 +164,225 @@ class ConsultationControllerIntegrationTest extends AbstractIntegrationTest {
             .getContentAsString());
 
         assertThat(reviewResponse.path("data").path("status").asText()).isEqualTo(ConsultationStatus.DOCTOR_REVIEWED.name());
-        verify(kafkaTemplate, times(1)).send(eq(kafkaProperties.getReviewedTopic()), eq(consultation.getId().toString()),
-            any(ConsultationEventPayload.class));
+        outboxRelay.relayOnce();
+        verify(kafkaTemplate, times(1)).send(argThat((ProducerRecord<String, ConsultationEventPayload> record) ->
+            kafkaProperties.getReviewedTopic().equals(record.topic()) && consultation.getId().toString().equals(record.key())));
+    }
+
+    @Test
+    void shouldStreamAiTokensAndPersistAccumulatedDiagnosis() throws Exception {
+        createUser("patient-stream");
+        String token = loginAndGetToken("patient-stream", "Password123");
+        when(promptService.streamConsultationPrompt(any(PromptExecutionCommand.class), any()))
+            .thenAnswer(invocation -> {
+                Consumer<String> tokenConsumer = invocation.getArgument(1);
+                tokenConsumer.accept("建议");
+                tokenConsumer.accept("多喝水");
+                return PromptResult.builder()
+                    .content("建议多喝水")
+                    .model("test-model")
+                    .completionTokens(2)
+                    .build();
+            });
+
+        MvcResult result = mockMvc.perform(post("/api/v1/consultations/stream")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"symptomDescription\":\"喉咙痛\"}"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        result.getAsyncResult(5000);
+
+        String body = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertThat(body).contains("event:token", "data:建议", "data:多喝水", "event:done");
+
+        Consultation consultation = consultationMapper.search(null, null, null, 1, 0).get(0);
+        assertThat(consultation.getStatus()).isEqualTo(ConsultationStatus.AI_REVIEWED);
+        assertThat(consultation.getAiDiagnosis()).isEqualTo("建议多喝水");
+        assertThat(consultationMessageMapper.findByConsultationId(consultation.getId()))
+            .extracting(ConsultationMessage::getContent)
+            .containsExactly("喉咙痛", "建议多喝水");
+    }
+
+    @Test
+    void shouldKeepReviewCommittedWhileFollowUpWasGenerating() throws Exception {
+        User patient = createUser("patient-follow");
+        String token = loginAndGetToken("patient-follow", "Password123");
+        Consultation consultation = Consultation.builder()
+            .userId(patient.getId())
+            .symptomDescription("咳嗽")
+            .status(ConsultationStatus.AI_REVIEWED)
+            .createdAt(LocalDateTime.now())
+            .updatedAt(LocalDateTime.now())
+            .build();
+        consultationMapper.insert(consultation);
+        when(promptService.executeConsultationPrompt(any(PromptExecutionCommand.class)))
+            .thenReturn(PromptResult.builder().content("多休息").model("test-model").build())
+            .thenAnswer(invocation -> {
+                // 生成期间医生关闭问诊
+                jdbcTemplate.update("UPDATE consultations SET status = 'CLOSED', doctor_opinion = ? WHERE id = ?",
+                    "已痊愈", consultation.getId());
+                return PromptResult.builder().content("继续观察").model("test-model").build();
+            });
+
+        mockMvc.perform(post("/api/v1/consultations/" + consultation.getId() + "/messages")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"content\":\"还在咳\"}"))
+            .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/consultations/" + consultation.getId() + "/messages")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"content\":\"又发烧了\"}"))
+            .andExpect(status().isConflict());
+
+        Consultation stored = consultationMapper.findById(consultation.getId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(ConsultationStatus.CLOSED);
+        assertThat(stored.getDoctorOpinion()).isEqualTo("已痊愈");
+        assertThat(consultationMessageMapper.findByConsultationId(consultation.getId()))
+            .extracting(ConsultationMessage::getContent)
+            .containsExactly("还在咳", "多休息");
+    }
+
+    @Test
+    void shouldClaimUnassignedConsultationsWithoutOverlap() throws Exception {
+        User patient = createUser("patient-queue");
+        insertDoctor("doctor-a", 301L);
+        insertDoctor("doctor-b", 302L);
+        LocalDateTime base = LocalDateTime.now().minusMinutes(10);
+        for (int i = 0; i < 3; i++) {
+            consultationMapper.insert(Consultation.builder()
+                .userId(patient.getId())
+                .symptomDescription("发热 " + i)
+                .status(ConsultationStatus.AI_REVIEWED)
+                .createdAt(base.plusMinutes(i))
+                .updatedAt(base.plusMinutes(i))
+                .build());
+        }
+        String tokenA = loginAndGetToken("doctor-a", "Password123");
+        String tokenB = loginAndGetToken("doctor-b", "Password123");
+
+        JsonNode claimedByA = claim(tokenA, 2);
+        JsonNode claimedByB = claim(tokenB, 2);
+
+        assertThat(claimedByA.path("items").findValuesAsText("symptomDescription")).containsExactly("发热 0", "发热 1");
+        assertThat(claimedByB.path("items").findValuesAsText("symptomDescription")).containsExactly("发热 2");
+        assertThat(claimedByA.path("leaseExpiresAt").isNull()).isFalse();
+
+        long claimedId = claimedByA.path("items").get(0).path("id").asLong();
+        mockMvc.perform(post("/api/v1/consultations/" + claimedId + "/review")
+                .header("Authorization", "Bearer " + tokenB)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"doctorOpinion\":\"建议休息\",\"status\":\"DOCTOR_REVIEWED\"}"))
+            .andExpect(status().isForbidden());
+
+        jdbcTemplate.update("UPDATE consultations SET claim_expires_at = ? WHERE id = ?",
+            LocalDateTime.now().minusMinutes(1), claimedId);
+        assertThat(consultationMapper.requeueExpiredClaims(LocalDateTime.now())).isEqualTo(1);
+        assertThat(claim(tokenB, 1).path("items").get(0).path("id").asLong()).isEqualTo(claimedId);
+    }
+
+    private JsonNode claim(String token, int limit) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(post("/api/v1/consultations/queue/claim")
+                .header("Authorization", "Bearer " + token)
+                .param("limit", String.valueOf(limit)))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString(StandardCharsets.UTF_8)).path("data");
+    }
+
+    private void insertDoctor(String username, Long id) {
+        User doctor = User.builder()
+            .username(username)
+            .passwordHash(passwordEncoder.encode("Password123"))
+            .fullName("Doctor")
+            .gender("unknown")
+            .userType(UserType.DOCTOR)
+            .registeredAt(LocalDateTime.now())
+            .createdAt(LocalDateTime.now())
+            .updatedAt(LocalDateTime.now())
+            .build();
+        doctor.setId(id);
+        userMapper.insert(doctor);
+    }
+
+    @Test
+    void shouldPageConsultationsByCursorAcrossIdenticalTimestamps() throws Exception {
+        User patient = createUser("patient-keyset");
+        String token = loginAndGetToken("patient-keyset", "Password123");
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 9, 0);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Consultation consultation = Consultation.builder()
+                .userId(patient.getId())
+                .symptomDescription("症状" + i)
+                .status(ConsultationStatus.AI_REVIEWED)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+            consultationMapper.insert(consultation);
+            expected.add(0, consultation.getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/v1/consultations")
+                .header("Authorization", "Bearer " + token)
+                .param("size", "2")
+                .param("includeTotal", "false");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode data = objectMapper.readTree(mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8)).path("data");
+            data.path("items").forEach(item -> seen.add(item.path("id").asLong()));
+            assertThat(data.path("total").isNull()).isTrue();
+            cursor = data.path("nextCursor").isNull() ? null : data.path("nextCursor").asText();
+            pages++;
+        } while (cursor != null && pages < 10);
+
+        // 4 条恰好填满两页，第二页即最后一页，不应再返回游标
+        assertThat(pages).isEqualTo(2);
+        assertThat(seen).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void shouldFailDraftWhoseTriageWasLost() {
+        reset(auditTrailService);
+        User patient = createUser("patient-lost-triage");
+        Consultation stale = draft(patient, "头痛", LocalDateTime.now().minusMinutes(30));
+        Consultation fresh = draft(patient, "咽痛", LocalDateTime.now());
+
+        assertThat(consultationService.failAbandonedTriage()).isEqualTo(1);
+
+        Consultation failed = consultationMapper.findById(stale.getId()).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(ConsultationStatus.FAILED);
+        assertThat(failed.getAiErrorCode()).isEqualTo(ErrorCode.CONSULTATION_TRIAGE_ABANDONED.getCode());
+        assertThat(consultationMapper.findById(fresh.getId()).orElseThrow().getStatus()).isEqualTo(ConsultationStatus.DRAFT);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM consultation_outbox WHERE topic = ?",
+            Integer.class, kafkaProperties.getFailedTopic())).isEqualTo(1);
+        verify(auditTrailService).recordConsultationEvent(eq(AuditConstants.ACTION_CONSULT_AI_COMPLETED), isNull(),
+            eq(AuditConstants.ACTOR_SYSTEM), eq(stale.getId().toString()), isNull(), any());
+
+        assertThat(consultationService.failAbandonedTriage()).isZero();
+    }
+
+    private Consultation draft(User patient, String symptom, LocalDateTime createdAt) {
+        Consultation consultation = Consultation.builder()
+            .userId(patient.getId())
+            .symptomDescription(symptom)
+            .status(ConsultationStatus.DRAFT)
+            .createdAt(createdAt)
+            .updatedAt(createdAt)
+            .build();
+        consultationMapper.insert(consultation);
+        return consultation;
     }
 
     @Test
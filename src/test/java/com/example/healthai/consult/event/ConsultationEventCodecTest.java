@@ -0,0 +1,83 @@
+package com.example.healthai.consult.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ConsultationEventCodecTest {
+
+    private static final String SYMPTOM = "发热三天，最高体温 39 度，伴有咳嗽和咽痛，自行服用退烧药后效果不明显。".repeat(4);
+    private static final String DIAGNOSIS = "考虑急性上呼吸道感染，建议多饮水、注意休息，体温持续超过 38.5 度或出现呼吸困难时及时就医。".repeat(6);
+
+    private final ConsultationEventDeserializer deserializer = new ConsultationEventDeserializer();
+
+    @Test
+    void shouldRoundTripAndShrinkPayload() throws Exception {
+        ConsultationEventPayload full = payload(SYMPTOM, DIAGNOSIS, "建议休息");
+        ConsultationEventPayload thin = payload(null, null, null);
+
+        byte[] json = new ObjectMapper().writeValueAsBytes(full);
+        byte[] avro = ConsultationEventCodec.encode(full);
+        byte[] thinAvro = ConsultationEventCodec.encode(thin);
+
+        assertThat(deserializer.deserialize("t", avro)).isEqualTo(full);
+        assertThat(deserializer.deserialize("t", json)).isEqualTo(full);
+        assertThat(avro.length).isLessThan(json.length);
+        assertThat(thinAvro.length).isLessThan(200);
+    }
+
+    @Test
+    void shouldReadEventsWrittenWithPreviousSchemaVersion() throws Exception {
+        Schema v1 = ConsultationEventSchemas.schema(1);
+        GenericRecord record = new GenericData.Record(v1);
+        record.put("consultationId", 7L);
+        record.put("status", "AI_REVIEWED");
+        record.put("eventType", "CONSULTATION_AI_REVIEWED");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(ConsultationEventCodec.MAGIC_BYTE);
+        out.writeBytes(ByteBuffer.allocate(4).putInt(1).array());
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(v1).write(record, encoder);
+        encoder.flush();
+
+        ConsultationEventPayload decoded = deserializer.deserialize("t", out.toByteArray());
+
+        assertThat(decoded.consultationId()).isEqualTo(7L);
+        assertThat(decoded.status()).isEqualTo("AI_REVIEWED");
+        assertThat(decoded.detailUrl()).isNull();
+    }
+
+    @Test
+    void shouldKeepWritingJsonUntilAvroIsEnabled() {
+        ConsultationEventPayload event = payload(SYMPTOM, DIAGNOSIS, "建议休息");
+        ConsultationEventSerializer serializer = new ConsultationEventSerializer();
+
+        serializer.configure(Map.of(), false);
+        byte[] json = serializer.serialize("t", event);
+        assertThat(ConsultationEventCodec.isEncoded(json)).isFalse();
+        assertThat(deserializer.deserialize("t", json)).isEqualTo(event);
+
+        serializer.configure(Map.of(ConsultationEventSerializer.AVRO_ENABLED_CONFIG, "true"), false);
+        byte[] avro = serializer.serialize("t", event);
+        assertThat(ConsultationEventCodec.isEncoded(avro)).isTrue();
+        assertThat(deserializer.deserialize("t", avro)).isEqualTo(event);
+    }
+
+    private ConsultationEventPayload payload(String summary, String aiDiagnosis, String doctorOpinion) {
+        return new ConsultationEventPayload(1024L, 2048L, 4096L, "DOCTOR_REVIEWED", "CONSULTATION_REVIEWED",
+            summary, aiDiagnosis, doctorOpinion, "qwen2.5:7b-instruct", 1834, null, "2024-05-01T08:30:15.123",
+            "/api/v1/consultations/1024");
+    }
+}
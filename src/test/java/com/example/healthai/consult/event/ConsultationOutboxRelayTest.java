@@ -0,0 +1,131 @@
+package com.example.healthai.consult.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.healthai.consult.config.ConsultationKafkaProperties;
+import com.example.healthai.consult.domain.ConsultationOutboxEvent;
+import com.example.healthai.consult.mapper.ConsultationOutboxMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConsultationOutboxRelayTest {
+
+    private final ConsultationOutboxMapper outboxMapper = mock(ConsultationOutboxMapper.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, ConsultationEventPayload> kafkaTemplate = mock(KafkaTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsultationOutboxRelay relay = new ConsultationOutboxRelay(outboxMapper, kafkaTemplate, new ObjectMapper(),
+        new TransactionTemplate(mock(PlatformTransactionManager.class)), new ConsultationKafkaProperties(), meterRegistry);
+
+    @Test
+    void shouldDeleteAcknowledgedEventsAndKeepFailedOnesForRetry() {
+        when(outboxMapper.tryLockRelay()).thenReturn("relay");
+        when(outboxMapper.findBatchForUpdate(eq(200), any(LocalDateTime.class))).thenReturn(List.of(event(1L, 11L, 0), event(2L, 12L, 0)));
+        doReturn(CompletableFuture.completedFuture(null))
+            .when(kafkaTemplate).send(argThat(withKey("11")));
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")))
+            .when(kafkaTemplate).send(argThat(withKey("12")));
+
+        LocalDateTime before = LocalDateTime.now();
+        // 只统计确认成功的事件，失败的不会让 drain 误以为还有积压而空转
+        assertThat(relay.relayOnce()).isEqualTo(1);
+
+        verify(outboxMapper).deleteByIds(List.of(1L));
+        ArgumentCaptor<LocalDateTime> nextAttempt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxMapper).markFailed(eq(2L), eq("broker unavailable"), nextAttempt.capture());
+        assertThat(nextAttempt.getValue()).isAfterOrEqualTo(before.plusSeconds(1));
+        assertThat(meterRegistry.get("healthai.consultation.outbox.published").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("healthai.consultation.outbox.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStampOutboxIdAsEventIdHeader() {
+        when(outboxMapper.tryLockRelay()).thenReturn("relay");
+        when(outboxMapper.findBatchForUpdate(eq(200), any(LocalDateTime.class))).thenReturn(List.of(event(42L, 11L, 0)));
+        doReturn(CompletableFuture.completedFuture(null)).when(kafkaTemplate).send(any(ProducerRecord.class));
+
+        relay.relayOnce();
+
+        ArgumentCaptor<ProducerRecord<String, ConsultationEventPayload>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(sent.capture());
+        assertThat(sent.getValue().key()).isEqualTo("11");
+        assertThat(new String(sent.getValue().headers().lastHeader(ConsultationEventHeaders.EVENT_ID).value(),
+            StandardCharsets.UTF_8)).isEqualTo("42");
+    }
+
+    @Test
+    void shouldParkEventOnceAttemptsAreExhausted() {
+        when(outboxMapper.tryLockRelay()).thenReturn("relay");
+        when(outboxMapper.findBatchForUpdate(eq(200), any(LocalDateTime.class))).thenReturn(List.of(event(3L, 13L, 9)));
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("record too large")))
+            .when(kafkaTemplate).send(argThat(withKey("13")));
+
+        assertThat(relay.relayOnce()).isZero();
+
+        verify(outboxMapper).park(eq(3L), eq("record too large"), any(LocalDateTime.class));
+        verify(outboxMapper, never()).markFailed(anyLong(), anyString(), any());
+        assertThat(meterRegistry.get("healthai.consultation.outbox.parked").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldSkipBatchWhileAnotherInstanceHoldsRelayLock() {
+        when(outboxMapper.tryLockRelay()).thenReturn(null);
+
+        assertThat(relay.relayOnce()).isZero();
+
+        verify(outboxMapper, never()).findBatchForUpdate(anyInt(), any());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void shouldDoubleRetryBackoffUpToLimit() {
+        assertThat(relay.retryBackoff(1)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(relay.retryBackoff(2)).isEqualTo(Duration.ofSeconds(2));
+        assertThat(relay.retryBackoff(4)).isEqualTo(Duration.ofSeconds(8));
+        assertThat(relay.retryBackoff(30)).isEqualTo(Duration.ofMinutes(5));
+    }
+
+    private static ArgumentMatcher<ProducerRecord<String, ConsultationEventPayload>> withKey(String key) {
+        return record -> record != null && key.equals(record.key());
+    }
+
+    private ConsultationOutboxEvent event(Long id, Long consultationId, int attempts) {
+        return ConsultationOutboxEvent.builder()
+            .id(id)
+            .consultationId(consultationId)
+            .topic("healthai.consultations.created")
+            .eventType("CONSULTATION_CREATED")
+            .payload("{\"consultationId\":" + consultationId + ",\"status\":\"DRAFT\"}")
+            .attempts(attempts)
+            .createdAt(LocalDateTime.now())
+            .build();
+    }
+}
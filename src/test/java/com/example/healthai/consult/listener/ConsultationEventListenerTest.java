@@ -0,0 +1,111 @@
+package com.example.healthai.consult.listener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import com.example.healthai.consult.config.ConsultationKafkaProperties;
+import com.example.healthai.consult.event.ConsultationEventHeaders;
+import com.example.healthai.consult.event.ConsultationEventPayload;
+import com.example.healthai.notification.service.AlertingService;
+import com.example.healthai.notification.service.NotificationService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConsultationEventListenerTest {
+
+    private final AlertingService alertingService = mock(AlertingService.class);
+    private final NotificationService notificationService = new NotificationService(alertingService);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsultationEventListener listener =
+        new ConsultationEventListener(notificationService, new ConsultationKafkaProperties(), meterRegistry);
+
+    @Test
+    void shouldHandleInDeliveryOrderAndSkipRedeliveredEventIds() {
+        long now = System.currentTimeMillis();
+        List<ConsumerRecord<String, ConsultationEventPayload>> records = List.of(
+            record(0, now - 300, "1", event(1L, "CONSULTATION_CREATED", "DRAFT")),
+            record(1, now - 200, "2", event(2L, "CONSULTATION_FAILED", "FAILED")),
+            record(2, now - 150, "2", event(2L, "CONSULTATION_FAILED", "FAILED")),
+            record(3, now - 100, "3", event(2L, "CONSULTATION_FAILED", "FAILED")),
+            record(4, now - 50, "4", null));
+
+        listener.onConsultationEvents(records);
+
+        // 同一问诊同一类型但事件 id 不同（如失败后重新分诊再次失败）是两次独立事件，都应告警
+        ArgumentCaptor<ConsultationEventPayload> alerted = ArgumentCaptor.forClass(ConsultationEventPayload.class);
+        verify(alertingService, times(2)).notifyConsultationFailure(alerted.capture());
+        assertThat(alerted.getAllValues()).extracting(ConsultationEventPayload::consultationId).containsOnly(2L);
+        assertThat(meterRegistry.get("healthai.consultation.events.batch.size").summary().max()).isEqualTo(5);
+        assertThat(meterRegistry.get("healthai.consultation.events.duplicate").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("healthai.consultation.events.skipped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("healthai.consultation.events.lag").timer().count()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldReportFailingRecordIndexAndNotRealertOnRetry() {
+        long now = System.currentTimeMillis();
+        ConsultationEventPayload first = event(1L, "CONSULTATION_FAILED", "FAILED");
+        ConsultationEventPayload second = event(2L, "CONSULTATION_FAILED", "FAILED");
+        ConsultationEventPayload third = event(3L, "CONSULTATION_FAILED", "FAILED");
+        List<ConsumerRecord<String, ConsultationEventPayload>> records = List.of(
+            record(0, now, "10", null),
+            record(1, now, "11", first),
+            record(2, now, "12", second),
+            record(3, now, "13", third));
+        doThrow(new IllegalStateException("sms gateway down"))
+            .doNothing()
+            .when(alertingService).notifyConsultationFailure(second);
+
+        assertThatThrownBy(() -> listener.onConsultationEvents(records))
+            .isInstanceOf(BatchListenerFailedException.class)
+            // 下标指向原始记录列表，而不是剔除无法解析的记录后交给通知服务的事件列表
+            .satisfies(ex -> assertThat(((BatchListenerFailedException) ex).getIndex()).isEqualTo(2))
+            .hasRootCauseMessage("sms gateway down");
+        verify(alertingService, never()).notifyConsultationFailure(third);
+
+        // 错误处理器提交下标之前的偏移量后从失败记录起重发；再平衡等情况下也可能整批重发
+        listener.onConsultationEvents(records);
+
+        verify(alertingService, times(1)).notifyConsultationFailure(first);
+        verify(alertingService, times(2)).notifyConsultationFailure(second);
+        verify(alertingService, times(1)).notifyConsultationFailure(third);
+    }
+
+    @Test
+    void shouldIgnoreEmptyBatch() {
+        listener.onConsultationEvents(List.of());
+
+        verify(alertingService, never()).notifyConsultationFailure(any());
+    }
+
+    private ConsumerRecord<String, ConsultationEventPayload> record(long offset, long timestamp, String eventId,
+                                                                   ConsultationEventPayload payload) {
+        String key = payload == null ? null : String.valueOf(payload.consultationId());
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(ConsultationEventHeaders.EVENT_ID, eventId.getBytes(StandardCharsets.UTF_8));
+        return new ConsumerRecord<>("healthai.consultations.failed", 0, offset, timestamp, TimestampType.CREATE_TIME, -1, -1,
+            key, payload, headers, Optional.empty());
+    }
+
+    private ConsultationEventPayload event(Long consultationId, String eventType, String status) {
+        return new ConsultationEventPayload(consultationId, 10L, null, status, eventType, null, null, null, null,
+            null, null, null, null);
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.healthai.consult.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -19,8 +21,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.beans.factory.ObjectProvider;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.healthai.audit.service.AuditTrailService;
 import com.example.healthai.auth.domain.User;
@@ -28,15 +31,25 @@ import com.example.healthai.auth.domain.UserType;
 import com.example.healthai.auth.mapper.UserMapper;
 import com.example.healthai.common.exception.BusinessException;
 import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.consult.cache.ConsultationDetailCache;
+import com.example.healthai.consult.config.ConsultationAiProperties;
 import com.example.healthai.consult.config.ConsultationKafkaProperties;
+import com.example.healthai.consult.config.ConsultationQueueProperties;
+import com.example.healthai.consult.domain.Consultation;
 import com.example.healthai.consult.domain.ConsultationMessage;
 import com.example.healthai.consult.domain.ConsultationMessageRole;
 import com.example.healthai.consult.domain.ConsultationStatus;
 import com.example.healthai.consult.dto.ConsultationCreateRequest;
 import com.example.healthai.consult.dto.ConsultationDetailResponse;
+import com.example.healthai.consult.dto.ConsultationFollowUpRequest;
+import com.example.healthai.consult.dto.ConsultationReviewRequest;
+import com.example.healthai.consult.event.ConsultationEventOutbox;
 import com.example.healthai.consult.event.ConsultationEventPayload;
 import com.example.healthai.consult.mapper.ConsultationMapper;
 import com.example.healthai.consult.mapper.ConsultationMessageMapper;
+import com.example.healthai.consult.service.ConversationContextStore.ConversationContext;
+import com.example.healthai.llm.schedule.LlmPriority;
+import com.example.healthai.llm.token.BpeApproximateTokenEstimator;
 import com.example.healthai.prompt.domain.PromptChannel;
 import com.example.healthai.prompt.service.PromptExecutionCommand;
 import com.example.healthai.prompt.service.PromptResult;
@@ -56,25 +69,38 @@ class ConsultationServiceTest {
     @Mock
     private AuditTrailService auditTrailService;
     @Mock
-    private KafkaTemplate<String, ConsultationEventPayload> kafkaTemplate;
+    private ConsultationEventOutbox eventOutbox;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ConversationContextStore contextStore;
     @Mock
-    private ObjectProvider<KafkaTemplate<String, ConsultationEventPayload>> kafkaTemplateProvider;
+    private ConsultationDetailCache detailCache;
 
     private ConsultationKafkaProperties kafkaProperties;
+    private ConsultationAiProperties aiProperties;
     private ConsultationService consultationService;
 
     @BeforeEach
     void setUp() {
         kafkaProperties = new ConsultationKafkaProperties();
-        when(kafkaTemplateProvider.getIfAvailable()).thenReturn(kafkaTemplate);
+        aiProperties = new ConsultationAiProperties();
         consultationService = new ConsultationService(
             consultationMapper,
             consultationMessageMapper,
             userMapper,
             promptService,
             auditTrailService,
-            kafkaTemplateProvider,
-            kafkaProperties
+            eventOutbox,
+            kafkaProperties,
+            aiProperties,
+            Runnable::run,
+            new TransactionTemplate(transactionManager),
+            contextStore,
+            new BpeApproximateTokenEstimator(),
+            new ConsultationQueueProperties(),
+            detailCache
         );
     }
 
@@ -130,7 +156,7 @@ class ConsultationServiceTest {
         assertThat(response.aiDiagnosis()).isEqualTo("AI diagnosis suggestion");
 
         ArgumentCaptor<String> topicCaptor = ArgumentCaptor.forClass(String.class);
-        verify(kafkaTemplate, times(2)).send(topicCaptor.capture(), anyString(), any(ConsultationEventPayload.class));
+        verify(eventOutbox, times(2)).enqueue(topicCaptor.capture(), any(ConsultationEventPayload.class));
         assertThat(topicCaptor.getAllValues())
             .contains(kafkaProperties.getCreatedTopic(), kafkaProperties.getAiReviewedTopic());
     }
@@ -170,11 +196,222 @@ class ConsultationServiceTest {
         assertThat(response.aiErrorCode()).isEqualTo(ErrorCode.LLM_TIMEOUT.getCode());
 
         ArgumentCaptor<String> topicCaptor = ArgumentCaptor.forClass(String.class);
-        verify(kafkaTemplate, times(2)).send(topicCaptor.capture(), anyString(), any(ConsultationEventPayload.class));
+        verify(eventOutbox, times(2)).enqueue(topicCaptor.capture(), any(ConsultationEventPayload.class));
         assertThat(topicCaptor.getAllValues())
             .contains(kafkaProperties.getCreatedTopic(), kafkaProperties.getFailedTopic());
     }
 
+    @Test
+    void shouldReturnDraftAndCompleteAiTriageAsynchronously() {
+        aiProperties.setAsyncEnabled(true);
+        User user = buildUser(UserType.PATIENT);
+        when(userMapper.findByUsername("patient"))
+            .thenReturn(Optional.of(user));
+
+        Consultation stored = Consultation.builder().build();
+        doAnswer(invocation -> {
+            var consultation = invocation.getArgument(0, Consultation.class);
+            consultation.setId(3L);
+            stored.setId(3L);
+            stored.setUserId(consultation.getUserId());
+            stored.setSymptomDescription(consultation.getSymptomDescription());
+            stored.setStatus(ConsultationStatus.DRAFT);
+            return 1;
+        }).when(consultationMapper).insert(any());
+        when(consultationMapper.findByIdForUpdate(3L)).thenReturn(Optional.of(stored));
+
+        when(promptService.executeConsultationPrompt(any(PromptExecutionCommand.class)))
+            .thenReturn(PromptResult.builder()
+                .model("llama3")
+                .latencyMs(80L)
+                .content("AI diagnosis suggestion")
+                .build());
+        when(consultationMessageMapper.findByConsultationId(3L)).thenReturn(List.of());
+
+        ConsultationDetailResponse response = consultationService.create(
+            "patient", new ConsultationCreateRequest("symptom", List.of(), null, Map.of()));
+
+        assertThat(response.status()).isEqualTo(ConsultationStatus.DRAFT.name());
+        assertThat(stored.getStatus()).isEqualTo(ConsultationStatus.AI_REVIEWED);
+        assertThat(stored.getAiDiagnosis()).isEqualTo("AI diagnosis suggestion");
+
+        ArgumentCaptor<String> topicCaptor = ArgumentCaptor.forClass(String.class);
+        verify(eventOutbox, times(2)).enqueue(topicCaptor.capture(), any(ConsultationEventPayload.class));
+        assertThat(topicCaptor.getAllValues())
+            .containsExactly(kafkaProperties.getCreatedTopic(), kafkaProperties.getAiReviewedTopic());
+    }
+
+    @Test
+    void shouldReuseModelContextForFollowUp() {
+        User user = buildUser(UserType.PATIENT);
+        when(userMapper.findByUsername("patient")).thenReturn(Optional.of(user));
+        when(consultationMapper.findById(4L)).thenReturn(Optional.of(reviewedConsultation(4L, user)));
+        when(consultationMessageMapper.findByConsultationId(4L)).thenReturn(List.of(
+            message(4L, ConsultationMessageRole.PATIENT, 1, "symptom"),
+            message(4L, ConsultationMessageRole.AI, 2, "AI diagnosis suggestion")));
+        when(consultationMessageMapper.findLastSequenceNoForUpdate(4L)).thenReturn(2, 3);
+        when(consultationMapper.touchForFollowUp(eq(4L), any(LocalDateTime.class))).thenReturn(1);
+        when(contextStore.find(4L)).thenReturn(Optional.of(
+            new ConversationContext(2, PromptChannel.OLLAMA, "llama3", List.of(1, 2, 3))));
+        when(promptService.executeConsultationPrompt(any(PromptExecutionCommand.class)))
+            .thenReturn(PromptResult.builder()
+                .channel(PromptChannel.OLLAMA)
+                .model("llama3")
+                .completionTokens(8)
+                .content("follow-up answer")
+                .context(List.of(1, 2, 3, 4, 5))
+                .build());
+
+        consultationService.followUp("patient", 4L, new ConsultationFollowUpRequest("still coughing", null));
+
+        ArgumentCaptor<PromptExecutionCommand> commandCaptor = ArgumentCaptor.forClass(PromptExecutionCommand.class);
+        verify(promptService).executeConsultationPrompt(commandCaptor.capture());
+        PromptExecutionCommand command = commandCaptor.getValue();
+        assertThat(command.getTemplateCode()).isEqualTo(aiProperties.getFollowUpTemplateCode());
+        assertThat(command.getContext()).containsExactly(1, 2, 3);
+        assertThat(command.getModelOverride()).isEqualTo("llama3");
+        assertThat(command.getVariables()).containsEntry("history", "").containsEntry("message", "still coughing");
+        assertThat(command.getPriority()).isEqualTo(LlmPriority.PATIENT_TRIAGE);
+
+        ArgumentCaptor<ConsultationMessage> messageCaptor = ArgumentCaptor.forClass(ConsultationMessage.class);
+        verify(consultationMessageMapper, times(2)).insert(messageCaptor.capture());
+        assertThat(messageCaptor.getAllValues())
+            .extracting(ConsultationMessage::getSequenceNo)
+            .containsExactly(3, 4);
+        verify(contextStore).save(4L, new ConversationContext(4, PromptChannel.OLLAMA, "llama3", List.of(1, 2, 3, 4, 5)));
+    }
+
+    @Test
+    void shouldFallBackToHistoryWhenContextCallFails() {
+        User user = buildUser(UserType.PATIENT);
+        when(userMapper.findByUsername("patient")).thenReturn(Optional.of(user));
+        when(consultationMapper.findById(5L)).thenReturn(Optional.of(reviewedConsultation(5L, user)));
+        when(consultationMessageMapper.findByConsultationId(5L)).thenReturn(List.of(
+            message(5L, ConsultationMessageRole.PATIENT, 1, "symptom"),
+            message(5L, ConsultationMessageRole.AI, 2, "AI diagnosis suggestion")));
+        when(consultationMessageMapper.findLastSequenceNoForUpdate(5L)).thenReturn(2, 3);
+        when(consultationMapper.touchForFollowUp(eq(5L), any(LocalDateTime.class))).thenReturn(1);
+        when(contextStore.find(5L)).thenReturn(Optional.of(
+            new ConversationContext(2, PromptChannel.OLLAMA, "llama3", List.of(1, 2, 3))));
+        when(promptService.executeConsultationPrompt(any(PromptExecutionCommand.class)))
+            .thenThrow(new BusinessException(ErrorCode.LLM_CALL_FAILED, "context rejected"))
+            .thenReturn(PromptResult.builder()
+                .model("qwen")
+                .content("follow-up answer")
+                .build());
+
+        consultationService.followUp("patient", 5L, new ConsultationFollowUpRequest("still coughing", null));
+
+        ArgumentCaptor<PromptExecutionCommand> commandCaptor = ArgumentCaptor.forClass(PromptExecutionCommand.class);
+        verify(promptService, times(2)).executeConsultationPrompt(commandCaptor.capture());
+        PromptExecutionCommand retry = commandCaptor.getAllValues().get(1);
+        assertThat(retry.getContext()).isNull();
+        assertThat(retry.getVariables().get("history").toString())
+            .contains("symptom", "AI diagnosis suggestion");
+        verify(contextStore, times(2)).evict(5L);
+    }
+
+    @Test
+    void shouldNotOverwriteConsultationClosedWhileFollowUpWasGenerating() {
+        User user = buildUser(UserType.PATIENT);
+        when(userMapper.findByUsername("patient")).thenReturn(Optional.of(user));
+        when(consultationMapper.findById(9L)).thenReturn(Optional.of(reviewedConsultation(9L, user)));
+        when(consultationMessageMapper.findByConsultationId(9L)).thenReturn(List.of(
+            message(9L, ConsultationMessageRole.PATIENT, 1, "symptom")));
+        when(promptService.executeConsultationPrompt(any(PromptExecutionCommand.class)))
+            .thenReturn(PromptResult.builder().model("qwen").content("follow-up answer").build());
+        // 生成期间医生关闭了问诊，条件更新不再命中
+        when(consultationMapper.touchForFollowUp(eq(9L), any(LocalDateTime.class))).thenReturn(0);
+
+        assertThatThrownBy(() -> consultationService.followUp("patient", 9L, new ConsultationFollowUpRequest("still coughing", null)))
+            .isInstanceOfSatisfying(BusinessException.class,
+                e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.CONSULTATION_STATUS_CONFLICT));
+        verify(consultationMessageMapper, never()).insert(any(ConsultationMessage.class));
+        verify(consultationMapper, never()).update(any(Consultation.class));
+    }
+
+    @Test
+    void shouldScheduleAssignedDoctorFollowUpAsInteractive() {
+        User doctor = buildUser(UserType.DOCTOR);
+        Consultation consultation = reviewedConsultation(7L, buildUser(UserType.PATIENT));
+        consultation.setUserId(42L);
+        consultation.setDoctorId(doctor.getId());
+        when(userMapper.findByUsername("patient")).thenReturn(Optional.of(doctor));
+        when(consultationMapper.findById(7L)).thenReturn(Optional.of(consultation));
+        when(consultationMessageMapper.findByConsultationId(7L)).thenReturn(List.of(
+            message(7L, ConsultationMessageRole.PATIENT, 1, "symptom"),
+            message(7L, ConsultationMessageRole.AI, 2, "AI diagnosis suggestion")));
+        when(consultationMessageMapper.findLastSequenceNoForUpdate(7L)).thenReturn(2, 3);
+        when(consultationMapper.touchForFollowUp(eq(7L), any(LocalDateTime.class))).thenReturn(1);
+        when(promptService.executeConsultationPrompt(any(PromptExecutionCommand.class)))
+            .thenReturn(PromptResult.builder().model("qwen").content("differential diagnosis").build());
+
+        consultationService.followUp("patient", 7L, new ConsultationFollowUpRequest("rule out pneumonia?", null));
+
+        ArgumentCaptor<PromptExecutionCommand> commandCaptor = ArgumentCaptor.forClass(PromptExecutionCommand.class);
+        verify(promptService).executeConsultationPrompt(commandCaptor.capture());
+        assertThat(commandCaptor.getValue().getPriority()).isEqualTo(LlmPriority.DOCTOR_INTERACTIVE);
+        assertThat(commandCaptor.getValue().getVariables()).containsEntry("patientId", 42L).containsEntry("askedBy", "DOCTOR");
+        ArgumentCaptor<ConsultationMessage> messageCaptor = ArgumentCaptor.forClass(ConsultationMessage.class);
+        verify(consultationMessageMapper, times(2)).insert(messageCaptor.capture());
+        assertThat(messageCaptor.getAllValues())
+            .extracting(ConsultationMessage::getRole)
+            .containsExactly(ConsultationMessageRole.DOCTOR, ConsultationMessageRole.AI);
+    }
+
+    @Test
+    void shouldRejectFollowUpFromDoctorNotHoldingConsultation() {
+        User doctor = buildUser(UserType.DOCTOR);
+        when(userMapper.findByUsername("patient")).thenReturn(Optional.of(doctor));
+        when(consultationMapper.findById(8L)).thenReturn(Optional.of(reviewedConsultation(8L, buildUser(UserType.PATIENT))));
+
+        assertThatThrownBy(() -> consultationService.followUp("patient", 8L, new ConsultationFollowUpRequest("question", null)))
+            .isInstanceOfSatisfying(BusinessException.class,
+                e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.CONSULTATION_FORBIDDEN));
+    }
+
+    @Test
+    void shouldRetryMessageSequenceAllocationOnDuplicateKey() {
+        User doctor = buildUser(UserType.DOCTOR);
+        when(userMapper.findByUsername("patient")).thenReturn(Optional.of(doctor));
+        when(consultationMapper.findById(6L)).thenReturn(Optional.of(reviewedConsultation(6L, doctor)));
+        when(consultationMapper.updateReview(any(Consultation.class), eq(true))).thenReturn(1);
+        when(consultationMessageMapper.findLastSequenceNoForUpdate(6L)).thenReturn(2, 3);
+        when(consultationMessageMapper.insert(any(ConsultationMessage.class)))
+            .thenThrow(new DuplicateKeyException("uniq_consultation_messages_consultation_seq"))
+            .thenReturn(1);
+
+        consultationService.review("patient", 6L, new ConsultationReviewRequest("rest and hydrate", "DOCTOR_REVIEWED"));
+
+        ArgumentCaptor<ConsultationMessage> messageCaptor = ArgumentCaptor.forClass(ConsultationMessage.class);
+        verify(consultationMessageMapper, times(2)).insert(messageCaptor.capture());
+        assertThat(messageCaptor.getAllValues())
+            .extracting(ConsultationMessage::getSequenceNo)
+            .containsExactly(3, 4);
+    }
+
+    private Consultation reviewedConsultation(Long id, User user) {
+        return Consultation.builder()
+            .id(id)
+            .userId(user.getId())
+            .symptomDescription("symptom")
+            .status(ConsultationStatus.AI_REVIEWED)
+            .createdAt(LocalDateTime.now())
+            .updatedAt(LocalDateTime.now())
+            .build();
+    }
+
+    private ConsultationMessage message(Long consultationId, ConsultationMessageRole role, int sequence, String content) {
+        return ConsultationMessage.builder()
+            .consultationId(consultationId)
+            .role(role)
+            .sequenceNo(sequence)
+            .content(content)
+            .createdAt(LocalDateTime.now())
+            .updatedAt(LocalDateTime.now())
+            .build();
+    }
+
     private User buildUser(UserType type) {
         LocalDateTime now = LocalDateTime.now();
         return User.builder()
@@ -0,0 +1,54 @@
+package com.example.healthai.consult.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.healthai.consult.domain.ConsultationMessage;
+import com.example.healthai.consult.domain.ConsultationMessageRole;
+import com.example.healthai.llm.token.BpeApproximateTokenEstimator;
+import com.example.healthai.llm.token.TokenEstimator;
+
+class ConversationWindowTest {
+
+    private final TokenEstimator estimator = new BpeApproximateTokenEstimator();
+
+    @Test
+    void shouldKeepWholeConversationWithinBudget() {
+        List<ConsultationMessage> messages = List.of(
+            message(ConsultationMessageRole.PATIENT, 1, "头痛三天"),
+            message(ConsultationMessageRole.AI, 2, "建议多休息"),
+            message(ConsultationMessageRole.PATIENT, 3, "还有点发烧"));
+
+        String history = ConversationWindow.render(messages, 1000, estimator);
+
+        assertThat(history).isEqualTo("患者：头痛三天\nAI 助手：建议多休息\n患者：还有点发烧\n");
+    }
+
+    @Test
+    void shouldKeepAnchorAndMostRecentTurnsWhenOverBudget() {
+        List<ConsultationMessage> messages = new ArrayList<>();
+        messages.add(message(ConsultationMessageRole.PATIENT, 1, "头痛三天"));
+        messages.add(message(ConsultationMessageRole.AI, 2, "建议多休息"));
+        for (int i = 3; i <= 10; i++) {
+            messages.add(message(i % 2 == 1 ? ConsultationMessageRole.PATIENT : ConsultationMessageRole.AI, i, "第" + i + "轮对话内容"));
+        }
+
+        String history = ConversationWindow.render(messages, 40, estimator);
+
+        assertThat(history).startsWith("患者：头痛三天\nAI 助手：建议多休息\n（中间省略 ");
+        assertThat(history).endsWith("AI 助手：第10轮对话内容\n");
+        assertThat(history).doesNotContain("第3轮");
+    }
+
+    private ConsultationMessage message(ConsultationMessageRole role, int sequence, String content) {
+        return ConsultationMessage.builder()
+            .role(role)
+            .sequenceNo(sequence)
+            .content(content)
+            .build();
+    }
+}
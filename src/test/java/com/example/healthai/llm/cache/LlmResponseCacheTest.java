@@ -0,0 +1,101 @@
+package com.example.healthai.llm.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import com.example.healthai.llm.client.LlmRequest;
+import com.example.healthai.llm.client.LlmResponse;
+import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LlmResponseCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ValueOperations<String, String> valueOperations;
+    private LlmResponseCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        cache = new LlmResponseCache(redisTemplate, objectMapper, new LlmProperties(), meterRegistry);
+    }
+
+    @Test
+    void shouldServeLocalHitAfterPut() {
+        LlmResponse response = LlmResponse.builder().content("建议多休息").model("llama3").latency(Duration.ofSeconds(3)).build();
+
+        cache.put("k1", response, Duration.ofMinutes(5));
+
+        assertThat(cache.get("k1")).get()
+            .satisfies(hit -> {
+                assertThat(hit.getContent()).isEqualTo("建议多休息");
+                assertThat(hit.getLatency()).isLessThan(Duration.ofSeconds(1));
+            });
+        assertThat(counter("hit", "local")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldFallBackToRedisAndCountMiss() {
+        when(valueOperations.get(anyString())).thenReturn(
+            "{\"content\":\"远端结果\",\"model\":\"llama3\",\"localTtl\":null}", (String) null);
+
+        assertThat(cache.get("remote")).get().extracting(LlmResponse::getContent).isEqualTo("远端结果");
+        assertThat(cache.get("remote")).isPresent();
+        assertThat(cache.get("absent")).isEmpty();
+        assertThat(counter("hit", "redis")).isEqualTo(1.0);
+        assertThat(counter("hit", "local")).isEqualTo(1.0);
+        assertThat(counter("miss", "none")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldIgnoreRedisFailures() {
+        when(valueOperations.get(anyString())).thenThrow(new IllegalStateException("redis down"));
+        doThrow(new IllegalStateException("redis down"))
+            .when(valueOperations).set(anyString(), anyString(), any(Duration.class));
+
+        cache.put("k2", LlmResponse.builder().content("ok").build(), Duration.ofMinutes(1));
+
+        assertThat(cache.get("k2")).isPresent();
+        assertThat(cache.get("k3")).isEmpty();
+    }
+
+    @Test
+    void shouldDeriveKeyFromAllRequestParameters() {
+        LlmRequest base = LlmRequest.builder().model("llama3").prompt("头痛").temperature(0.0)
+            .options(Map.of("b", 2, "a", 1)).build();
+        LlmRequest sameOptionsDifferentOrder = LlmRequest.builder().model("llama3").prompt("头痛").temperature(0.0)
+            .options(Map.of("a", 1, "b", 2)).build();
+        LlmRequest warmer = LlmRequest.builder().model("llama3").prompt("头痛").temperature(0.7)
+            .options(Map.of("a", 1, "b", 2)).build();
+
+        assertThat(LlmRequestKey.of(PromptChannel.OLLAMA, base))
+            .isEqualTo(LlmRequestKey.of(PromptChannel.OLLAMA, sameOptionsDifferentOrder))
+            .isNotEqualTo(LlmRequestKey.of(PromptChannel.OLLAMA, warmer))
+            .isNotEqualTo(LlmRequestKey.of(PromptChannel.HTTP_API, base));
+    }
+
+    private double counter(String result, String tier) {
+        return meterRegistry.get("healthai.llm.response.cache").tag("result", result).tag("tier", tier).counter().count();
+    }
+}
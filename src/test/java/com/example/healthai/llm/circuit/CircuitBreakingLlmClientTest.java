@@ -0,0 +1,69 @@
+package com.example.healthai.llm.circuit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.llm.client.LlmClient;
+import com.example.healthai.llm.client.LlmFailures;
+import com.example.healthai.llm.client.LlmRequest;
+import com.example.healthai.llm.client.LlmResponse;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CircuitBreakingLlmClientTest {
+
+    private final LlmRequest request = LlmRequest.builder().model("llama3").prompt("发热三天").build();
+    private final AtomicReference<BusinessException> failure = new AtomicReference<>();
+    private final CircuitBreakingLlmClient client = new CircuitBreakingLlmClient(new FailingClient(failure),
+        model -> new SlidingWindowCircuitBreaker(10, 4, 50, 100, Duration.ofSeconds(5), Duration.ofSeconds(30), 2),
+        new SimpleMeterRegistry());
+
+    @Test
+    void shouldStayClosedOnClientErrors() {
+        failure.set(new BusinessException(LlmFailures.forStatus(HttpStatus.BAD_REQUEST), "Ollama 调用失败: Bad Request"));
+        for (int i = 0; i < 6; i++) {
+            assertThatThrownBy(() -> client.generate(request))
+                .isInstanceOfSatisfying(BusinessException.class,
+                    e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.LLM_CALL_INVALID));
+        }
+
+        failure.set(new BusinessException(ErrorCode.LLM_CALL_INVALID, "未配置 Ollama 模型"));
+        assertThatThrownBy(() -> client.generate(request))
+            .isInstanceOfSatisfying(BusinessException.class,
+                e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.LLM_CALL_INVALID));
+    }
+
+    @Test
+    void shouldOpenOnServerErrors() {
+        failure.set(new BusinessException(LlmFailures.forStatus(HttpStatus.BAD_GATEWAY), "Ollama 调用失败: Bad Gateway"));
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> client.generate(request)).isInstanceOf(BusinessException.class);
+        }
+
+        assertThatThrownBy(() -> client.generate(request))
+            .isInstanceOfSatisfying(BusinessException.class,
+                e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.LLM_CIRCUIT_OPEN));
+    }
+
+    private record FailingClient(AtomicReference<BusinessException> failure) implements LlmClient {
+
+        @Override
+        public PromptChannel channel() {
+            return PromptChannel.OLLAMA;
+        }
+
+        @Override
+        public LlmResponse generate(LlmRequest request) {
+            throw failure.get();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.healthai.llm.circuit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowCircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SlidingWindowCircuitBreaker breaker = new SlidingWindowCircuitBreaker(
+        10, 4, 50, 100, Duration.ofSeconds(5), Duration.ofSeconds(30), 2, clock::get);
+
+    @Test
+    void shouldOpenWhenFailureRateExceedsThreshold() {
+        call(true);
+        call(false);
+        call(true);
+        assertThat(breaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.CLOSED);
+
+        call(false);
+
+        assertThat(breaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void shouldCloseAfterSuccessfulHalfOpenProbes() {
+        openBreaker();
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(breaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.HALF_OPEN);
+
+        breaker.onSuccess(Duration.ofMillis(200).toNanos());
+        breaker.onSuccess(Duration.ofMillis(200).toNanos());
+
+        assertThat(breaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void shouldReopenWhenHalfOpenProbeFails() {
+        openBreaker();
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onError();
+
+        assertThat(breaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            call(false);
+        }
+        assertThat(breaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.OPEN);
+    }
+
+    private void call(boolean success) {
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        if (success) {
+            breaker.onSuccess(Duration.ofMillis(100).toNanos());
+        } else {
+            breaker.onError();
+        }
+    }
+}
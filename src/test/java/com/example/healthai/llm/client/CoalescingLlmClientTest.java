@@ -0,0 +1,93 @@
+package com.example.healthai.llm.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CoalescingLlmClientTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldShareResultOfIdenticalInFlightRequest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        LlmClient delegate = new StubClient(request -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return LlmResponse.builder().content("共享结果").build();
+        });
+        CoalescingLlmClient client = new CoalescingLlmClient(delegate, 8, Duration.ofSeconds(5), meterRegistry);
+        LlmRequest request = LlmRequest.builder().model("llama3").prompt("发热三天").build();
+
+        CompletableFuture<LlmResponse> leader = CompletableFuture.supplyAsync(() -> client.generate(request));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<LlmResponse> follower = CompletableFuture.supplyAsync(() -> client.generate(request));
+        while (meterRegistry.get("healthai.llm.coalesced").counter().count() < 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS).getContent()).isEqualTo("共享结果");
+        assertThat(follower.get(5, TimeUnit.SECONDS).getContent()).isEqualTo("共享结果");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void shouldCallDelegateDirectlyWhenWaitersExceeded() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        LlmClient delegate = new StubClient(request -> {
+            if (calls.incrementAndGet() == 1) {
+                started.countDown();
+                await(release);
+            }
+            return LlmResponse.builder().content("结果").build();
+        });
+        CoalescingLlmClient client = new CoalescingLlmClient(delegate, 0, Duration.ofSeconds(5), meterRegistry);
+        LlmRequest request = LlmRequest.builder().model("llama3").prompt("咳嗽").build();
+
+        CompletableFuture<LlmResponse> leader = CompletableFuture.supplyAsync(() -> client.generate(request));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(client.generate(request).getContent()).isEqualTo("结果");
+        release.countDown();
+        leader.get(5, TimeUnit.SECONDS);
+        assertThat(calls).hasValue(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record StubClient(Function<LlmRequest, LlmResponse> handler) implements LlmClient {
+
+        @Override
+        public PromptChannel channel() {
+            return PromptChannel.OLLAMA;
+        }
+
+        @Override
+        public LlmResponse generate(LlmRequest request) {
+            return handler.apply(request);
+        }
+    }
+}
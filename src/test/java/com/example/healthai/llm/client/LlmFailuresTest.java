@@ -0,0 +1,31 @@
+package com.example.healthai.llm.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import com.example.healthai.common.exception.ErrorCode;
+
+class LlmFailuresTest {
+
+    @Test
+    void shouldTreatOnlyTooManyRequestsAndServerErrorsAsBackendFailures() {
+        assertThat(LlmFailures.forStatus(HttpStatus.TOO_MANY_REQUESTS)).isEqualTo(ErrorCode.LLM_CALL_FAILED);
+        assertThat(LlmFailures.forStatus(HttpStatus.INTERNAL_SERVER_ERROR)).isEqualTo(ErrorCode.LLM_CALL_FAILED);
+        assertThat(LlmFailures.forStatus(HttpStatus.SERVICE_UNAVAILABLE)).isEqualTo(ErrorCode.LLM_CALL_FAILED);
+        assertThat(LlmFailures.forStatus(HttpStatus.BAD_REQUEST)).isEqualTo(ErrorCode.LLM_CALL_INVALID);
+        assertThat(LlmFailures.forStatus(HttpStatus.NOT_FOUND)).isEqualTo(ErrorCode.LLM_CALL_INVALID);
+        assertThat(LlmFailures.forStatus(HttpStatus.UNPROCESSABLE_ENTITY)).isEqualTo(ErrorCode.LLM_CALL_INVALID);
+    }
+
+    @Test
+    void shouldNotFailOverOnInvalidRequests() {
+        assertThat(LlmFailures.isFailoverEligible(ErrorCode.LLM_CALL_FAILED)).isTrue();
+        assertThat(LlmFailures.isFailoverEligible(ErrorCode.LLM_TIMEOUT)).isTrue();
+        assertThat(LlmFailures.isFailoverEligible(ErrorCode.LLM_CIRCUIT_OPEN)).isTrue();
+        assertThat(LlmFailures.isFailoverEligible(ErrorCode.LLM_OVERLOADED)).isTrue();
+        assertThat(LlmFailures.isFailoverEligible(ErrorCode.LLM_CALL_INVALID)).isFalse();
+        assertThat(LlmFailures.isFailoverEligible(ErrorCode.LLM_CALL_CANCELLED)).isFalse();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.healthai.llm.client.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MicroBatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldSendFullBatchOnceAndFanOutResults() throws Exception {
+        List<List<String>> sent = new CopyOnWriteArrayList<>();
+        MicroBatcher<String, String, String> batcher = new MicroBatcher<>(Duration.ofSeconds(5), 3, (key, items) -> {
+            sent.add(items);
+            return items.stream().map(item -> key + ":" + item).toList();
+        }, meterRegistry, "HTTP_API");
+
+        List<CompletableFuture<String>> futures = List.of("a", "b", "c").stream()
+            .map(item -> CompletableFuture.supplyAsync(() -> batcher.submit("gpt", item)))
+            .toList();
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertThat(futures.get(i).get(5, TimeUnit.SECONDS)).isEqualTo("gpt:" + List.of("a", "b", "c").get(i));
+        }
+        assertThat(sent).hasSize(1);
+        assertThat(sent.get(0)).containsExactlyInAnyOrder("a", "b", "c");
+        assertThat(meterRegistry.get("healthai.llm.batch.size").summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldFlushPartialBatchWhenWindowExpires() {
+        MicroBatcher<String, String, String> batcher = new MicroBatcher<>(Duration.ofMillis(5), 8,
+            (key, items) -> items, meterRegistry, "HTTP_API");
+
+        assertThat(batcher.submit("gpt", "单条")).isEqualTo("单条");
+        assertThat(batcher.submit("other", "另一批")).isEqualTo("另一批");
+        assertThat(meterRegistry.get("healthai.llm.batch.size").summary().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldPropagateBatchFailureToEveryCaller() {
+        MicroBatcher<String, String, String> batcher = new MicroBatcher<>(Duration.ofSeconds(5), 2, (key, items) -> {
+            throw new IllegalStateException("后端不可用");
+        }, meterRegistry, "HTTP_API");
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> batcher.submit("gpt", "a"));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> batcher.submit("gpt", "b"));
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasRootCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldReturnNullWhenSenderOmitsResult() {
+        MicroBatcher<String, String, String> batcher = new MicroBatcher<>(Duration.ofMillis(1), 8,
+            (key, items) -> List.of(), meterRegistry, "HTTP_API");
+
+        assertThat(batcher.submit("gpt", "a")).isNull();
+    }
+}
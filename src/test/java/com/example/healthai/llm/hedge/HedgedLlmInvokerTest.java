@@ -0,0 +1,159 @@
+package com.example.healthai.llm.hedge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.llm.client.LlmCallCancellation;
+import com.example.healthai.llm.client.LlmClient;
+import com.example.healthai.llm.client.LlmRequest;
+import com.example.healthai.llm.client.LlmResponse;
+import com.example.healthai.llm.stats.RatioBudget;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class HedgedLlmInvokerTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RatioBudget budget = new RatioBudget(0.1, 10);
+    private final HedgedLlmInvoker invoker = new HedgedLlmInvoker(executor, budget, meterRegistry);
+    private final LlmRequest request = LlmRequest.builder().model("llama3").prompt("胸闷").build();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldReturnPrimaryWithoutHedgingWhenFast() {
+        HedgedLlmInvoker.HedgedResponse result = invoker.invoke(
+            client(() -> response("主渠道")), request, client(() -> response("备选")), request, Duration.ofSeconds(1));
+
+        assertThat(result.hedgeWon()).isFalse();
+        assertThat(result.response().getContent()).isEqualTo("主渠道");
+        assertThat(count("sent")).isZero();
+    }
+
+    @Test
+    void shouldLetHedgeWinWhenPrimaryStalls() {
+        HedgedLlmInvoker.HedgedResponse result = invoker.invoke(
+            client(() -> {
+                sleep(5_000);
+                return response("主渠道");
+            }), request, client(() -> response("备选")), request, Duration.ofMillis(50));
+
+        assertThat(result.hedgeWon()).isTrue();
+        assertThat(result.response().getContent()).isEqualTo("备选");
+        assertThat(count("sent")).isEqualTo(1.0);
+        assertThat(count("won")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldNotHedgeWhenRetriesUsedUpSharedBudget() {
+        while (budget.tryWithdraw()) {
+            // 额度已被重试耗尽
+        }
+
+        HedgedLlmInvoker.HedgedResponse result = invoker.invoke(
+            client(() -> {
+                sleep(200);
+                return response("主渠道");
+            }), request, client(() -> response("备选")), request, Duration.ofMillis(20));
+
+        assertThat(result.hedgeWon()).isFalse();
+        assertThat(count("sent")).isZero();
+        assertThat(count("budget_exhausted")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldAbortLosingRequestThatIgnoresInterrupts() throws InterruptedException {
+        CountDownLatch aborted = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        LlmClient blockedRead = client(() -> {
+            // 模拟阻塞在 socket 读上的调用：不响应中断，只有 abort 才能结束
+            LlmCallCancellation.register(() -> {
+                aborted.countDown();
+                return true;
+            });
+            awaitUninterruptibly(aborted);
+            released.countDown();
+            throw new BusinessException(ErrorCode.LLM_CALL_CANCELLED, "已取消");
+        });
+
+        HedgedLlmInvoker.HedgedResponse result = invoker.invoke(
+            blockedRead, request, client(() -> response("备选")), request, Duration.ofMillis(50));
+
+        assertThat(result.hedgeWon()).isTrue();
+        assertThat(released.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void shouldFailWhenBothAttemptsFail() {
+        LlmClient failing = client(() -> {
+            sleep(100);
+            throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "失败");
+        });
+
+        assertThatThrownBy(() -> invoker.invoke(failing, request, failing, request, Duration.ofMillis(10)))
+            .isInstanceOf(BusinessException.class);
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("healthai.llm.hedge").tag("outcome", outcome).counter().count();
+    }
+
+    private static LlmResponse response(String content) {
+        return LlmResponse.builder().content(content).build();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.LLM_CALL_FAILED, "已取消");
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (latch.getCount() > 0) {
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static LlmClient client(Supplier<LlmResponse> behaviour) {
+        return new LlmClient() {
+            @Override
+            public PromptChannel channel() {
+                return PromptChannel.OLLAMA;
+            }
+
+            @Override
+            public LlmResponse generate(LlmRequest request) {
+                return behaviour.get();
+            }
+        };
+    }
+}
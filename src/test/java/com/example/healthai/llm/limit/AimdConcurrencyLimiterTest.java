@@ -0,0 +1,38 @@
+package com.example.healthai.llm.limit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class AimdConcurrencyLimiterTest {
+
+    @Test
+    void shouldRejectWhenInflightReachesLimit() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(2, 1, 10, 0.5, Duration.ofSeconds(1));
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.getInflight()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldIncreaseOnFastSuccessAndBackOffOnDrop() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(4, 1, 10, 0.5, Duration.ofSeconds(1));
+
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire();
+        }
+        limiter.onSuccess(Duration.ofMillis(100).toNanos());
+        assertThat(limiter.getLimit()).isEqualTo(5);
+
+        limiter.onDropped();
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        limiter.onSuccess(Duration.ofSeconds(2).toNanos());
+        assertThat(limiter.getLimit()).isEqualTo(1);
+        assertThat(limiter.getInflight()).isEqualTo(1);
+    }
+}
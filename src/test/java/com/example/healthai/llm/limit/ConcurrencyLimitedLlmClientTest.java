@@ -0,0 +1,92 @@
+package com.example.healthai.llm.limit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.llm.client.LlmClient;
+import com.example.healthai.llm.client.LlmFailures;
+import com.example.healthai.llm.client.LlmRequest;
+import com.example.healthai.llm.client.LlmResponse;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConcurrencyLimitedLlmClientTest {
+
+    private final LlmRequest request = LlmRequest.builder().model("llama3").prompt("发热三天").build();
+
+    @Test
+    void shouldNotShrinkLimitOnClientError() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(8, 1, 16, 0.5, Duration.ofSeconds(1));
+        ConcurrencyLimitedLlmClient client = limited(limiter, r -> {
+            throw new BusinessException(LlmFailures.forStatus(HttpStatus.BAD_REQUEST), "Ollama 调用失败: Bad Request");
+        });
+
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> client.generate(request))
+                .isInstanceOfSatisfying(BusinessException.class,
+                    e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.LLM_CALL_INVALID));
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(8);
+        assertThat(limiter.getInflight()).isZero();
+    }
+
+    @Test
+    void shouldNotShrinkLimitWhenModelMissingOrResponseEmpty() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(8, 1, 16, 0.5, Duration.ofSeconds(1));
+        ConcurrencyLimitedLlmClient client = limited(limiter, r -> {
+            throw new BusinessException(ErrorCode.LLM_CALL_INVALID, "Ollama 返回结果为空");
+        });
+
+        assertThatThrownBy(() -> client.generate(request)).isInstanceOf(BusinessException.class);
+
+        assertThat(limiter.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    void shouldShrinkLimitOnTooManyRequestsServerErrorAndTimeout() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(8, 1, 16, 0.5, Duration.ofSeconds(1));
+
+        assertThatThrownBy(() -> limited(limiter, r -> {
+            throw new BusinessException(LlmFailures.forStatus(HttpStatus.TOO_MANY_REQUESTS), "Too Many Requests");
+        }).generate(request)).isInstanceOf(BusinessException.class);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+
+        assertThatThrownBy(() -> limited(limiter, r -> {
+            throw new BusinessException(LlmFailures.forStatus(HttpStatus.SERVICE_UNAVAILABLE), "Service Unavailable");
+        }).generate(request)).isInstanceOf(BusinessException.class);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        assertThatThrownBy(() -> limited(limiter, r -> {
+            throw new BusinessException(ErrorCode.LLM_TIMEOUT, "Ollama 响应超时");
+        }).generate(request)).isInstanceOf(BusinessException.class);
+        assertThat(limiter.getLimit()).isEqualTo(1);
+        assertThat(limiter.getInflight()).isZero();
+    }
+
+    private ConcurrencyLimitedLlmClient limited(AimdConcurrencyLimiter limiter, Function<LlmRequest, LlmResponse> handler) {
+        return new ConcurrencyLimitedLlmClient(new StubClient(handler), limiter, new SimpleMeterRegistry());
+    }
+
+    private record StubClient(Function<LlmRequest, LlmResponse> handler) implements LlmClient {
+
+        @Override
+        public PromptChannel channel() {
+            return PromptChannel.OLLAMA;
+        }
+
+        @Override
+        public LlmResponse generate(LlmRequest request) {
+            return handler.apply(request);
+        }
+    }
+}
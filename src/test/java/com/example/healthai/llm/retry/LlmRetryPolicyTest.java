@@ -0,0 +1,99 @@
+package com.example.healthai.llm.retry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.llm.stats.RatioBudget;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LlmRetryPolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Long> sleeps = new ArrayList<>();
+
+    @Test
+    void shouldRetryTimeoutsWithBoundedBackoff() {
+        LlmRetryPolicy policy = policy(new LlmProperties.RetryProperties());
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = policy.execute(PromptChannel.OLLAMA, 3, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ResourceAccessException("Read timed out");
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(sleeps).hasSize(2).allSatisfy(sleep -> assertThat(sleep).isBetween(200L, 5_000L));
+    }
+
+    @Test
+    void shouldNotRetryClientErrors() {
+        LlmRetryPolicy policy = policy(new LlmProperties.RetryProperties());
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> policy.execute(PromptChannel.HTTP_API, 3, () -> {
+            attempts.incrementAndGet();
+            throw HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", null, null, StandardCharsets.UTF_8);
+        })).isInstanceOf(HttpClientErrorException.class);
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void shouldHonourRetryAfterHeader() {
+        LlmRetryPolicy policy = policy(new LlmProperties.RetryProperties());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "3");
+        AtomicInteger attempts = new AtomicInteger();
+
+        policy.execute(PromptChannel.HTTP_API, 1, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, null,
+                    StandardCharsets.UTF_8);
+            }
+            return "ok";
+        });
+
+        assertThat(sleeps).containsExactly(3_000L);
+    }
+
+    @Test
+    void shouldStopRetryingWhenBudgetExhausted() {
+        LlmRetryPolicy policy = policy(new LlmProperties.RetryProperties(), new RatioBudget(0, 1));
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> policy.execute(PromptChannel.OLLAMA, 5, () -> {
+            attempts.incrementAndGet();
+            throw HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "Unavailable", null, null,
+                StandardCharsets.UTF_8);
+        })).isInstanceOf(HttpServerErrorException.class);
+        assertThat(attempts).hasValue(2);
+        assertThat(meterRegistry.get("healthai.llm.retry").tag("outcome", "budget_exhausted").counter().count())
+            .isEqualTo(1.0);
+    }
+
+    private LlmRetryPolicy policy(LlmProperties.RetryProperties properties) {
+        return policy(properties, new RatioBudget(0.1, 10));
+    }
+
+    private LlmRetryPolicy policy(LlmProperties.RetryProperties properties, RatioBudget budget) {
+        properties.setMaxRetryAfter(Duration.ofSeconds(10));
+        return new LlmRetryPolicy(properties, budget, meterRegistry, sleeps::add);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.healthai.llm.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.llm.stats.LatencyTracker;
+import com.example.healthai.llm.token.BpeApproximateTokenEstimator;
+import com.example.healthai.prompt.domain.ComplexityClass;
+import com.example.healthai.prompt.domain.PromptChannel;
+import com.example.healthai.prompt.domain.PromptTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ModelRouterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LlmProperties properties;
+    private LatencyTracker latencyTracker;
+    private ModelRouter router;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmProperties();
+        properties.getLatency().setMinSamples(1);
+        properties.getRouting().setEnabled(true);
+        properties.getRouting().setLadder(List.of(
+            rung("qwen2:1.5b", 200, ComplexityClass.STANDARD, Duration.ofSeconds(5)),
+            rung("llama3:8b", 2000, ComplexityClass.COMPLEX, null),
+            rung("llama3:70b", null, ComplexityClass.COMPLEX, null)));
+        latencyTracker = new LatencyTracker(properties);
+        router = new ModelRouter(properties, latencyTracker, new BpeApproximateTokenEstimator(), meterRegistry);
+    }
+
+    @Test
+    void shouldRouteShortPromptToSmallestModel() {
+        assertThat(router.route(PromptChannel.OLLAMA, template("llama3:8b", null), "头痛两天")).contains("qwen2:1.5b");
+        assertThat(meterRegistry.counter("healthai.llm.route",
+            "template", "consult.initial", "channel", "OLLAMA", "model", "qwen2:1.5b", "reason", "fit").count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldEscalateByPromptSizeAndComplexity() {
+        String longPrompt = "咳".repeat(500);
+        assertThat(router.route(PromptChannel.OLLAMA, template(null, null), longPrompt)).contains("llama3:8b");
+        assertThat(router.route(PromptChannel.OLLAMA, template(null, ComplexityClass.COMPLEX), "头痛")).contains("llama3:8b");
+        assertThat(router.route(PromptChannel.OLLAMA, template(null, null), "咳".repeat(5000))).contains("llama3:70b");
+    }
+
+    @Test
+    void shouldSkipModelWhoseLatencyExceedsLimit() {
+        latencyTracker.record(PromptChannel.OLLAMA, "qwen2:1.5b", Duration.ofSeconds(8));
+
+        assertThat(router.route(PromptChannel.OLLAMA, template(null, null), "头痛")).contains("llama3:8b");
+    }
+
+    @Test
+    void shouldNotRouteTemplatesPinnedOutsideLadderOrOtherChannels() {
+        assertThat(router.route(PromptChannel.OLLAMA, template("meditron", null), "头痛")).isEmpty();
+        assertThat(router.route(PromptChannel.HTTP_API, template(null, null), "头痛")).isEmpty();
+    }
+
+    private PromptTemplate template(String modelName, ComplexityClass complexityClass) {
+        return PromptTemplate.builder()
+            .code("consult.initial")
+            .channel(PromptChannel.OLLAMA)
+            .modelName(modelName)
+            .complexityClass(complexityClass)
+            .build();
+    }
+
+    private LlmProperties.ModelRungProperties rung(String model, Integer maxPromptTokens, ComplexityClass maxComplexity,
+                                                   Duration maxLatency) {
+        LlmProperties.ModelRungProperties rung = new LlmProperties.ModelRungProperties();
+        rung.setModel(model);
+        rung.setMaxPromptTokens(maxPromptTokens);
+        rung.setMaxComplexity(maxComplexity);
+        rung.setMaxLatency(maxLatency);
+        return rung;
+    }
+}
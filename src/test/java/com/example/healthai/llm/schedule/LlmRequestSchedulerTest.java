@@ -0,0 +1,136 @@
+package com.example.healthai.llm.schedule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.llm.config.LlmProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LlmRequestSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldDispatchInteractiveRequestsBeforeQueuedBatchBacklog() throws Exception {
+        LlmRequestScheduler scheduler = scheduler(1);
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlocker = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Void> blocker = CompletableFuture.runAsync(() -> scheduler.execute(LlmPriority.BATCH, null, () -> {
+            blockerStarted.countDown();
+            await(releaseBlocker);
+            return null;
+        }));
+        assertThat(blockerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<?> batch1 = submit(scheduler, LlmPriority.BATCH, "batch-1", order);
+        CompletableFuture<?> batch2 = submit(scheduler, LlmPriority.BATCH, "batch-2", order);
+        waitForDepth(LlmPriority.BATCH, 2);
+        CompletableFuture<?> doctor = submit(scheduler, LlmPriority.DOCTOR_INTERACTIVE, "doctor", order);
+        waitForDepth(LlmPriority.DOCTOR_INTERACTIVE, 1);
+
+        releaseBlocker.countDown();
+        CompletableFuture.allOf(blocker, batch1, batch2, doctor).get(5, TimeUnit.SECONDS);
+
+        assertThat(order.get(0)).isEqualTo("doctor");
+    }
+
+    @Test
+    void shouldLetDoctorRequestOvertakeQueuedTriageWork() throws Exception {
+        LlmRequestScheduler scheduler = scheduler(1);
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlocker = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Void> blocker = CompletableFuture.runAsync(() -> scheduler.execute(LlmPriority.PATIENT_TRIAGE, null, () -> {
+            blockerStarted.countDown();
+            await(releaseBlocker);
+            return null;
+        }));
+        assertThat(blockerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<CompletableFuture<?>> triage = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            triage.add(submit(scheduler, LlmPriority.PATIENT_TRIAGE, "triage-" + i, order));
+            waitForDepth(LlmPriority.PATIENT_TRIAGE, i);
+        }
+        CompletableFuture<?> doctor = submit(scheduler, LlmPriority.DOCTOR_INTERACTIVE, "doctor", order);
+        waitForDepth(LlmPriority.DOCTOR_INTERACTIVE, 1);
+
+        releaseBlocker.countDown();
+        CompletableFuture.allOf(blocker, triage.get(0), triage.get(1), triage.get(2), doctor).get(5, TimeUnit.SECONDS);
+
+        assertThat(order.get(0)).isEqualTo("doctor");
+        assertThat(order.subList(1, 4)).containsExactly("triage-1", "triage-2", "triage-3");
+    }
+
+    @Test
+    void shouldRejectWhenClassQueueIsFullAndDropAfterDeadline() throws Exception {
+        LlmProperties properties = new LlmProperties();
+        properties.getScheduler().setMaxConcurrent(1);
+        properties.getScheduler().getClasses().get(LlmPriority.BATCH).setMaxDepth(1);
+        LlmRequestScheduler scheduler = new LlmRequestScheduler(properties, meterRegistry);
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlocker = new CountDownLatch(1);
+        CompletableFuture<Void> blocker = CompletableFuture.runAsync(() -> scheduler.execute(LlmPriority.BATCH, null, () -> {
+            blockerStarted.countDown();
+            await(releaseBlocker);
+            return null;
+        }));
+        assertThat(blockerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Object> queued = CompletableFuture.supplyAsync(
+            () -> scheduler.execute(LlmPriority.BATCH, Duration.ofMillis(100), () -> "late"));
+        waitForDepth(LlmPriority.BATCH, 1);
+
+        assertThatThrownBy(() -> scheduler.execute(LlmPriority.BATCH, null, () -> "rejected"))
+            .isInstanceOfSatisfying(BusinessException.class,
+                e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.LLM_OVERLOADED));
+        assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(BusinessException.class);
+
+        releaseBlocker.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        assertThat(scheduler.execute(LlmPriority.BATCH, null, () -> "ok")).isEqualTo("ok");
+    }
+
+    private LlmRequestScheduler scheduler(int maxConcurrent) {
+        LlmProperties properties = new LlmProperties();
+        properties.getScheduler().setMaxConcurrent(maxConcurrent);
+        return new LlmRequestScheduler(properties, meterRegistry);
+    }
+
+    private CompletableFuture<?> submit(LlmRequestScheduler scheduler, LlmPriority priority, String name, List<String> order) {
+        return CompletableFuture.runAsync(() -> scheduler.execute(priority, null, () -> order.add(name)));
+    }
+
+    private void waitForDepth(LlmPriority priority, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("healthai.llm.queue.depth").tag("priority", priority.name()).gauge().value() < depth
+            && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.healthai.llm.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.healthai.common.exception.ErrorCode;
+import com.example.healthai.prompt.domain.PromptChannel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LlmCallMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LlmCallMetrics metrics = new LlmCallMetrics(meterRegistry);
+
+    @Test
+    void shouldTagSuccessAndExcludeFirstTokenWaitFromTokenRate() {
+        metrics.recordSuccess(PromptChannel.OLLAMA, "llama3", "consult.initial", Duration.ofSeconds(3), 120, 100,
+            TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(meterRegistry.get("healthai.llm.call")
+            .tags("channel", "OLLAMA", "model", "llama3", "template", "consult.initial", "outcome", "success")
+            .timer().totalTime(TimeUnit.SECONDS)).isEqualTo(3.0);
+        assertThat(meterRegistry.get("healthai.llm.call.tokens").tag("type", "prompt").summary().totalAmount()).isEqualTo(120);
+        assertThat(meterRegistry.get("healthai.llm.call.tokens").tag("type", "completion").summary().totalAmount()).isEqualTo(100);
+        assertThat(meterRegistry.get("healthai.llm.call.token_rate").summary().totalAmount()).isEqualTo(50.0);
+    }
+
+    @Test
+    void shouldTagFailureWithErrorCode() {
+        metrics.recordFailure(PromptChannel.HTTP_API, null, "consult.initial", ErrorCode.LLM_TIMEOUT,
+            TimeUnit.MILLISECONDS.toNanos(200));
+
+        assertThat(meterRegistry.get("healthai.llm.call")
+            .tags("channel", "HTTP_API", "model", "unknown", "outcome", "llm_timeout")
+            .timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.healthai.llm.token;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BpeApproximateTokenEstimatorTest {
+
+    private final BpeApproximateTokenEstimator estimator = new BpeApproximateTokenEstimator();
+
+    @Test
+    void shouldApproximateBpeSegmentation() {
+        assertThat(estimator.estimate("头痛")).isEqualTo(2);
+        assertThat(estimator.estimate("fever")).isEqualTo(2);
+        assertThat(estimator.estimate("high fever")).isEqualTo(3);
+        assertThat(estimator.estimate("体温39.5度")).isEqualTo(6);
+        assertThat(estimator.estimate("咳嗽，\n\n发热")).isEqualTo(6);
+        assertThat(estimator.estimate(null)).isZero();
+    }
+
+    @Test
+    void shouldTruncateToTokenLimit() {
+        String text = "持续咳嗽三天伴有低热";
+
+        assertThat(estimator.truncate(text, 4)).isEqualTo("持续咳嗽");
+        assertThat(estimator.truncate(text, 100)).isEqualTo(text);
+        assertThat(estimator.truncate(text, 0)).isEmpty();
+    }
+
+    @Test
+    void shouldCalibrateTowardsActualPromptTokens() {
+        TokenCalibrator calibrator = new TokenCalibrator(estimator, new SimpleMeterRegistry());
+        assertThat(calibrator.calibrate("llama3", 100)).isEqualTo(100);
+
+        calibrator.record("llama3", 100, 150);
+        assertThat(calibrator.calibrate("llama3", 100)).isEqualTo(150);
+
+        calibrator.record("llama3", 100, 50);
+        assertThat(calibrator.ratio("llama3")).isCloseTo(1.4, org.assertj.core.data.Offset.offset(1e-9));
+        assertThat(calibrator.ratio("qwen2")).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.healthai.llm.warmup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.healthai.llm.config.LlmProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ModelWarmthTrackerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ModelWarmthTracker tracker = new ModelWarmthTracker(new LlmProperties(), meterRegistry, clock::get);
+
+    @Test
+    void shouldClassifyCallsByLoadDuration() {
+        tracker.recordCall("llama3", Duration.ofMillis(3));
+        tracker.recordCall("llama3", Duration.ofSeconds(12));
+        tracker.recordCall("llama3", Duration.ofMillis(5));
+
+        assertThat(meterRegistry.counter("healthai.llm.model.load", "model", "llama3", "state", "warm").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("healthai.llm.model.load", "model", "llama3", "state", "cold").count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldTrackIdleTimeAcrossCallsAndWarmups() {
+        assertThat(tracker.idleFor("llama3")).isGreaterThan(Duration.ofDays(365));
+
+        tracker.recordCall("llama3", null);
+        clock.addAndGet(Duration.ofMinutes(4).toNanos());
+        assertThat(tracker.idleFor("llama3")).isEqualTo(Duration.ofMinutes(4));
+
+        tracker.recordWarmup("llama3");
+        assertThat(tracker.idleFor("llama3")).isEqualTo(Duration.ZERO);
+        assertThat(meterRegistry.find("healthai.llm.model.load").counters()).isEmpty();
+    }
+}
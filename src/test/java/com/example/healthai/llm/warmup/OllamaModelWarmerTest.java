@@ -0,0 +1,141 @@
+package com.example.healthai.llm.warmup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.healthai.llm.client.ollama.OllamaLlmClient;
+import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.prompt.domain.PromptChannel;
+import com.example.healthai.prompt.domain.PromptTemplate;
+import com.example.healthai.prompt.mapper.PromptTemplateMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OllamaModelWarmerTest {
+
+    private final OllamaLlmClient client = mock(OllamaLlmClient.class);
+    private final PromptTemplateMapper promptTemplateMapper = mock(PromptTemplateMapper.class);
+    private final LlmProperties properties = new LlmProperties();
+    private final AtomicLong clock = new AtomicLong(Duration.ofDays(1).toNanos());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ModelWarmthTracker warmthTracker = new ModelWarmthTracker(properties, meterRegistry, clock::get);
+    private OllamaModelWarmer warmer;
+
+    @BeforeEach
+    void setUp() {
+        properties.setPrimaryChannel(PromptChannel.OLLAMA);
+        properties.getOllama().setModel("llama3");
+        properties.getWarmup().setIdleThreshold(Duration.ofMinutes(3));
+        when(client.warmUp(anyString())).thenReturn(Duration.ofMillis(5));
+        warmer = new OllamaModelWarmer(client, promptTemplateMapper, properties, warmthTracker, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        warmer.shutdown();
+    }
+
+    @Test
+    void shouldResolveUnionOfTemplateHedgeLadderAndExtraModels() {
+        when(promptTemplateMapper.findAllActive()).thenReturn(List.of(
+            template(null, null, PromptChannel.OLLAMA, "qwen2:1.5b"),
+            template(PromptChannel.OLLAMA, "mistral", null, null),
+            template(PromptChannel.HTTP_API, "gpt-4o-mini", null, "ignored-hedge"),
+            template(PromptChannel.HTTP_API, "gpt-4o-mini", PromptChannel.OLLAMA, "phi3")));
+        properties.getRouting().setEnabled(true);
+        properties.getRouting().setLadder(List.of(
+            rung(PromptChannel.OLLAMA, "llama3:70b"),
+            rung(PromptChannel.HTTP_API, "gpt-4o")));
+        properties.getWarmup().setModels(List.of("gemma2", "mistral", ""));
+
+        assertThat(warmer.resolveModels())
+            .containsExactly("llama3", "qwen2:1.5b", "mistral", "phi3", "llama3:70b", "gemma2");
+    }
+
+    @Test
+    void shouldSkipLadderWhenRoutingDisabled() {
+        when(promptTemplateMapper.findAllActive()).thenReturn(List.of());
+        properties.getRouting().setLadder(List.of(rung(PromptChannel.OLLAMA, "llama3:70b")));
+
+        assertThat(warmer.resolveModels()).containsExactly("llama3");
+    }
+
+    @Test
+    void shouldFallBackToConfiguredModelsWhenTemplatesUnavailable() {
+        when(promptTemplateMapper.findAllActive()).thenThrow(new IllegalStateException("database down"));
+        properties.getWarmup().setModels(List.of("gemma2"));
+
+        assertThat(warmer.resolveModels()).containsExactly("llama3", "gemma2");
+    }
+
+    @Test
+    void shouldNotPreloadDefaultModelWhenPrimaryChannelIsHttp() {
+        properties.setPrimaryChannel(PromptChannel.HTTP_API);
+        when(promptTemplateMapper.findAllActive()).thenReturn(List.of());
+
+        assertThat(warmer.resolveModels()).isEmpty();
+    }
+
+    @Test
+    void shouldOnlyPingModelsIdleLongerThanThreshold() {
+        when(promptTemplateMapper.findAllActive()).thenReturn(List.of());
+        properties.getWarmup().setModels(List.of("busy", "idle", "never-called"));
+        warmthTracker.recordCall("idle", null);
+        clock.addAndGet(Duration.ofMinutes(2).toNanos());
+        warmthTracker.recordCall("busy", null);
+        warmthTracker.recordCall("llama3", null);
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        warmer.keepWarm();
+
+        verify(client).warmUp("idle");
+        verify(client).warmUp("never-called");
+        verify(client, never()).warmUp("busy");
+        verify(client, never()).warmUp("llama3");
+        assertThat(meterRegistry.timer("healthai.llm.warmup", "model", "idle", "type", "keepalive", "result", "success")
+            .count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRecordFailedWarmupAndContinueWithOtherModels() {
+        when(promptTemplateMapper.findAllActive()).thenReturn(List.of());
+        properties.getWarmup().setModels(List.of("gemma2"));
+        when(client.warmUp("llama3")).thenThrow(new IllegalStateException("model not found"));
+
+        warmer.preload();
+
+        verify(client).warmUp("gemma2");
+        assertThat(meterRegistry.timer("healthai.llm.warmup", "model", "llama3", "type", "preload", "result", "failure")
+            .count()).isEqualTo(1);
+    }
+
+    private PromptTemplate template(PromptChannel channel, String model, PromptChannel hedgeChannel, String hedgeModel) {
+        return PromptTemplate.builder()
+            .code("consult.initial")
+            .channel(channel)
+            .modelName(model)
+            .hedgeChannel(hedgeChannel)
+            .hedgeModel(hedgeModel)
+            .enabled(true)
+            .build();
+    }
+
+    private LlmProperties.ModelRungProperties rung(PromptChannel channel, String model) {
+        LlmProperties.ModelRungProperties rung = new LlmProperties.ModelRungProperties();
+        rung.setChannel(channel);
+        rung.setModel(model);
+        return rung;
+    }
+}
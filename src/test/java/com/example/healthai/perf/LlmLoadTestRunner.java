@@ -0,0 +1,246 @@
+package com.example.healthai.perf;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 问诊接口压测：以固定并发持续调用 {@code POST /api/v1/consultations}（或流式、追问接口），
+ * 预热阶段的样本不计入结果，结束后输出吞吐量、延迟分位数以及 HTTP 状态与问诊状态分布。
+ * 配合 {@link StubLlmServer} 使用时结果只反映应用自身的 LLM 调用链路开销。
+ *
+ * <p>参数通过系统属性传入，见 {@link Options#fromSystemProperties()}；使用方式见 docs/runbooks/llm-load-test.md。
+ */
+public class LlmLoadTestRunner {
+
+    private static final String SYMPTOM = "发热三天，最高体温 39 度，伴有咳嗽和咽痛，自行服用退烧药后效果不明显。";
+
+    private final Options options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient;
+
+    public LlmLoadTestRunner(Options options) {
+        this.options = options;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newCachedThreadPool())
+            .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.fromSystemProperties();
+        Report report = new LlmLoadTestRunner(options).run();
+        System.out.println(report.format(options));
+    }
+
+    public Report run() throws Exception {
+        String token = login();
+        List<Long> seedIds = options.mode() == Mode.FOLLOW_UP ? seedConsultations(token) : List.of();
+        Report report = new Report();
+        long warmupEnd = System.nanoTime() + options.warmup().toNanos();
+        long end = warmupEnd + options.duration().toNanos();
+        AtomicInteger sequence = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(options.concurrency());
+        for (int i = 0; i < options.concurrency(); i++) {
+            workers.execute(() -> {
+                while (System.nanoTime() < end) {
+                    int n = sequence.getAndIncrement();
+                    long start = System.nanoTime();
+                    Sample sample = call(token, seedIds, n);
+                    if (start >= warmupEnd) {
+                        report.record(sample, System.nanoTime() - start);
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(options.warmup().plus(options.duration()).plusMinutes(5).toMillis(), TimeUnit.MILLISECONDS);
+        report.elapsed = options.duration();
+        return report;
+    }
+
+    private Sample call(String token, List<Long> consultations, int n) {
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .timeout(options.requestTimeout())
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json");
+            String uri;
+            Object body;
+            switch (options.mode()) {
+                case STREAM -> {
+                    uri = "/api/v1/consultations/stream";
+                    body = Map.of("symptomDescription", SYMPTOM + " #" + n);
+                    builder.header("Accept", "text/event-stream");
+                }
+                case FOLLOW_UP -> {
+                    uri = "/api/v1/consultations/" + consultations.get(n % consultations.size()) + "/messages";
+                    body = Map.of("content", "退烧药需要吃几天？ #" + n);
+                }
+                default -> {
+                    uri = "/api/v1/consultations";
+                    body = Map.of("symptomDescription", SYMPTOM + " #" + n);
+                }
+            }
+            HttpRequest request = builder.uri(URI.create(options.baseUrl() + uri))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            return new Sample(String.valueOf(response.statusCode()), consultationStatus(response.body()));
+        } catch (HttpTimeoutException e) {
+            return new Sample("timeout", null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Sample("interrupted", null);
+        } catch (Exception e) {
+            return new Sample(e.getClass().getSimpleName(), null);
+        }
+    }
+
+    private String consultationStatus(String body) {
+        if (options.mode() == Mode.STREAM) {
+            return body.contains("event:done") ? "STREAM_DONE" : body.contains("event:error") ? "STREAM_ERROR" : null;
+        }
+        try {
+            JsonNode status = objectMapper.readTree(body).path("data").path("status");
+            return status.isMissingNode() ? null : status.asText();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private List<Long> seedConsultations(String token) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, options.concurrency()); i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(options.baseUrl() + "/api/v1/consultations"))
+                .timeout(options.requestTimeout())
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(Map.of("symptomDescription", SYMPTOM))))
+                .build();
+            JsonNode data = objectMapper.readTree(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body()).path("data");
+            if (!"AI_REVIEWED".equals(data.path("status").asText())) {
+                throw new IllegalStateException("预置问诊未完成 AI 分诊，无法压测追问接口: " + data);
+            }
+            ids.add(data.path("id").asLong());
+        }
+        return ids;
+    }
+
+    private String login() throws Exception {
+        Map<String, Object> register = Map.of("username", options.username(), "password", options.password(),
+            "fullName", "压测用户", "gender", "unknown");
+        post("/api/v1/auth/register", register);
+        JsonNode data = post("/api/v1/auth/login", Map.of("username", options.username(), "password", options.password()))
+            .path("data");
+        String token = data.path("accessToken").asText(null);
+        if (token == null) {
+            throw new IllegalStateException("压测用户登录失败: " + options.username());
+        }
+        return token;
+    }
+
+    private JsonNode post(String path, Object body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.baseUrl() + path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+            .build();
+        return objectMapper.readTree(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private record Sample(String outcome, String consultationStatus) {
+    }
+
+    public enum Mode {
+        CREATE,
+        STREAM,
+        FOLLOW_UP
+    }
+
+    public record Options(String baseUrl, String username, String password, Mode mode, int concurrency,
+                          Duration warmup, Duration duration, Duration requestTimeout) {
+
+        /**
+         * 读取 {@code load.base-url}、{@code load.username}、{@code load.password}、{@code load.mode}（CREATE/STREAM/FOLLOW_UP）、
+         * {@code load.concurrency}、{@code load.warmup-seconds}、{@code load.duration-seconds}、{@code load.timeout-seconds}。
+         */
+        public static Options fromSystemProperties() {
+            return new Options(
+                System.getProperty("load.base-url", "http://localhost:8081"),
+                System.getProperty("load.username", "loadtest01"),
+                System.getProperty("load.password", "LoadTest123"),
+                Mode.valueOf(System.getProperty("load.mode", "CREATE").toUpperCase()),
+                Integer.getInteger("load.concurrency", 16),
+                Duration.ofSeconds(Long.getLong("load.warmup-seconds", 10L)),
+                Duration.ofSeconds(Long.getLong("load.duration-seconds", 60L)),
+                Duration.ofSeconds(Long.getLong("load.timeout-seconds", 120L)));
+        }
+    }
+
+    /**
+     * 压测结果，延迟分位数按最近秩法计算。
+     */
+    public static class Report {
+
+        private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        private final Map<String, Integer> outcomes = Collections.synchronizedMap(new TreeMap<>());
+        private final Map<String, Integer> statuses = Collections.synchronizedMap(new TreeMap<>());
+        private Duration elapsed = Duration.ZERO;
+
+        void record(Sample sample, long latencyNanos) {
+            latencies.add(latencyNanos);
+            outcomes.merge(sample.outcome(), 1, Integer::sum);
+            if (sample.consultationStatus() != null) {
+                statuses.merge(sample.consultationStatus(), 1, Integer::sum);
+            }
+        }
+
+        public int count() {
+            return latencies.size();
+        }
+
+        public double throughput() {
+            return elapsed.isZero() ? 0 : count() / (elapsed.toNanos() / 1_000_000_000.0);
+        }
+
+        public Duration percentile(double percentile) {
+            List<Long> sorted;
+            synchronized (latencies) {
+                sorted = new ArrayList<>(latencies);
+            }
+            if (sorted.isEmpty()) {
+                return Duration.ZERO;
+            }
+            Collections.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+            return Duration.ofNanos(sorted.get(Math.max(0, Math.min(sorted.size(), rank) - 1)));
+        }
+
+        String format(Options options) {
+            return String.format("""
+                    模式=%s 并发=%d 时长=%ds
+                    请求数=%d 吞吐量=%.2f req/s
+                    延迟 p50=%dms p90=%dms p99=%dms max=%dms
+                    HTTP 结果=%s
+                    问诊状态=%s""",
+                options.mode(), options.concurrency(), elapsed.toSeconds(), count(), throughput(),
+                percentile(50).toMillis(), percentile(90).toMillis(), percentile(99).toMillis(), percentile(100).toMillis(),
+                outcomes, statuses);
+        }
+    }
+}
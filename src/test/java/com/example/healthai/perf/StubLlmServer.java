@@ -0,0 +1,286 @@
+package com.example.healthai.perf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 本地压测用的模拟大模型服务，同时实现 {@code OllamaLlmClient} 使用的 {@code /api/generate}
+ * 与 {@code HttpApiLlmClient} 使用的 OpenAI 兼容 {@code /v1/completions}（含 prompt 数组与 SSE 流式）。
+ * 首 token 延迟服从对数正态分布，之后按固定 token 速率输出，可按比例注入 5xx 错误。
+ *
+ * <p>独立运行方式见 docs/runbooks/llm-load-test.md，参数见 {@link Settings#fromSystemProperties()}。
+ */
+public class StubLlmServer implements AutoCloseable {
+
+    private static final String[] WORDS = {"根据", "您", "描述", "的", "症状", "，", "建议", "多", "休息", "并", "观察", "体温",
+        "变化", "。", "如", "持续", "发热", "请", "及时", "就医", "。"};
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public StubLlmServer(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        StubLlmServer stub = new StubLlmServer(settings);
+        stub.start();
+        System.out.printf("模拟模型服务已启动: http://localhost:%d (latency=%s sigma=%.2f tokens/s=%.0f errorRate=%.2f)%n",
+            stub.port(), settings.getLatencyMedian(), settings.getLatencySigma(), settings.getTokensPerSecond(),
+            settings.getErrorRate());
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+        Thread.currentThread().join();
+    }
+
+    public StubLlmServer start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(settings.getPort()), 256);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/api/generate", exchange -> handle(exchange, this::ollama));
+        server.createContext("/v1/completions", exchange -> handle(exchange, this::completion));
+        server.start();
+        return this;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port();
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long injectedErrorCount() {
+        return injectedErrors.get();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+            sleep(firstTokenLatency());
+            if (ThreadLocalRandom.current().nextDouble() < settings.getErrorRate()) {
+                injectedErrors.incrementAndGet();
+                writeJson(exchange, settings.getErrorStatus(), Map.of("error", "injected failure"));
+                return;
+            }
+            handler.handle(exchange, body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ollama(HttpExchange exchange, JsonNode body) throws IOException, InterruptedException {
+        String model = body.path("model").asText("stub");
+        String prompt = body.path("prompt").asText("");
+        int promptTokens = promptTokens(prompt);
+        List<String> tokens = completionTokens(body.path("max_tokens").asInt(body.path("options").path("num_predict").asInt(0)));
+        if (!body.path("stream").asBoolean(false)) {
+            sleep(generation(tokens.size()));
+            writeJson(exchange, 200, ollamaFinal(model, String.join("", tokens), promptTokens, tokens.size()));
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (String token : tokens) {
+            sleep(tokenInterval());
+            Map<String, Object> chunk = new LinkedHashMap<>();
+            chunk.put("model", model);
+            chunk.put("response", token);
+            chunk.put("done", false);
+            writeLine(out, objectMapper.writeValueAsString(chunk) + "\n");
+        }
+        writeLine(out, objectMapper.writeValueAsString(ollamaFinal(model, "", promptTokens, tokens.size())) + "\n");
+    }
+
+    private Map<String, Object> ollamaFinal(String model, String response, int promptTokens, int evalCount) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("model", model);
+        result.put("response", response);
+        result.put("done", true);
+        result.put("prompt_eval_count", promptTokens);
+        result.put("eval_count", evalCount);
+        result.put("load_duration", 0L);
+        result.put("context", List.of(1, 2, 3));
+        return result;
+    }
+
+    private void completion(HttpExchange exchange, JsonNode body) throws IOException, InterruptedException {
+        JsonNode promptNode = body.path("prompt");
+        List<String> prompts = new ArrayList<>();
+        if (promptNode.isArray()) {
+            promptNode.forEach(node -> prompts.add(node.asText()));
+        } else {
+            prompts.add(promptNode.asText(""));
+        }
+        List<String> tokens = completionTokens(body.path("max_tokens").asInt(0));
+        int promptTokens = prompts.stream().mapToInt(this::promptTokens).sum();
+        Map<String, Object> usage = Map.of("prompt_tokens", promptTokens, "completion_tokens", tokens.size() * prompts.size());
+        if (!body.path("stream").asBoolean(false)) {
+            sleep(generation(tokens.size()));
+            List<Map<String, Object>> choices = new ArrayList<>();
+            for (int i = 0; i < prompts.size(); i++) {
+                choices.add(Map.of("index", i, "text", String.join("", tokens)));
+            }
+            writeJson(exchange, 200, Map.of("choices", choices, "usage", usage));
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (String token : tokens) {
+            sleep(tokenInterval());
+            Map<String, Object> chunk = Map.of("choices", List.of(Map.of("index", 0, "text", token)));
+            writeLine(out, "data: " + objectMapper.writeValueAsString(chunk) + "\n\n");
+        }
+        writeLine(out, "data: " + objectMapper.writeValueAsString(Map.of("choices", List.of(), "usage", usage)) + "\n\n");
+        writeLine(out, "data: [DONE]\n\n");
+    }
+
+    private List<String> completionTokens(int requested) {
+        int count = requested > 0 ? Math.min(requested, settings.getResponseTokens()) : settings.getResponseTokens();
+        List<String> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add(WORDS[i % WORDS.length]);
+        }
+        return tokens;
+    }
+
+    private int promptTokens(String prompt) {
+        return Math.max(1, prompt.length() / 2);
+    }
+
+    private Duration firstTokenLatency() {
+        long median = settings.getLatencyMedian().toNanos();
+        if (median <= 0 || settings.getLatencySigma() <= 0) {
+            return settings.getLatencyMedian();
+        }
+        double factor = Math.exp(settings.getLatencySigma() * ThreadLocalRandom.current().nextGaussian());
+        return Duration.ofNanos((long) (median * factor));
+    }
+
+    private Duration tokenInterval() {
+        return settings.getTokensPerSecond() > 0
+            ? Duration.ofNanos((long) (1_000_000_000L / settings.getTokensPerSecond()))
+            : Duration.ZERO;
+    }
+
+    private Duration generation(int tokens) {
+        return tokenInterval().multipliedBy(tokens);
+    }
+
+    private void writeJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private void writeLine(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sleep(Duration duration) throws InterruptedException {
+        if (!duration.isZero() && !duration.isNegative()) {
+            Thread.sleep(duration.toMillis(), duration.toNanosPart() % 1_000_000);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+
+        void handle(HttpExchange exchange, JsonNode body) throws IOException, InterruptedException;
+    }
+
+    @Getter
+    @Builder
+    public static class Settings {
+
+        /**
+         * 0 表示随机端口。
+         */
+        @Builder.Default
+        private final int port = 0;
+        /**
+         * 首 token 延迟的中位数。
+         */
+        @Builder.Default
+        private final Duration latencyMedian = Duration.ofMillis(200);
+        /**
+         * 对数正态分布的 sigma，0 表示固定延迟；0.5 时 p99 约为中位数的 3.2 倍。
+         */
+        @Builder.Default
+        private final double latencySigma = 0.5;
+        /**
+         * 首 token 之后的输出速率，0 表示一次性返回。
+         */
+        @Builder.Default
+        private final double tokensPerSecond = 40;
+        @Builder.Default
+        private final int responseTokens = 64;
+        @Builder.Default
+        private final double errorRate = 0;
+        @Builder.Default
+        private final int errorStatus = 503;
+
+        /**
+         * 读取 {@code stub.port}、{@code stub.latency-ms}、{@code stub.latency-sigma}、{@code stub.tokens-per-second}、
+         * {@code stub.response-tokens}、{@code stub.error-rate}、{@code stub.error-status}。
+         */
+        public static Settings fromSystemProperties() {
+            return Settings.builder()
+                .port(Integer.getInteger("stub.port", 11435))
+                .latencyMedian(Duration.ofMillis(Long.getLong("stub.latency-ms", 200L)))
+                .latencySigma(Double.parseDouble(System.getProperty("stub.latency-sigma", "0.5")))
+                .tokensPerSecond(Double.parseDouble(System.getProperty("stub.tokens-per-second", "40")))
+                .responseTokens(Integer.getInteger("stub.response-tokens", 64))
+                .errorRate(Double.parseDouble(System.getProperty("stub.error-rate", "0")))
+                .errorStatus(Integer.getInteger("stub.error-status", 503))
+                .build();
+        }
+    }
+}
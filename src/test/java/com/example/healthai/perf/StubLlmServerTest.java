@@ -0,0 +1,109 @@
+package com.example.healthai.perf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import com.example.healthai.common.exception.BusinessException;
+import com.example.healthai.llm.client.LlmRequest;
+import com.example.healthai.llm.client.LlmResponse;
+import com.example.healthai.llm.client.http.HttpApiLlmClient;
+import com.example.healthai.llm.client.ollama.OllamaLlmClient;
+import com.example.healthai.llm.config.LlmProperties;
+import com.example.healthai.llm.retry.LlmRetryPolicy;
+import com.example.healthai.llm.stats.RatioBudget;
+import com.example.healthai.llm.warmup.ModelWarmthTracker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 校验模拟服务与两个真实客户端的协议兼容，压测结果才有参考意义。
+ */
+class StubLlmServerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LlmProperties properties = new LlmProperties();
+    private StubLlmServer stub;
+
+    @AfterEach
+    void tearDown() {
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void shouldServeOllamaGenerateAndStream() throws Exception {
+        stub = start(StubLlmServer.Settings.builder().latencyMedian(Duration.ZERO).tokensPerSecond(0).responseTokens(5).build());
+        OllamaLlmClient client = new OllamaLlmClient(restClient(), properties.getOllama(), objectMapper, retryPolicy(),
+            new ModelWarmthTracker(properties, meterRegistry));
+        LlmRequest request = LlmRequest.builder().model("llama3").prompt("发热三天").build();
+
+        LlmResponse response = client.generate(request);
+        List<String> tokens = new ArrayList<>();
+        LlmResponse streamed = client.stream(request, tokens::add);
+
+        assertThat(response.getContent()).isEqualTo("根据您描述的症状");
+        assertThat(response.getCompletionTokens()).isEqualTo(5);
+        assertThat(response.getContext()).containsExactly(1, 2, 3);
+        assertThat(tokens).hasSize(5);
+        assertThat(streamed.getContent()).isEqualTo(response.getContent());
+    }
+
+    @Test
+    void shouldServeBatchedAndStreamedCompletions() throws Exception {
+        stub = start(StubLlmServer.Settings.builder().latencyMedian(Duration.ZERO).tokensPerSecond(0).responseTokens(3).build());
+        LlmProperties.HttpApiProperties http = properties.getHttp();
+        http.getBatching().setEnabled(true);
+        http.getBatching().setWindow(Duration.ofMillis(200));
+        http.getBatching().setMaxBatchSize(2);
+        HttpApiLlmClient client = new HttpApiLlmClient(restClient(), http, objectMapper, retryPolicy(), meterRegistry);
+        LlmRequest request = LlmRequest.builder().model("gpt").prompt("咳嗽").build();
+
+        CompletableFuture<LlmResponse> first = CompletableFuture.supplyAsync(() -> client.generate(request));
+        CompletableFuture<LlmResponse> second = CompletableFuture.supplyAsync(() -> client.generate(request));
+        List<String> tokens = new ArrayList<>();
+        LlmResponse streamed = client.stream(request, tokens::add);
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getContent()).isEqualTo("根据您描述");
+        assertThat(second.get(5, TimeUnit.SECONDS).getContent()).isEqualTo("根据您描述");
+        assertThat(meterRegistry.get("healthai.llm.batch.size").summary().max()).isEqualTo(2);
+        assertThat(tokens).containsExactly("根据", "您", "描述");
+        assertThat(streamed.getCompletionTokens()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldInjectErrors() throws Exception {
+        stub = start(StubLlmServer.Settings.builder().latencyMedian(Duration.ZERO).errorRate(1).errorStatus(500).build());
+        properties.getHttp().setMaxRetries(0);
+        HttpApiLlmClient client = new HttpApiLlmClient(restClient(), properties.getHttp(), objectMapper, retryPolicy(),
+            meterRegistry);
+
+        assertThatThrownBy(() -> client.generate(LlmRequest.builder().model("gpt").prompt("头痛").build()))
+            .isInstanceOf(BusinessException.class);
+        assertThat(stub.injectedErrorCount()).isEqualTo(1);
+    }
+
+    private StubLlmServer start(StubLlmServer.Settings settings) throws Exception {
+        return new StubLlmServer(settings).start();
+    }
+
+    private RestClient restClient() {
+        return RestClient.builder().baseUrl(stub.baseUrl()).build();
+    }
+
+    private LlmRetryPolicy retryPolicy() {
+        return new LlmRetryPolicy(properties.getRetry(), new RatioBudget(0.1, 10), meterRegistry);
+    }
+}
@@ -9,6 +9,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,8 +24,11 @@ import com.example.healthai.consult.domain.ConsultationStatus;
 import com.example.healthai.consult.mapper.ConsultationMapper;
 import com.example.healthai.drug.domain.Medicine;
 import com.example.healthai.drug.mapper.MedicineMapper;
+import com.example.healthai.prescription.domain.Prescription;
 import com.example.healthai.prescription.domain.PrescriptionContraStatus;
+import com.example.healthai.prescription.domain.PrescriptionStatus;
 import com.example.healthai.prescription.mapper.ContraindicationAuditMapper;
+import com.example.healthai.prescription.mapper.PrescriptionMapper;
 import com.example.healthai.profile.domain.HealthProfile;
 import com.example.healthai.profile.mapper.HealthProfileMapper;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -42,6 +47,9 @@ class PrescriptionControllerIntegrationTest extends AbstractIntegrationTest {
     @Autowired
     private ContraindicationAuditMapper auditMapper;
 
+    @Autowired
+    private PrescriptionMapper prescriptionMapper;
+
     @Test
     void shouldCreatePrescriptionAndPassContraCheck() throws Exception {
         User patient = createUser("rx-patient");
@@ -187,6 +195,74 @@ class PrescriptionControllerIntegrationTest extends AbstractIntegrationTest {
         assertThat(detailResponse.path("data").path("items")).hasSize(1);
     }
 
+    @Test
+    void shouldPagePrescriptionsByCursorAcrossIdenticalTimestamps() throws Exception {
+        User patient = createUser("rx-keyset-patient");
+        User doctor = User.builder()
+            .username("rx-keyset-doctor")
+            .passwordHash(passwordEncoder.encode("Password123"))
+            .fullName("Doctor")
+            .gender("unknown")
+            .userType(UserType.DOCTOR)
+            .registeredAt(LocalDateTime.now())
+            .createdAt(LocalDateTime.now())
+            .updatedAt(LocalDateTime.now())
+            .build();
+        userMapper.insert(doctor);
+        String token = loginAndGetToken("rx-keyset-doctor", "Password123");
+
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 9, 0);
+        Consultation consultation = Consultation.builder()
+            .userId(patient.getId())
+            .doctorId(doctor.getId())
+            .symptomDescription("头痛")
+            .status(ConsultationStatus.DOCTOR_REVIEWED)
+            .createdAt(createdAt)
+            .updatedAt(createdAt)
+            .build();
+        consultationMapper.insert(consultation);
+
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Prescription prescription = Prescription.builder()
+                .consultationId(consultation.getId())
+                .patientId(patient.getId())
+                .doctorId(doctor.getId())
+                .status(PrescriptionStatus.DRAFT)
+                .contraCheckStatus(PrescriptionContraStatus.PASS)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+            prescriptionMapper.insert(prescription);
+            expected.add(0, prescription.getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/v1/prescriptions")
+                .header("Authorization", "Bearer " + token)
+                .param("patientId", String.valueOf(patient.getId()))
+                .param("size", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode data = objectMapper.readTree(mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString()).path("data");
+            data.path("content").forEach(item -> seen.add(item.path("id").asLong()));
+            assertThat(data.path("totalElements").asLong()).isEqualTo(5L);
+            cursor = data.path("nextCursor").isNull() ? null : data.path("nextCursor").asText();
+            pages++;
+        } while (cursor != null && pages < 10);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).containsExactlyElementsOf(expected);
+    }
+
     private static class PrescriptionRequestBuilder {
 
         private final StringBuilder builder = new StringBuilder();
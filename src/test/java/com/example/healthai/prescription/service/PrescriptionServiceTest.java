@@ -205,10 +205,10 @@ class PrescriptionServiceTest {
     @Test
     void searchShouldReturnPageResponse() {
         Prescription prescription = basePrescription().id(80L).build();
-        when(prescriptionMapper.search(1L, 2L, 3L, PrescriptionStatus.DRAFT, 20, 0)).thenReturn(List.of(prescription));
+        when(prescriptionMapper.search(1L, 2L, 3L, PrescriptionStatus.DRAFT, 21, 0)).thenReturn(List.of(prescription));
         when(prescriptionMapper.count(1L, 2L, 3L, PrescriptionStatus.DRAFT)).thenReturn(1L);
 
-        PageResponse<PrescriptionListResponse.PrescriptionSummary> page = prescriptionService.search(1L, 2L, 3L, "DRAFT", 0, 20);
+        PageResponse<PrescriptionListResponse.PrescriptionSummary> page = prescriptionService.search(1L, 2L, 3L, "DRAFT", 0, 20, null, true);
 
         assertThat(page.content()).hasSize(1);
         assertThat(page.totalElements()).isEqualTo(1L);
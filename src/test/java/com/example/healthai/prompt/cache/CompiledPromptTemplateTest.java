@@ -0,0 +1,59 @@
+package com.example.healthai.prompt.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.healthai.prompt.domain.PromptTemplate;
+
+class CompiledPromptTemplateTest {
+
+    @Test
+    void shouldRenderCommandVariablesOverDefaults() {
+        CompiledPromptTemplate compiled = CompiledPromptTemplate.compile(
+            template("症状: {{ symptoms }}，语言: {{language}}。"),
+            Map.of("symptoms", "未知", "language", "zh-CN"));
+
+        String rendered = compiled.render(Map.of("symptoms", "头痛"));
+
+        assertThat(rendered).isEqualTo("症状: 头痛，语言: zh-CN。");
+        assertThat(compiled.getVariableNames()).containsExactly("symptoms", "language");
+    }
+
+    @Test
+    void shouldRenderMissingOrNullVariablesAsEmpty() {
+        CompiledPromptTemplate compiled = CompiledPromptTemplate.compile(
+            template("{{a}}-{{b}}-{{c}}"), Map.of("b", "默认"));
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("b", null);
+
+        assertThat(compiled.render(variables)).isEqualTo("--");
+        assertThat(compiled.render(null)).isEqualTo("-默认-");
+    }
+
+    @Test
+    void shouldCompileTemplateWithNullDefault() {
+        Map<String, Object> defaults = new HashMap<>();
+        defaults.put("history", null);
+        defaults.put("language", "zh-CN");
+
+        CompiledPromptTemplate compiled = CompiledPromptTemplate.compile(template("{{history}}|{{language}}"), defaults);
+
+        assertThat(compiled.render(null)).isEqualTo("|zh-CN");
+        assertThat(compiled.render(Map.of("history", "上次问诊"))).isEqualTo("上次问诊|zh-CN");
+    }
+
+    @Test
+    void shouldKeepSpecialCharactersInValuesVerbatim() {
+        CompiledPromptTemplate compiled = CompiledPromptTemplate.compile(template("费用 {{amount}}"), null);
+
+        assertThat(compiled.render(Map.of("amount", "$1\\2"))).isEqualTo("费用 $1\\2");
+    }
+
+    private PromptTemplate template(String content) {
+        return PromptTemplate.builder().code("consult.initial").content(content).build();
+    }
+}
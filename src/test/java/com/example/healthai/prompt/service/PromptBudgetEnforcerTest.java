@@ -0,0 +1,71 @@
+package com.example.healthai.prompt.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.healthai.llm.token.BpeApproximateTokenEstimator;
+import com.example.healthai.llm.token.TokenCalibrator;
+import com.example.healthai.prompt.cache.CompiledPromptTemplate;
+import com.example.healthai.prompt.domain.PromptTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PromptBudgetEnforcerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenCalibrator calibrator = new TokenCalibrator(new BpeApproximateTokenEstimator(), meterRegistry);
+    private final PromptBudgetEnforcer enforcer = new PromptBudgetEnforcer(calibrator, meterRegistry);
+
+    @Test
+    void shouldRenderUnchangedWithinBudget() {
+        CompiledPromptTemplate compiled = compile(100, "attachments");
+
+        PromptBudgetEnforcer.BudgetedPrompt result = enforcer.render(compiled,
+            Map.of("symptomDescription", "头痛", "attachments", List.of("血常规")), "llama3");
+
+        assertThat(result.prompt()).isEqualTo("症状：头痛\n附件：[血常规]");
+        assertThat(result.rawTokens()).isEqualTo(calibrator.estimator().estimate(result.prompt()));
+    }
+
+    @Test
+    void shouldTruncateLowestPriorityVariablesFirst() {
+        CompiledPromptTemplate compiled = compile(60, "attachments,symptomDescription");
+        String symptom = "头痛".repeat(10);
+        List<String> attachments = List.of("血常规".repeat(5), "胸片".repeat(5), "心电图".repeat(5), "尿常规".repeat(5));
+
+        PromptBudgetEnforcer.BudgetedPrompt result = enforcer.render(compiled,
+            Map.of("symptomDescription", symptom, "attachments", attachments), "llama3");
+
+        assertThat(result.prompt()).contains(symptom).contains("项已省略").doesNotContain("尿常规");
+        assertThat(result.rawTokens()).isLessThanOrEqualTo(60);
+        assertThat(meterRegistry.counter("healthai.llm.prompt.truncated",
+            "template", "consult.initial", "variable", "attachments").count()).isEqualTo(1);
+        assertThat(meterRegistry.find("healthai.llm.prompt.truncated").tag("variable", "symptomDescription").counter()).isNull();
+    }
+
+    @Test
+    void shouldUseCalibratedEstimateAgainstBudget() {
+        CompiledPromptTemplate compiled = compile(40, "symptomDescription");
+        calibrator.record("llama3", 10, 20);
+
+        PromptBudgetEnforcer.BudgetedPrompt result = enforcer.render(compiled,
+            Map.of("symptomDescription", "持续咳嗽三天伴有低热和乏力".repeat(3)), "llama3");
+
+        assertThat(result.prompt()).isEqualTo("症状：持续咳嗽三天伴…（已截断）\n附件：");
+        assertThat(calibrator.calibrate("llama3", result.rawTokens())).isLessThanOrEqualTo(40);
+    }
+
+    private CompiledPromptTemplate compile(int budget, String priorities) {
+        PromptTemplate template = PromptTemplate.builder()
+            .code("consult.initial")
+            .content("症状：{{symptomDescription}}\n附件：{{attachments}}")
+            .tokenBudget(budget)
+            .variablePriorities(priorities)
+            .build();
+        return CompiledPromptTemplate.compile(template, Map.of());
+    }
+}